@@ -4,6 +4,7 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
+import java.io.File;
 import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
@@ -46,8 +47,128 @@ public class DeployMojo extends AbstractCdkMojo {
     @Parameter(property = "aws.cdk.notificationArns")
     private Set<String> notificationArns;
 
+    /**
+     * The maximum number of stacks deployed concurrently to the same environment (account and region). The
+     * environments are deployed independently of each other. A stack is deployed as soon as all the stacks it depends
+     * on are deployed.
+     */
+    @Parameter(property = "aws.cdk.max.concurrency", defaultValue = "1")
+    private int maxConcurrency;
+
+    /**
+     * The maximum number of stacks deployed concurrently to the same account. Not limited by default.
+     */
+    @Parameter(property = "aws.cdk.max.concurrency.per.account")
+    private Integer maxConcurrencyPerAccount;
+
+    /**
+     * The maximum number of stacks deployed concurrently to the same region. Not limited by default.
+     */
+    @Parameter(property = "aws.cdk.max.concurrency.per.region")
+    private Integer maxConcurrencyPerRegion;
+
+    /**
+     * Whether the stacks are deployed by means of change sets. The change sets of all the stacks are created
+     * concurrently up front, the stacks with no changes are skipped and the rest of the change sets are executed in
+     * the dependency order.
+     */
+    @Parameter(property = "aws.cdk.change.set.mode", defaultValue = "false")
+    private boolean changeSetMode;
+
+    /**
+     * Whether the stacks that haven't changed since the last deployment are skipped. The fingerprint of the template,
+     * the parameters, the tags and the assets of every stack is stored as a stack output.
+     */
+    @Parameter(property = "aws.cdk.skip.unchanged", defaultValue = "false")
+    private boolean skipUnchanged;
+
+    /**
+     * The maximum number of file assets packaged and uploaded at the same time.
+     */
+    @Parameter(property = "aws.cdk.max.concurrent.uploads", defaultValue = "4")
+    private int maxConcurrentUploads;
+
+    /**
+     * The maximum number of executables producing file assets that are run at the same time.
+     */
+    @Parameter(property = "aws.cdk.max.concurrent.executables", defaultValue = "2")
+    private int maxConcurrentExecutables;
+
+    /**
+     * The maximum number of Docker images built and pushed at the same time.
+     */
+    @Parameter(property = "aws.cdk.max.concurrent.image.builds", defaultValue = "2")
+    private int maxConcurrentImageBuilds;
+
+    /**
+     * The directory where the zipped directory assets and the files produced by executables are cached by the hashes of
+     * their sources, so that an unchanged asset isn't packaged or generated again. The assets aren't cached unless the
+     * directory is specified.
+     */
+    @Parameter(property = "aws.cdk.asset.cache.directory")
+    private File assetCacheDirectory;
+
+    /**
+     * The maximum size of the asset cache in bytes. The least recently used archives are evicted once the cache
+     * exceeds the size.
+     */
+    @Parameter(property = "aws.cdk.asset.cache.max.size", defaultValue = "2147483648")
+    private long assetCacheMaxSize;
+
+    /**
+     * Whether the Docker images are built with BuildKit by means of {@code docker buildx build}.
+     */
+    @Parameter(property = "aws.cdk.buildx", defaultValue = "false")
+    private boolean buildx;
+
+    /**
+     * The directory the layers of the Docker images are cached in between the builds, e.g. a directory restored by
+     * the CI system. Enables the buildx mode.
+     */
+    @Parameter(property = "aws.cdk.image.build.cache.directory")
+    private File imageBuildCacheDirectory;
+
+    /**
+     * The repository the layers of the Docker images are cached in between the builds, e.g.
+     * {@code 123456789012.dkr.ecr.eu-west-1.amazonaws.com/build-cache}. Enables the buildx mode.
+     */
+    @Parameter(property = "aws.cdk.image.build.cache.repository")
+    private String imageBuildCacheRepository;
+
+    /**
+     * Whether the Docker images are exported by buildx in the OCI image layout and pushed by means of the registry API
+     * instead of the Docker daemon. Enables the buildx mode.
+     */
+    @Parameter(property = "aws.cdk.daemonless.image.push", defaultValue = "false")
+    private boolean daemonlessImagePush;
+
     @Override
     public void execute(Path cloudAssemblyDirectory, Optional<String> profileOpt) {
-        AwsCdk.deploy().execute(cloudAssemblyDirectory, toolkitStackName, stacks, parameters, tags, notificationArns, profileOpt);
+        if (imageBuildCacheDirectory != null && imageBuildCacheRepository != null) {
+            throw new CdkException("Either the image build cache directory or the image build cache repository can " +
+                    "be specified, but not both");
+        }
+        ImageBuildCache imageBuildCache = null;
+        if (imageBuildCacheDirectory != null) {
+            imageBuildCache = ImageBuildCache.local(imageBuildCacheDirectory.toPath());
+        } else if (imageBuildCacheRepository != null) {
+            imageBuildCache = ImageBuildCache.registry(imageBuildCacheRepository);
+        }
+        DeployOptions options = DeployOptions.builder()
+                .withMaxConcurrency(maxConcurrency)
+                .withMaxConcurrencyPerAccount(maxConcurrencyPerAccount)
+                .withMaxConcurrencyPerRegion(maxConcurrencyPerRegion)
+                .withChangeSetMode(changeSetMode)
+                .withSkipUnchanged(skipUnchanged)
+                .withMaxConcurrentUploads(maxConcurrentUploads)
+                .withMaxConcurrentExecutables(maxConcurrentExecutables)
+                .withMaxConcurrentImageBuilds(maxConcurrentImageBuilds)
+                .withAssetCacheDirectory(assetCacheDirectory != null ? assetCacheDirectory.toPath() : null)
+                .withAssetCacheMaxSize(assetCacheMaxSize)
+                .withBuildx(buildx)
+                .withImageBuildCache(imageBuildCache)
+                .withDaemonlessImagePush(daemonlessImagePush)
+                .build();
+        AwsCdk.deploy(options).execute(cloudAssemblyDirectory, toolkitStackName, stacks, parameters, tags, notificationArns, profileOpt);
     }
 }
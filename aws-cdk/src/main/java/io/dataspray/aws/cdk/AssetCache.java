@@ -0,0 +1,184 @@
+package io.dataspray.aws.cdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of the packaged and generated file assets keyed by the hashes of their sources. The least recently
+ * used artifacts are evicted once the total size of the cache exceeds the limit.
+ *
+ * <p>The artifacts are written to temporary files and atomically moved into place, so the cache can be shared by
+ * concurrent builds: a reader either sees a complete artifact or none at all. The artifacts used within
+ * {@link #EVICTION_GRACE_PERIOD} are never evicted since they may still be read by this or a concurrent build, so the
+ * cache may temporarily exceed its size limit.</p>
+ */
+class AssetCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetCache.class);
+
+    private static final String ARTIFACT_EXTENSION = ".asset";
+    private static final String TEMP_FILE_PREFIX = ".tmp-";
+
+    /**
+     * The temporary files older than that are considered to be left by the builds that have been killed.
+     */
+    private static final Duration STALE_TEMP_FILE_AGE = Duration.ofHours(1);
+
+    /**
+     * The artifacts used more recently than that may still be read by an upload in progress.
+     */
+    private static final Duration EVICTION_GRACE_PERIOD = Duration.ofHours(1);
+
+    private final Path directory;
+    private final long maxSize;
+
+    AssetCache(Path directory, long maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size of the asset cache must be greater than zero");
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the packaged artifact of the asset and marks it as recently used, which protects it from eviction for
+     * {@link #EVICTION_GRACE_PERIOD}.
+     *
+     * @param sourceHash the hash of the asset source
+     * @return the artifact or empty if it isn't cached
+     */
+    Optional<Path> find(String sourceHash) {
+        Path artifact = getArtifact(sourceHash);
+        try {
+            Files.setLastModifiedTime(artifact, FileTime.from(Instant.now()));
+            return Optional.of(artifact);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.debug("Unable to access the cached artifact {}", artifact, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Creates a temporary file the artifact should be written to before it's added to the cache with
+     * {@link #put(String, Path)}.
+     *
+     * @return the temporary file
+     * @throws IOException if the file can't be created
+     */
+    Path createTempFile() throws IOException {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, TEMP_FILE_PREFIX, ARTIFACT_EXTENSION);
+    }
+
+    /**
+     * Atomically moves the complete artifact into the cache and evicts the least recently used artifacts if the cache
+     * exceeds its size limit.
+     *
+     * @param sourceHash the hash of the asset source
+     * @param tempFile the temporary file containing the artifact
+     */
+    void put(String sourceHash, Path tempFile) {
+        Path artifact = getArtifact(sourceHash);
+        try {
+            try {
+                Files.move(tempFile, artifact, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, artifact, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to add the artifact {} to the asset cache: {}", artifact, e.getMessage());
+            discard(tempFile);
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * Deletes the temporary file of an artifact that won't be added to the cache.
+     *
+     * @param tempFile the temporary file
+     */
+    void discard(Path tempFile) {
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            logger.debug("Unable to delete the temporary file {}", tempFile, e);
+        }
+    }
+
+    private void evict() {
+        List<CachedFile> artifacts = new ArrayList<>();
+        Instant now = Instant.now();
+        Instant staleTempFileTime = now.minus(STALE_TEMP_FILE_AGE);
+        Instant evictionTime = now.minus(EVICTION_GRACE_PERIOD);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    String fileName = file.getFileName().toString();
+                    if (fileName.startsWith(TEMP_FILE_PREFIX)) {
+                        if (attributes.lastModifiedTime().toInstant().isBefore(staleTempFileTime)) {
+                            discard(file);
+                        }
+                    } else if (fileName.endsWith(ARTIFACT_EXTENSION) && attributes.isRegularFile()) {
+                        artifacts.add(new CachedFile(file, attributes.size(), attributes.lastModifiedTime()));
+                    }
+                } catch (NoSuchFileException e) {
+                    // Evicted by a concurrent build
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Unable to evict the artifacts from the asset cache {}: {}", directory, e.getMessage());
+            return;
+        }
+
+        long size = artifacts.stream().mapToLong(artifact -> artifact.size).sum();
+        artifacts.sort(Comparator.comparing(artifact -> artifact.lastModifiedTime));
+        for (CachedFile artifact : artifacts) {
+            if (size <= maxSize || !artifact.lastModifiedTime.toInstant().isBefore(evictionTime)) {
+                break;
+            }
+            logger.debug("Evicting {} from the asset cache", artifact.file);
+            discard(artifact.file);
+            size -= artifact.size;
+        }
+    }
+
+    private Path getArtifact(String sourceHash) {
+        return directory.resolve(sourceHash.replaceAll("[^A-Za-z0-9_\\-]", "_") + ARTIFACT_EXTENSION);
+    }
+
+    private static class CachedFile {
+
+        private final Path file;
+        private final long size;
+        private final FileTime lastModifiedTime;
+
+        private CachedFile(Path file, long size, FileTime lastModifiedTime) {
+            this.file = file;
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+        }
+    }
+}
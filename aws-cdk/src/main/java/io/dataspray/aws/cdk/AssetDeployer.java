@@ -1,19 +1,27 @@
 package io.dataspray.aws.cdk;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awscdk.cloudassembly.schema.*;
-import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
 import software.amazon.awssdk.services.cloudformation.model.Output;
 import software.amazon.awssdk.services.cloudformation.model.Stack;
 import software.amazon.awssdk.services.cloudformation.model.StackStatus;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class AssetDeployer {
@@ -33,15 +41,45 @@ public class AssetDeployer {
     private final FileAssetPublisher fileAssetPublisher;
     private final DockerImageAssetPublisher dockerImagePublisher;
     private final EnvironmentResolver environmentResolver;
+    private final PollingStrategy pollingStrategy;
+    private final ExecutorProvider executorProvider;
+    private final PriorityTaskQueue uploadQueue;
+    private final PriorityTaskQueue imageQueue;
+    private final ExecutableAssetGenerator executableAssetGenerator;
+    private final boolean buildx;
+    private final ImageBuildCache imageBuildCache;
+    private final boolean daemonlessImagePush;
 
+    /**
+     * Creates a deployer.
+     *
+     * @param cloudAssemblyDirectory the cloud assembly directory
+     * @param fileAssetPublisher the publisher of the file assets
+     * @param dockerImagePublisher the publisher of the image assets
+     * @param environmentResolver the resolver of the environments of the asset destinations
+     * @param executableAssetGenerator the generator of the file assets whose sources are executables or {@code null}
+     *                                 if such assets aren't supported
+     * @param options the deployment options: the polling strategy, the executor and the limits of the concurrent
+     *                uploads and image builds as well as the way the images are built
+     */
     public AssetDeployer(Path cloudAssemblyDirectory,
                          FileAssetPublisher fileAssetPublisher,
                          DockerImageAssetPublisher dockerImagePublisher,
-                         EnvironmentResolver environmentResolver) {
+                         EnvironmentResolver environmentResolver,
+                         @Nullable ExecutableAssetGenerator executableAssetGenerator,
+                         DeployOptions options) {
         this.cloudAssemblyDirectory = cloudAssemblyDirectory;
         this.fileAssetPublisher = fileAssetPublisher;
         this.dockerImagePublisher = dockerImagePublisher;
         this.environmentResolver = environmentResolver;
+        this.pollingStrategy = options.getPollingStrategy();
+        this.executorProvider = options.getExecutorProvider();
+        this.uploadQueue = new PriorityTaskQueue(executorProvider.getExecutor(), options.getMaxConcurrentUploads());
+        this.imageQueue = new PriorityTaskQueue(executorProvider.getExecutor(), options.getMaxConcurrentImageBuilds());
+        this.executableAssetGenerator = executableAssetGenerator;
+        this.buildx = options.isBuildx();
+        this.imageBuildCache = options.getImageBuildCache().orElse(null);
+        this.daemonlessImagePush = options.isDaemonlessImagePush();
     }
 
     /**
@@ -51,106 +89,378 @@ public class AssetDeployer {
      * @param fileAssets File assets
      */
     public void deploy(Map<String, DockerImageAsset> imageAssets, Map<String, FileAsset> fileAssets) {
-        List<Runnable> publishmentTasks = new ArrayList<>();
+        List<CompletableFuture<List<Throwable>>> publications = new ArrayList<>();
+        fileAssets.forEach((assetId, fileAsset) -> publications.add(upload(assetId, fileAsset, 0)));
+        imageAssets.forEach((assetId, imageAsset) -> publications.add(publish(assetId, imageAsset, 0)));
+
+        MoreFutures.join(deployAsync(publications));
+    }
 
-        for (Map.Entry<String, DockerImageAsset> imageAssetEntry : imageAssets.entrySet()) {
-            for (Map.Entry<String, DockerImageDestination> destinationEntry : imageAssetEntry.getValue().getDestinations().entrySet()) {
-                ResolvedEnvironment environment = environmentResolver.resolveFromDestination(destinationEntry.getKey());
-                publishmentTasks.add(createImagePublishmentTask(imageAssetEntry.getKey(), imageAssetEntry.getValue(), destinationEntry.getValue(), environment));
+    /**
+     * Deploy an image asset defined outside of stacks to all of its destinations.
+     *
+     * @param assetId the id of the asset
+     * @param imageAsset Image asset
+     */
+    public void deployImageAsset(String assetId, DockerImageAsset imageAsset) {
+        MoreFutures.join(deployImageAssetAsync(assetId, imageAsset, 0));
+    }
+
+    /**
+     * Queues the publications of an image asset defined outside of stacks to all of its destinations. The images are
+     * built and pushed concurrently with the other queued images, the number of builds in progress is bounded.
+     *
+     * @param assetId the id of the asset
+     * @param imageAsset Image asset
+     * @param priority the priority of the publications, the higher the value the sooner the builds are started
+     * @return a future completed once the image is published to all of its destinations
+     */
+    public CompletableFuture<Void> deployImageAssetAsync(String assetId, DockerImageAsset imageAsset, int priority) {
+        return publish(assetId, imageAsset, priority).thenAccept(failures -> {
+            if (!failures.isEmpty()) {
+                throw toDeploymentException(failures);
             }
-        }
+        });
+    }
 
-        for (Map.Entry<String, FileAsset> entry : fileAssets.entrySet()) {
-            FileAsset fileAsset = entry.getValue();
-            Objects.requireNonNull(fileAsset.getSource().getPath(),
-                    "File asset has no path indicating an executable to be called to produce the asset which is not yet supported");
-            for (Map.Entry<String, FileDestination> destinationEntry : fileAsset.getDestinations().entrySet()) {
-                ResolvedEnvironment environment = environmentResolver.resolveFromDestination(destinationEntry.getKey());
-                String bucketName = environment.resolveVariables(destinationEntry.getValue().getBucketName());
-                String objectKey = destinationEntry.getValue().getObjectKey();
-
-                publishmentTasks.add(() -> {
-                    Path file = cloudAssemblyDirectory.resolve(fileAsset.getSource().getPath());
-                    try {
-                        fileAssetPublisher.publish(file, objectKey, bucketName, environment);
-                    } catch (IOException e) {
-                        throw StackDeploymentException.builder(environment)
-                                .withCause("An error occurred while publishing the file asset " + file)
-                                .withCause(e)
-                                .build();
-                    }
-                });
+    /**
+     * Deploy a file asset defined outside of stacks to all of its destinations.
+     *
+     * @param assetId the id of the asset
+     * @param fileAsset File asset
+     */
+    public void deployFileAsset(String assetId, FileAsset fileAsset) {
+        MoreFutures.join(deployFileAssetAsync(assetId, fileAsset, 0));
+    }
+
+    /**
+     * Queues the uploads of a file asset defined outside of stacks to all of its destinations. The uploads are
+     * performed concurrently with the other queued uploads, the number of uploads in progress is bounded. If the asset
+     * is produced by an executable, the asset is generated before the uploads are queued.
+     *
+     * @param assetId the id of the asset
+     * @param fileAsset File asset
+     * @param priority the priority of the uploads, the higher the value the sooner the uploads are started
+     * @return a future completed once the asset is uploaded to all of its destinations
+     */
+    public CompletableFuture<Void> deployFileAssetAsync(String assetId, FileAsset fileAsset, int priority) {
+        return upload(assetId, fileAsset, priority).thenAccept(failures -> {
+            if (!failures.isEmpty()) {
+                throw toDeploymentException(failures);
             }
-        }
+        });
+    }
 
-        deploy(publishmentTasks);
+    /**
+     * Cancels the queued uploads, image builds and asset generations that haven't been started yet.
+     */
+    public void cancel() {
+        uploadQueue.cancel();
+        imageQueue.cancel();
+        if (executableAssetGenerator != null) {
+            executableAssetGenerator.cancel();
+        }
     }
 
     /**
      * Deploy stack-specific assets returning required parameters for the stack
      *
-     * @param imageAssets Image assets
-     * @param fileAssets File assets
+     * @param stack the stack
+     * @param cloudAssemblyDirectory the cloud assembly directory
+     * @param environment the environment of the stack
+     * @param toolkitConfiguration the toolkit configuration
      * @return Parameter map with assets info required for stack deploy
      */
+    public Map<String, ParameterValue> deploy(
+            StackDefinition stack,
+            Path cloudAssemblyDirectory,
+            ResolvedEnvironment environment,
+            ToolkitConfiguration toolkitConfiguration) {
+        return deploy(stack, cloudAssemblyDirectory, environment, toolkitConfiguration, 0);
+    }
+
     /**
+     * Deploy stack-specific assets returning required parameters for the stack. The file assets are uploaded and the
+     * images are built concurrently with the given priority.
      *
+     * @param stack the stack
+     * @param cloudAssemblyDirectory the cloud assembly directory
+     * @param environment the environment of the stack
+     * @param toolkitConfiguration the toolkit configuration
+     * @param priority the priority of the uploads, the higher the value the sooner the uploads are started
+     * @return Parameter map with assets info required for stack deploy
      */
     public Map<String, ParameterValue> deploy(
             StackDefinition stack,
             Path cloudAssemblyDirectory,
             ResolvedEnvironment environment,
-            ToolkitConfiguration toolkitConfiguration) {
-        List<Runnable> publishmentTasks = Lists.newArrayList();
+            ToolkitConfiguration toolkitConfiguration,
+            int priority) {
+        return MoreFutures.join(deployAsync(stack, cloudAssemblyDirectory, environment, toolkitConfiguration,
+                priority));
+    }
+
+    /**
+     * Queues the uploads and the image builds of the stack-specific assets. No thread is blocked while the assets are
+     * published.
+     *
+     * @param stack the stack
+     * @param cloudAssemblyDirectory the cloud assembly directory
+     * @param environment the environment of the stack
+     * @param toolkitConfiguration the toolkit configuration
+     * @param priority the priority of the uploads, the higher the value the sooner the uploads are started
+     * @return a future completed with the parameter map with assets info required for stack deploy once all the
+     * assets are published
+     */
+    public CompletableFuture<Map<String, ParameterValue>> deployAsync(
+            StackDefinition stack,
+            Path cloudAssemblyDirectory,
+            ResolvedEnvironment environment,
+            ToolkitConfiguration toolkitConfiguration,
+            int priority) {
+        CompletableFuture<Toolkit> toolkit = stack.getFileAssets().isEmpty()
+                ? CompletableFuture.completedFuture(null)
+                : getToolkit(stack, environment, toolkitConfiguration);
+        return toolkit.thenCompose(resolvedToolkit -> deployAsync(stack, cloudAssemblyDirectory, environment,
+                resolvedToolkit, priority));
+    }
+
+    /**
+     * Queues the uploads and the image builds of the stack-specific assets using the toolkit that has already been
+     * resolved for the environment. No thread is blocked while the assets are published.
+     *
+     * @param stack the stack
+     * @param cloudAssemblyDirectory the cloud assembly directory
+     * @param environment the environment of the stack
+     * @param toolkit the toolkit of the environment or {@code null} if the stack doesn't have any file assets
+     * @param priority the priority of the uploads, the higher the value the sooner the uploads are started
+     * @return a future completed with the parameter map with assets info required for stack deploy once all the
+     * assets are published
+     */
+    public CompletableFuture<Map<String, ParameterValue>> deployAsync(
+            StackDefinition stack,
+            Path cloudAssemblyDirectory,
+            ResolvedEnvironment environment,
+            @Nullable Toolkit toolkit,
+            int priority) {
+        List<Supplier<CompletableFuture<Void>>> uploadTasks = Lists.newArrayList();
+        List<Runnable> imagePublishmentTasks = Lists.newArrayList();
         Map<String, ParameterValue> assetParameters = Maps.newHashMap();
 
-        Toolkit toolkit = null;
         for (FileAssetMetadataEntry asset : stack.getFileAssets()) {
-            if (toolkit == null) {
-                toolkit = getToolkit(stack, environment, toolkitConfiguration);
-            }
+            Objects.requireNonNull(toolkit, "toolkit can't be null if the stack has file assets");
             String bucketName = toolkit.getBucketName();
             String prefix = generatePrefix(asset);
             String filename = generateFilename(asset);
-            assetParameters.put(asset.getS3BucketParameter(), ParameterValue.value(toolkit.getBucketName()));
+            assetParameters.put(asset.getS3BucketParameter(), ParameterValue.value(bucketName));
             assetParameters.put(asset.getS3KeyParameter(), ParameterValue.value(String.join(ASSET_PREFIX_SEPARATOR, prefix, filename)));
             assetParameters.put(asset.getArtifactHashParameter(), ParameterValue.value(asset.getSourceHash()));
 
-            publishmentTasks.add(() -> {
-                Path file = cloudAssemblyDirectory.resolve(asset.getPath());
-                try {
-                    fileAssetPublisher.publish(file, prefix + filename, bucketName, environment);
-                } catch (IOException e) {
-                    throw StackDeploymentException.builder(stack.getStackName(), environment)
-                            .withCause("An error occurred while publishing the file asset " + file)
-                            .withCause(e)
-                            .build();
-                }
-            });
+            Path file = cloudAssemblyDirectory.resolve(asset.getPath());
+            uploadTasks.add(() -> publishFile(stack.getStackName(), file, prefix + filename, bucketName, environment,
+                    asset.getSourceHash()));
         }
 
-        for (ContainerImageAssetMetadataEntry asset : stack.getImageAssets()) {
-            publishmentTasks.add(createImagePublishmentTask(asset.getId(), asset, environment));
+        try {
+            for (ContainerImageAssetMetadataEntry asset : stack.getImageAssets()) {
+                imagePublishmentTasks.add(createImagePublishmentTask(asset.getId(), asset, environment));
+            }
+        } catch (Exception e) {
+            return MoreFutures.failed(e);
         }
 
-        deploy(publishmentTasks);
+        return deployAsync(ImmutableList.of(
+                submitAsync(uploadQueue, uploadTasks, priority),
+                submit(imageQueue, imagePublishmentTasks, priority)))
+                .thenApply(ignored -> assetParameters);
+    }
 
-        return assetParameters;
+    /**
+     * Returns a future completed once all the queued publications are completed. The failures (if any) are reported as
+     * a single exception.
+     */
+    private CompletableFuture<Void> deployAsync(List<CompletableFuture<List<Throwable>>> publications) {
+        return CompletableFuture.allOf(publications.toArray(new CompletableFuture[0])).thenAccept(ignored -> {
+            List<Throwable> failures = new ArrayList<>();
+            publications.forEach(publication -> failures.addAll(publication.join()));
+            if (!failures.isEmpty()) {
+                throw toDeploymentException(failures);
+            }
+        });
     }
 
-    private void deploy(List<Runnable> publishmentTasks) {
+    /**
+     * Resolves the file of the asset (generating it if the asset is produced by an executable) and queues its uploads.
+     * The returned future is completed with the failures once all the uploads are completed.
+     */
+    private CompletableFuture<List<Throwable>> upload(String assetId, FileAsset fileAsset, int priority) {
+        CompletableFuture<Path> file;
         try {
-            publishmentTasks.forEach(Runnable::run);
-        } catch (CdkException e) {
-            throw StackDeploymentException.builder()
-                    .withCause(e.getMessage())
-                    .withCause(e.getCause())
-                    .build();
+            file = resolveFile(assetId, fileAsset, priority);
         } catch (Exception e) {
-            throw StackDeploymentException.builder()
-                    .withCause(e)
-                    .build();
+            return CompletableFuture.completedFuture(ImmutableList.of(e));
         }
+        return file
+                .thenCompose(path -> submitAsync(uploadQueue, createUploadTasks(assetId, fileAsset, path), priority))
+                .exceptionally(e -> ImmutableList.of(MoreFutures.unwrap(e)));
+    }
+
+    /**
+     * Queues the publications of the image to all of its destinations. The returned future is completed with the
+     * failures once all the publications are completed.
+     */
+    private CompletableFuture<List<Throwable>> publish(String assetId, DockerImageAsset imageAsset, int priority) {
+        List<Runnable> publishmentTasks;
+        try {
+            publishmentTasks = createImagePublishmentTasks(assetId, imageAsset);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(ImmutableList.of(e));
+        }
+        return submit(imageQueue, publishmentTasks, priority);
+    }
+
+    private CompletableFuture<Path> resolveFile(String assetId, FileAsset fileAsset, int priority) {
+        FileSource source = fileAsset.getSource();
+        if (source.getPath() != null) {
+            return CompletableFuture.completedFuture(cloudAssemblyDirectory.resolve(source.getPath()));
+        }
+        if (source.getExecutable() == null || source.getExecutable().isEmpty()) {
+            throw new CdkException("The file asset " + assetId + " has neither a path nor an executable");
+        }
+        if (executableAssetGenerator == null) {
+            throw new CdkException("The file asset " + assetId + " is produced by an executable which is not " +
+                    "supported by the deployer");
+        }
+        return executableAssetGenerator.generate(assetId, source.getExecutable(), priority);
+    }
+
+    /**
+     * Queues the tasks and returns a future completed once all of them are completed, successfully or not. Unlike
+     * {@link CompletableFuture#allOf}, the future waits for the rest of the tasks if some of them fail, so that no
+     * upload or build is left running behind the back of the caller.
+     */
+    private CompletableFuture<List<Throwable>> submit(PriorityTaskQueue queue, List<Runnable> tasks, int priority) {
+        return collectFailures(tasks.stream()
+                .map(task -> queue.submit(priority, task))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Queues the asynchronous tasks, every task holds its slot in the queue until its future is completed. The
+     * returned future is completed once all of them are completed, successfully or not.
+     */
+    private CompletableFuture<List<Throwable>> submitAsync(PriorityTaskQueue queue,
+                                                           List<Supplier<CompletableFuture<Void>>> tasks,
+                                                           int priority) {
+        return collectFailures(tasks.stream()
+                .map(task -> queue.submitAsync(priority, task))
+                .collect(Collectors.toList()));
+    }
+
+    private static CompletableFuture<List<Throwable>> collectFailures(List<CompletableFuture<Void>> results) {
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<?>[] completions = results.stream()
+                .map(result -> result.handle((ignored, e) -> {
+                    if (e != null) {
+                        failures.add(MoreFutures.unwrap(e));
+                    }
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(completions).thenApply(ignored -> failures);
+    }
+
+    /**
+     * Combines the failures into a single exception. A single stack deployment failure is returned as is. Otherwise,
+     * the first failure determines the message and the cause of the exception, the rest of them are added as
+     * suppressed exceptions. If all the failures belong to the same stack, the exception keeps the stack and its
+     * environment.
+     */
+    static StackDeploymentException toDeploymentException(List<Throwable> failures) {
+        Throwable failure = failures.get(0);
+        if (failures.size() == 1 && failure instanceof StackDeploymentException) {
+            return (StackDeploymentException) failure;
+        }
+        StackDeploymentException.Builder builder;
+        if (isSameStack(failures)) {
+            StackDeploymentException stackFailure = (StackDeploymentException) failure;
+            builder = StackDeploymentException.builder(stackFailure.getStackName(), stackFailure.getEnvironment());
+        } else {
+            builder = StackDeploymentException.builder();
+        }
+        if (failure instanceof StackDeploymentException) {
+            // The message of the failure already contains the stack and the environment
+            builder.withCause(failures.size() + " asset publications have failed")
+                    .withCause(failure);
+        } else {
+            String message = failure instanceof CdkException ? failure.getMessage() : null;
+            if (failures.size() > 1) {
+                message = failures.size() + " asset publications have failed, the first failure: " +
+                        (message != null ? message : failure);
+            }
+            builder.withCause(message)
+                    .withCause(failure instanceof CdkException ? failure.getCause() : failure);
+        }
+        StackDeploymentException exception = builder.build();
+        failures.stream().skip(1).forEach(exception::addSuppressed);
+        return exception;
+    }
+
+    private static boolean isSameStack(List<Throwable> failures) {
+        if (!(failures.get(0) instanceof StackDeploymentException)) {
+            return false;
+        }
+        StackDeploymentException first = (StackDeploymentException) failures.get(0);
+        return failures.stream().allMatch(failure -> failure instanceof StackDeploymentException &&
+                Objects.equals(((StackDeploymentException) failure).getStackName(), first.getStackName()) &&
+                Objects.equals(getEnvironmentName((StackDeploymentException) failure),
+                        getEnvironmentName(first)));
+    }
+
+    @Nullable
+    private static String getEnvironmentName(StackDeploymentException exception) {
+        return exception.getEnvironment() != null ? exception.getEnvironment().getName() : null;
+    }
+
+    private List<Supplier<CompletableFuture<Void>>> createUploadTasks(String assetId, FileAsset fileAsset, Path file) {
+        List<Supplier<CompletableFuture<Void>>> uploadTasks = new ArrayList<>();
+        for (Map.Entry<String, FileDestination> destinationEntry : fileAsset.getDestinations().entrySet()) {
+            ResolvedEnvironment environment = environmentResolver.resolveFromDestination(destinationEntry.getKey());
+            String bucketName = environment.resolveVariables(destinationEntry.getValue().getBucketName());
+            String objectKey = destinationEntry.getValue().getObjectKey();
+
+            // The ids of the assets are the hashes of their sources
+            uploadTasks.add(() -> publishFile(null, file, objectKey, bucketName, environment, assetId));
+        }
+        return uploadTasks;
+    }
+
+    /**
+     * Uploads the file asset, the I/O errors are reported as the deployment failures of the stack (if any).
+     */
+    private CompletableFuture<Void> publishFile(@Nullable String stackName, Path file, String objectKey,
+                                                String bucketName, ResolvedEnvironment environment,
+                                                String sourceHash) {
+        return fileAssetPublisher.publishAsync(file, objectKey, bucketName, environment, sourceHash)
+                .exceptionally(e -> {
+                    Throwable cause = MoreFutures.unwrap(e);
+                    if (cause instanceof IOException) {
+                        throw StackDeploymentException.builder(stackName, environment)
+                                .withCause("An error occurred while publishing the file asset " + file)
+                                .withCause(cause)
+                                .build();
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
+    private List<Runnable> createImagePublishmentTasks(String assetId, DockerImageAsset imageAsset) {
+        List<Runnable> publishmentTasks = new ArrayList<>();
+        for (Map.Entry<String, DockerImageDestination> destinationEntry : imageAsset.getDestinations().entrySet()) {
+            ResolvedEnvironment environment = environmentResolver.resolveFromDestination(destinationEntry.getKey());
+            publishmentTasks.add(createImagePublishmentTask(assetId, imageAsset, destinationEntry.getValue(), environment));
+        }
+        return publishmentTasks;
     }
 
     private Runnable createImagePublishmentTask(
@@ -220,18 +530,50 @@ public class AssetDeployer {
 
         return () -> {
             String localTag = String.join("-", "cdkasset", assetId.toLowerCase());
-            ImageBuild imageBuild = ImageBuild.builder()
-                    .withContextDirectory(contextDirectory)
-                    .withDockerfile(dockerfilePath)
-                    .withImageTag(localTag)
-                    .withArguments(dockerBuildArgs)
-                    .withTarget(dockerBuildTarget)
-                    .build();
             String repositoryNameResolved = environment.resolveVariables(repositoryName);
-            dockerImagePublisher.publish(repositoryNameResolved, imageTag, imageBuild, environment);
+            // Without the Docker daemon, the image is exported to a temporary directory and pushed from there
+            Path outputDirectory = daemonlessImagePush ? createImageDirectory(localTag) : null;
+            try {
+                ImageBuild imageBuild = ImageBuild.builder()
+                        .withContextDirectory(contextDirectory)
+                        .withDockerfile(dockerfilePath)
+                        .withImageTag(localTag)
+                        .withArguments(dockerBuildArgs)
+                        .withTarget(dockerBuildTarget)
+                        .withBuildx(buildx)
+                        .withCache(imageBuildCache)
+                        .withCacheKey(imageBuildCache != null
+                                ? ImageBuildCache.generateKey(repositoryNameResolved, dockerfilePath,
+                                        dockerBuildTarget, dockerBuildArgs)
+                                : null)
+                        .withOutputDirectory(outputDirectory)
+                        .build();
+                dockerImagePublisher.publish(assetId, repositoryNameResolved, imageTag, imageBuild, environment);
+            } finally {
+                if (outputDirectory != null) {
+                    deleteImageDirectory(outputDirectory);
+                }
+            }
         };
     }
 
+    private static Path createImageDirectory(String localTag) {
+        try {
+            return Files.createTempDirectory(localTag);
+        } catch (IOException e) {
+            throw new CdkException("Unable to create the directory the image " + localTag + " is exported to", e);
+        }
+    }
+
+    private static void deleteImageDirectory(Path directory) {
+        try {
+            MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+        } catch (IOException e) {
+            logger.warn("Unable to delete the directory {} the image has been exported to: {}", directory,
+                    e.getMessage());
+        }
+    }
+
     private Optional<Path> findDockerfile(Path contextDirectory) {
         Path dockerfile = contextDirectory.resolve("Dockerfile");
         if (!Files.exists(dockerfile)) {
@@ -266,18 +608,28 @@ public class AssetDeployer {
         return prefix.toString();
     }
 
-    private Toolkit getToolkit(
+    private CompletableFuture<Toolkit> getToolkit(
             StackDefinition stack,
             ResolvedEnvironment environment,
             ToolkitConfiguration toolkitConfiguration) {
-        CloudFormationClient client = CloudFormationClientProvider.get(environment);
-        Stack toolkitStack = Stacks.findStack(client, toolkitConfiguration.getStackName()).orElse(null);
-        if (toolkitStack != null && Stacks.isInProgress(toolkitStack)) {
-            logger.info("Waiting until toolkit stack reaches stable state, environment={}, stackName={}",
-                    environment, toolkitConfiguration.getStackName());
-            toolkitStack = awaitCompletion(toolkitStack, client);
-        }
+        CloudFormationAsyncClient client = CloudFormationClientProvider.getAsync(environment);
+        return Stacks.findStack(client, toolkitConfiguration.getStackName())
+                .thenCompose(toolkitStack -> {
+                    if (toolkitStack.isPresent() && Stacks.isInProgress(toolkitStack.get())) {
+                        logger.info("Waiting until toolkit stack reaches stable state, environment={}, stackName={}",
+                                environment, toolkitConfiguration.getStackName());
+                        return awaitCompletion(toolkitStack.get(), client);
+                    }
+                    return CompletableFuture.completedFuture(toolkitStack.orElse(null));
+                })
+                .thenApply(toolkitStack -> getToolkit(stack, environment, toolkitConfiguration, toolkitStack));
+    }
 
+    private Toolkit getToolkit(
+            StackDefinition stack,
+            ResolvedEnvironment environment,
+            ToolkitConfiguration toolkitConfiguration,
+            @Nullable Stack toolkitStack) {
         if (toolkitStack == null || toolkitStack.stackStatus() == StackStatus.DELETE_COMPLETE ||
                 toolkitStack.stackStatus() == StackStatus.ROLLBACK_COMPLETE) {
             throw StackDeploymentException.builder(stack.getStackName(), environment)
@@ -328,13 +680,12 @@ public class AssetDeployer {
         return new Toolkit(bucketName, bucketDomainName);
     }
 
-    private Stack awaitCompletion(Stack stack, CloudFormationClient client) {
-        Stack completedStack;
+    private CompletableFuture<Stack> awaitCompletion(Stack stack, CloudFormationAsyncClient client) {
         if (logger.isInfoEnabled()) {
-            completedStack = Stacks.awaitCompletion(client, stack, new LoggingStackEventListener(Stacks.lastChange(stack)));
-        } else {
-            completedStack = Stacks.awaitCompletion(client, stack);
+            Instant notBefore = Stacks.lastChange(stack);
+            return Stacks.awaitCompletion(client, stack, new LoggingStackEventListener(notBefore), notBefore,
+                    pollingStrategy, executorProvider);
         }
-        return completedStack;
+        return Stacks.awaitCompletion(client, stack, null, null, pollingStrategy, executorProvider);
     }
 }
@@ -0,0 +1,106 @@
+package io.dataspray.aws.cdk;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Represents an upload of a file asset (or a template) to S3.
+ */
+public class AssetTransfer {
+
+    private final String bucketName;
+    private final String objectName;
+    private final long bytesTransferred;
+    private final Duration duration;
+    private final String checksum;
+
+    AssetTransfer(String bucketName, String objectName, long bytesTransferred, Duration duration,
+                  @Nullable String checksum) {
+        this.bucketName = bucketName;
+        this.objectName = objectName;
+        this.bytesTransferred = bytesTransferred;
+        this.duration = duration;
+        this.checksum = checksum;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Returns the number of bytes sent to S3, which for a directory is the size of the archive.
+     *
+     * @return the number of bytes transferred
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * Returns the time from the start of the upload to its completion. For a directory, the time includes zipping the
+     * directory, which is performed while the archive is uploaded.
+     *
+     * @return the duration of the upload
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the CRC32C checksum of the object calculated by S3 once the upload is completed. The checksum of an object
+     * uploaded in several parts is the checksum of the part checksums followed by the number of the parts.
+     *
+     * @return the base64-encoded checksum or empty if the upload has failed
+     */
+    public Optional<String> getChecksum() {
+        return Optional.ofNullable(checksum);
+    }
+
+    /**
+     * Returns the average throughput of the upload.
+     *
+     * @return the number of bytes transferred per second
+     */
+    public double getThroughput() {
+        return throughput(bytesTransferred, duration);
+    }
+
+    @Override
+    public String toString() {
+        return "AssetTransfer{" +
+                "bucketName='" + bucketName + '\'' +
+                ", objectName='" + objectName + '\'' +
+                ", bytesTransferred=" + bytesTransferred +
+                ", duration=" + duration +
+                ", checksum='" + checksum + '\'' +
+                '}';
+    }
+
+    static double throughput(long bytes, Duration duration) {
+        long millis = Math.max(duration.toMillis(), 1);
+        return bytes * 1000.0 / millis;
+    }
+
+    static String formatSize(double bytes) {
+        if (bytes < 1024) {
+            return String.format(Locale.ROOT, "%.0f B", bytes);
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024);
+        }
+        if (bytes < 1024 * 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f MB", bytes / (1024 * 1024));
+        }
+        return String.format(Locale.ROOT, "%.2f GB", bytes / (1024 * 1024 * 1024));
+    }
+
+    static String formatDuration(Duration duration) {
+        return String.format(Locale.ROOT, "%.1f s", duration.toMillis() / 1000.0);
+    }
+}
@@ -0,0 +1,32 @@
+package io.dataspray.aws.cdk;
+
+/**
+ * Receives the statistics of the asset uploads. The methods may be called concurrently from different threads.
+ */
+public interface AssetTransferListener {
+
+    /**
+     * Called once an upload is completed.
+     *
+     * @param transfer the upload
+     */
+    default void transferCompleted(AssetTransfer transfer) {
+    }
+
+    /**
+     * Called if an upload fails.
+     *
+     * @param transfer the upload, including the bytes transferred before the failure
+     * @param error the cause of the failure
+     */
+    default void transferFailed(AssetTransfer transfer, Throwable error) {
+    }
+
+    /**
+     * Called once the deployment is completed (successfully or not) with the totals of all its uploads.
+     *
+     * @param summary the totals of the uploads
+     */
+    default void publicationCompleted(AssetTransferSummary summary) {
+    }
+}
@@ -0,0 +1,79 @@
+package io.dataspray.aws.cdk;
+
+import java.time.Duration;
+
+/**
+ * Represents the totals of all the asset uploads of a deployment.
+ */
+public class AssetTransferSummary {
+
+    private final int transfers;
+    private final int failedTransfers;
+    private final int skippedTransfers;
+    private final long bytesTransferred;
+    private final Duration duration;
+
+    AssetTransferSummary(int transfers, int failedTransfers, int skippedTransfers, long bytesTransferred, Duration duration) {
+        this.transfers = transfers;
+        this.failedTransfers = failedTransfers;
+        this.skippedTransfers = skippedTransfers;
+        this.bytesTransferred = bytesTransferred;
+        this.duration = duration;
+    }
+
+    /**
+     * Returns the number of completed uploads.
+     *
+     * @return the number of completed uploads
+     */
+    public int getTransfers() {
+        return transfers;
+    }
+
+    public int getFailedTransfers() {
+        return failedTransfers;
+    }
+
+    /**
+     * Returns the number of uploads that have been skipped because the objects already exist.
+     *
+     * @return the number of skipped uploads
+     */
+    public int getSkippedTransfers() {
+        return skippedTransfers;
+    }
+
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * Returns the time from the start of the first upload to the completion of the last one. The uploads are performed
+     * concurrently, so the duration is usually shorter than the sum of the upload durations.
+     *
+     * @return the duration of all the uploads
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the average throughput of all the uploads.
+     *
+     * @return the number of bytes transferred per second
+     */
+    public double getThroughput() {
+        return AssetTransfer.throughput(bytesTransferred, duration);
+    }
+
+    @Override
+    public String toString() {
+        return "AssetTransferSummary{" +
+                "transfers=" + transfers +
+                ", failedTransfers=" + failedTransfers +
+                ", skippedTransfers=" + skippedTransfers +
+                ", bytesTransferred=" + bytesTransferred +
+                ", duration=" + duration +
+                '}';
+    }
+}
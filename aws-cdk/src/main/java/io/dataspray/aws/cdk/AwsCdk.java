@@ -7,14 +7,26 @@ public class AwsCdk {
         return new BootstrapImpl();
     }
 
+    public static Bootstrap bootstrap(BootstrapOptions options) {
+        return new BootstrapImpl(options);
+    }
+
     public static Deploy deploy() {
         return new DeployImpl();
     }
 
+    public static Deploy deploy(DeployOptions options) {
+        return new DeployImpl(options);
+    }
+
     public static Destroy destroy() {
         return new DestroyImpl();
     }
 
+    public static Destroy destroy(DestroyOptions options) {
+        return new DestroyImpl(options);
+    }
+
     private AwsCdk() {
         // Disable ctor
     }
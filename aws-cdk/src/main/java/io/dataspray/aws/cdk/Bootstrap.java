@@ -6,6 +6,7 @@ import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Deploys toolkit stacks required by the CDK application.
@@ -78,4 +79,52 @@ public interface Bootstrap {
             Map<String, String> bootstrapParameters,
             Map<String, String> bootstrapTags,
             Optional<String> profileOpt);
+
+    /**
+     * Bootstrap CDK without blocking the calling thread
+     *
+     * @param cloudAssemblyDirectory Directory of synthesized stack(s)
+     * @param toolkitStackName The name of the CDK toolkit stack.
+     * @param stacks Stacks, for which bootstrapping will be performed if it's required.
+     * @param bootstrapParameters Input parameters for the bootstrap stack. In the case of an update, existing values
+     * will be reused.
+     * @param bootstrapTags Tags that will be added to the bootstrap stack.
+     * @param profileOpt Optional AWS account profile name
+     * @return a future completed once the toolkit stacks are deployed
+     */
+    CompletableFuture<Void> executeAsync(
+            Path cloudAssemblyDirectory,
+            String toolkitStackName,
+            Set<String> stacks,
+            Map<String, String> bootstrapParameters,
+            Map<String, String> bootstrapTags,
+            Optional<String> profileOpt);
+
+    /**
+     * Bootstrap CDK for all stacks without blocking the calling thread
+     *
+     * @param cloudAssembly Cloud assembly created via app.synth()
+     * @return a future completed once the toolkit stacks are deployed
+     */
+    CompletableFuture<Void> executeAsync(CloudAssembly cloudAssembly);
+
+    /**
+     * Bootstrap CDK without blocking the calling thread
+     *
+     * @param cloudAssembly Cloud assembly created via app.synth()
+     * @param toolkitStackName The name of the CDK toolkit stack.
+     * @param stacks Stacks, for which bootstrapping will be performed if it's required.
+     * @param bootstrapParameters Input parameters for the bootstrap stack. In the case of an update, existing values
+     * will be reused.
+     * @param bootstrapTags Tags that will be added to the bootstrap stack.
+     * @param profileOpt Optional AWS account profile name
+     * @return a future completed once the toolkit stacks are deployed
+     */
+    CompletableFuture<Void> executeAsync(
+            CloudAssembly cloudAssembly,
+            String toolkitStackName,
+            Set<String> stacks,
+            Map<String, String> bootstrapParameters,
+            Map<String, String> bootstrapTags,
+            Optional<String> profileOpt);
 }
@@ -10,16 +10,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awscdk.cxapi.CloudAssembly;
 import software.amazon.awscdk.cxapi.CloudFormationStackArtifact;
-import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
 import software.amazon.awssdk.services.cloudformation.model.Output;
 import software.amazon.awssdk.services.cloudformation.model.Stack;
 import software.amazon.awssdk.services.cloudformation.model.StackStatus;
 
 import java.io.*;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -41,16 +45,24 @@ public class BootstrapImpl implements Bootstrap {
     private static final int DEFAULT_BOOTSTRAP_STACK_VERSION = getDefaultBootstrapStackVersion();
     private static final String BOOTSTRAP_VERSION_OUTPUT = "BootstrapVersion";
 
+    private final BootstrapOptions options;
+
+    public BootstrapImpl() {
+        this(BootstrapOptions.defaults());
+    }
+
+    public BootstrapImpl(BootstrapOptions options) {
+        this.options = Objects.requireNonNull(options, "bootstrap options can't be null");
+    }
+
     @Override
     public void execute(Path cloudAssemblyDirectory, String toolkitStackName, Set<String> stacks, Map<String, String> bootstrapParameters, Map<String, String> bootstrapTags, Optional<String> profileOpt) {
-        execute(CloudDefinition.create(cloudAssemblyDirectory), toolkitStackName, stacks, bootstrapParameters, bootstrapTags, profileOpt);
+        MoreFutures.join(executeAsync(cloudAssemblyDirectory, toolkitStackName, stacks, bootstrapParameters, bootstrapTags, profileOpt));
     }
 
     @Override
     public void execute(CloudAssembly cloudAssembly) {
-        execute(cloudAssembly, AwsCdk.DEFAULT_TOOLKIT_STACK_NAME,
-                ImmutableSet.copyOf(Lists.transform(cloudAssembly.getStacks(), CloudFormationStackArtifact::getStackName)),
-                null, null, Optional.empty());
+        MoreFutures.join(executeAsync(cloudAssembly));
     }
 
     @Override
@@ -65,10 +77,27 @@ public class BootstrapImpl implements Bootstrap {
 
     @Override
     public void execute(CloudAssembly cloudAssembly, String toolkitStackName, Set<String> stacks, Map<String, String> bootstrapParameters, Map<String, String> bootstrapTags, Optional<String> profileOpt) {
-        execute(CloudDefinition.create(cloudAssembly), toolkitStackName, stacks, bootstrapParameters, bootstrapTags, profileOpt);
+        MoreFutures.join(executeAsync(cloudAssembly, toolkitStackName, stacks, bootstrapParameters, bootstrapTags, profileOpt));
     }
 
-    private void execute(CloudDefinition cloudDefinition, String toolkitStackName, Set<String> stacks, Map<String, String> bootstrapParameters, Map<String, String> bootstrapTags, Optional<String> profileOpt) {
+    @Override
+    public CompletableFuture<Void> executeAsync(Path cloudAssemblyDirectory, String toolkitStackName, Set<String> stacks, Map<String, String> bootstrapParameters, Map<String, String> bootstrapTags, Optional<String> profileOpt) {
+        return executeAsync(CloudDefinition.create(cloudAssemblyDirectory), toolkitStackName, stacks, bootstrapParameters, bootstrapTags, profileOpt);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync(CloudAssembly cloudAssembly) {
+        return executeAsync(cloudAssembly, AwsCdk.DEFAULT_TOOLKIT_STACK_NAME,
+                ImmutableSet.copyOf(Lists.transform(cloudAssembly.getStacks(), CloudFormationStackArtifact::getStackName)),
+                null, null, Optional.empty());
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync(CloudAssembly cloudAssembly, String toolkitStackName, Set<String> stacks, Map<String, String> bootstrapParameters, Map<String, String> bootstrapTags, Optional<String> profileOpt) {
+        return executeAsync(CloudDefinition.create(cloudAssembly), toolkitStackName, stacks, bootstrapParameters, bootstrapTags, profileOpt);
+    }
+
+    private CompletableFuture<Void> executeAsync(CloudDefinition cloudDefinition, String toolkitStackName, Set<String> stacks, Map<String, String> bootstrapParameters, Map<String, String> bootstrapTags, Optional<String> profileOpt) {
         EnvironmentResolver environmentResolver = EnvironmentResolver.create(profileOpt.orElse(null));
         Map<String, Integer> environments = cloudDefinition.getStacks().stream()
                 .filter(stack -> stacks == null || stacks.isEmpty() || stacks.contains(stack.getStackName()))
@@ -81,44 +110,68 @@ public class BootstrapImpl implements Bootstrap {
                         )
                 ));
 
-        environments.forEach((environment, version) -> {
-            ResolvedEnvironment resolvedEnvironment = environmentResolver.resolve(environment);
+        Map<ResolvedEnvironment, Integer> resolvedEnvironments = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> environment : environments.entrySet()) {
+            ResolvedEnvironment resolvedEnvironment = environmentResolver.resolve(environment.getKey());
+            int version = environment.getValue();
             if (version > TOOLKIT_STACK_VERSION) {
-                throw BootstrapException.deploymentError(toolkitStackName, resolvedEnvironment)
+                return MoreFutures.failed(BootstrapException.deploymentError(toolkitStackName, resolvedEnvironment)
                         .withCause("One of the stacks requires toolkit stack version " + version + " which is not " +
                                 "supported by the plugin. Please try to update the plugin version in order to fix the problem")
-                        .build();
-            }
-            bootstrap(toolkitStackName,
-                    bootstrapParameters != null ? bootstrapParameters : ImmutableMap.of(),
-                    bootstrapTags != null ? bootstrapTags : ImmutableMap.of(),
-                    resolvedEnvironment, version);
-        });
-    }
-
-    private void bootstrap(String toolkitStackName, Map<String, String> bootstrapParameters, Map<String, String> bootstrapTags, ResolvedEnvironment environment, int version) {
-        CloudFormationClient client = CloudFormationClientProvider.get(environment);
-
-        Stack toolkitStack = Stacks.findStack(client, toolkitStackName).orElse(null);
-        if (toolkitStack != null) {
-            if (Stacks.isInProgress(toolkitStack)) {
-                logger.info("Waiting until toolkit stack reaches stable state, environment={}, stackName={}",
-                        environment, toolkitStackName);
-                toolkitStack = awaitCompletion(client, toolkitStack);
+                        .build());
             }
-            if (toolkitStack.stackStatus() == StackStatus.ROLLBACK_COMPLETE || toolkitStack.stackStatus() == StackStatus.ROLLBACK_FAILED) {
-                logger.warn("The toolkit stack is in {} state. The stack will be deleted and a new one will be" +
-                        " created, environment={}, stackName={}", StackStatus.ROLLBACK_COMPLETE, environment, toolkitStackName);
-                toolkitStack = awaitCompletion(client, Stacks.deleteStack(client, toolkitStack.stackId()));
+            resolvedEnvironments.put(resolvedEnvironment, version);
+        }
 
-            }
-            if (Stacks.isFailed(toolkitStack)) {
-                throw BootstrapException.deploymentError(toolkitStackName, environment)
-                        .withCause("The toolkit stack is in failed state: " + toolkitStack.stackStatus())
-                        .build();
-            }
+        // The toolkit stacks of different environments are independent of each other, so they are deployed concurrently
+        return CompletableFuture.allOf(resolvedEnvironments.entrySet().stream()
+                .map(environment -> bootstrap(toolkitStackName,
+                        bootstrapParameters != null ? bootstrapParameters : ImmutableMap.of(),
+                        bootstrapTags != null ? bootstrapTags : ImmutableMap.of(),
+                        environment.getKey(), environment.getValue()))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Void> bootstrap(String toolkitStackName, Map<String, String> bootstrapParameters, Map<String, String> bootstrapTags, ResolvedEnvironment environment, int version) {
+        CloudFormationAsyncClient client = CloudFormationClientProvider.getAsync(environment);
+
+        return Stacks.findStack(client, toolkitStackName)
+                .thenCompose(toolkitStack -> toolkitStack.isPresent()
+                        ? awaitStableState(client, toolkitStackName, environment, toolkitStack.get())
+                        : CompletableFuture.completedFuture(null))
+                .thenCompose(toolkitStack -> deploy(client, toolkitStackName, bootstrapParameters, bootstrapTags, environment, version, toolkitStack));
+    }
+
+    private CompletableFuture<Stack> awaitStableState(CloudFormationAsyncClient client, String toolkitStackName, ResolvedEnvironment environment, Stack toolkitStack) {
+        CompletableFuture<Stack> stableStack;
+        if (Stacks.isInProgress(toolkitStack)) {
+            logger.info("Waiting until toolkit stack reaches stable state, environment={}, stackName={}",
+                    environment, toolkitStackName);
+            stableStack = awaitCompletion(client, toolkitStack);
+        } else {
+            stableStack = CompletableFuture.completedFuture(toolkitStack);
         }
+        return stableStack
+                .thenCompose(stack -> {
+                    if (stack.stackStatus() == StackStatus.ROLLBACK_COMPLETE || stack.stackStatus() == StackStatus.ROLLBACK_FAILED) {
+                        logger.warn("The toolkit stack is in {} state. The stack will be deleted and a new one will be" +
+                                " created, environment={}, stackName={}", StackStatus.ROLLBACK_COMPLETE, environment, toolkitStackName);
+                        return Stacks.deleteStack(client, stack.stackId())
+                                .thenCompose(deletedStack -> awaitCompletion(client, deletedStack));
+                    }
+                    return CompletableFuture.completedFuture(stack);
+                })
+                .thenApply(stack -> {
+                    if (Stacks.isFailed(stack)) {
+                        throw BootstrapException.deploymentError(toolkitStackName, environment)
+                                .withCause("The toolkit stack is in failed state: " + stack.stackStatus())
+                                .build();
+                    }
+                    return stack;
+                });
+    }
 
+    private CompletableFuture<Void> deploy(CloudFormationAsyncClient client, String toolkitStackName, Map<String, String> bootstrapParameters, Map<String, String> bootstrapTags, ResolvedEnvironment environment, int version, Stack toolkitStack) {
         int toolkitStackVersion = Stream.of(toolkitStack)
                 .filter(stack -> stack != null && stack.stackStatus() != StackStatus.DELETE_COMPLETE)
                 .filter(Stack::hasOutputs)
@@ -136,56 +189,66 @@ public class BootstrapImpl implements Bootstrap {
                     .build();
         }
 
-        if (toolkitStack == null || toolkitStack.stackStatus() == StackStatus.DELETE_COMPLETE || toolkitStackVersion < version) {
-            TemplateRef toolkitTemplate;
-            try {
-                toolkitTemplate = getToolkitTemplateRef()
-                        .orElseThrow(() -> BootstrapException.deploymentError(toolkitStackName, environment)
-                                .withCause("The required bootstrap stack version " + version + " is not supported by " +
-                                        "the plugin. Please try to update the plugin version in order to fix the problem")
-                                .build());
-            } catch (IOException e) {
-                throw BootstrapException.deploymentError(toolkitStackName, environment)
-                        .withCause("Unable to load a template for the toolkit stack")
-                        .withCause(e)
-                        .build();
-            }
+        if (toolkitStack != null && toolkitStack.stackStatus() != StackStatus.DELETE_COMPLETE && toolkitStackVersion >= version) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-            if (toolkitStack != null && toolkitStack.stackStatus() != StackStatus.DELETE_COMPLETE) {
-                logger.info("Deploying a newer version of the toolkit stack (updating from {} to {}), environment={}, " +
-                        "stackName={}", toolkitStackVersion, version, environment, toolkitStackName);
-                // TODO: consider the case when some of the parameters may be removed in the newer version
-                Map<String, ParameterValue> stackParameters = Stream.of(toolkitStack)
-                        .filter(Stack::hasParameters)
-                        .flatMap(s -> s.parameters().stream())
-                        .collect(Collectors.toMap(software.amazon.awssdk.services.cloudformation.model.Parameter::parameterKey, p -> ParameterValue.unchanged()));
-                bootstrapParameters.entrySet().stream()
-                        .filter(parameter -> parameter.getKey() != null && parameter.getValue() != null)
-                        .forEach(parameter -> stackParameters.put(parameter.getKey(), ParameterValue.value(parameter.getValue())));
-                toolkitStack = Stacks.updateStack(client, toolkitStackName, toolkitTemplate, stackParameters);
-            } else {
-                logger.info("The toolkit stack doesn't exist. Deploying a new one, environment={}, stackName={}",
-                        environment, toolkitStackName);
-                Map<String, ParameterValue> stackParameters = Maps.transformValues(bootstrapParameters, ParameterValue::value);
-                toolkitStack = Stacks.createStack(client, toolkitStackName, toolkitTemplate, stackParameters, bootstrapTags, ImmutableSet.of());
-            }
-            if (!Stacks.isCompleted(toolkitStack)) {
-                logger.info("Waiting until the toolkit stack reaches stable state, environment={}, stackName={}",
-                        environment, toolkitStackName);
-                toolkitStack = awaitCompletion(client, toolkitStack);
-            }
-            if (Stacks.isFailed(toolkitStack)) {
-                throw BootstrapException.deploymentError(toolkitStackName, environment)
-                        .withCause("The deployment has failed: " + toolkitStack.stackStatus())
-                        .build();
-            }
-            if (Stacks.isRolledBack(toolkitStack)) {
-                throw BootstrapException.deploymentError(toolkitStackName, environment)
-                        .withCause("The deployment has been unsuccessful, the stack has been rolled back to its previous state")
-                        .build();
-            }
-            logger.info("The toolkit stack has been successfully deployed, stackName={}", toolkitStackName);
+        TemplateRef toolkitTemplate;
+        try {
+            toolkitTemplate = getToolkitTemplateRef()
+                    .orElseThrow(() -> BootstrapException.deploymentError(toolkitStackName, environment)
+                            .withCause("The required bootstrap stack version " + version + " is not supported by " +
+                                    "the plugin. Please try to update the plugin version in order to fix the problem")
+                            .build());
+        } catch (IOException e) {
+            throw BootstrapException.deploymentError(toolkitStackName, environment)
+                    .withCause("Unable to load a template for the toolkit stack")
+                    .withCause(e)
+                    .build();
         }
+
+        CompletableFuture<Stack> deployment;
+        if (toolkitStack != null && toolkitStack.stackStatus() != StackStatus.DELETE_COMPLETE) {
+            logger.info("Deploying a newer version of the toolkit stack (updating from {} to {}), environment={}, " +
+                    "stackName={}", toolkitStackVersion, version, environment, toolkitStackName);
+            // TODO: consider the case when some of the parameters may be removed in the newer version
+            Map<String, ParameterValue> stackParameters = Stream.of(toolkitStack)
+                    .filter(Stack::hasParameters)
+                    .flatMap(s -> s.parameters().stream())
+                    .collect(Collectors.toMap(software.amazon.awssdk.services.cloudformation.model.Parameter::parameterKey, p -> ParameterValue.unchanged()));
+            bootstrapParameters.entrySet().stream()
+                    .filter(parameter -> parameter.getKey() != null && parameter.getValue() != null)
+                    .forEach(parameter -> stackParameters.put(parameter.getKey(), ParameterValue.value(parameter.getValue())));
+            deployment = Stacks.updateStack(client, toolkitStackName, toolkitTemplate, stackParameters, ImmutableMap.of(), ImmutableSet.of());
+        } else {
+            logger.info("The toolkit stack doesn't exist. Deploying a new one, environment={}, stackName={}",
+                    environment, toolkitStackName);
+            Map<String, ParameterValue> stackParameters = Maps.transformValues(bootstrapParameters, ParameterValue::value);
+            deployment = Stacks.createStack(client, toolkitStackName, toolkitTemplate, stackParameters, bootstrapTags, ImmutableSet.of());
+        }
+
+        return deployment
+                .thenCompose(stack -> {
+                    if (!Stacks.isCompleted(stack)) {
+                        logger.info("Waiting until the toolkit stack reaches stable state, environment={}, stackName={}",
+                                environment, toolkitStackName);
+                        return awaitCompletion(client, stack);
+                    }
+                    return CompletableFuture.completedFuture(stack);
+                })
+                .thenAccept(stack -> {
+                    if (Stacks.isFailed(stack)) {
+                        throw BootstrapException.deploymentError(toolkitStackName, environment)
+                                .withCause("The deployment has failed: " + stack.stackStatus())
+                                .build();
+                    }
+                    if (Stacks.isRolledBack(stack)) {
+                        throw BootstrapException.deploymentError(toolkitStackName, environment)
+                                .withCause("The deployment has been unsuccessful, the stack has been rolled back to its previous state")
+                                .build();
+                    }
+                    logger.info("The toolkit stack has been successfully deployed, stackName={}", toolkitStackName);
+                });
     }
 
     private Optional<TemplateRef> getToolkitTemplateRef() throws IOException {
@@ -203,14 +266,14 @@ public class BootstrapImpl implements Bootstrap {
         }
     }
 
-    private Stack awaitCompletion(CloudFormationClient client, Stack stack) {
-        Stack completedStack;
+    private CompletableFuture<Stack> awaitCompletion(CloudFormationAsyncClient client, Stack stack) {
         if (logger.isInfoEnabled()) {
-            completedStack = Stacks.awaitCompletion(client, stack, new LoggingStackEventListener(Stacks.lastChange(stack)));
-        } else {
-            completedStack = Stacks.awaitCompletion(client, stack);
+            Instant notBefore = Stacks.lastChange(stack);
+            return Stacks.awaitCompletion(client, stack, new LoggingStackEventListener(notBefore), notBefore,
+                    options.getPollingStrategy(), options.getExecutorProvider());
         }
-        return completedStack;
+        return Stacks.awaitCompletion(client, stack, null, null, options.getPollingStrategy(),
+                options.getExecutorProvider());
     }
 
     private static Integer getDefaultBootstrapStackVersion() {
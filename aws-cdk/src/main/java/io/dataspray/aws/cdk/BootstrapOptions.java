@@ -0,0 +1,77 @@
+package io.dataspray.aws.cdk;
+
+import java.util.Objects;
+
+/**
+ * Represents bootstrap settings that are not specific to a cloud assembly.
+ */
+public class BootstrapOptions {
+
+    private final PollingStrategy pollingStrategy;
+    private final ExecutorProvider executorProvider;
+
+    private BootstrapOptions(PollingStrategy pollingStrategy, ExecutorProvider executorProvider) {
+        this.pollingStrategy = Objects.requireNonNull(pollingStrategy, "polling strategy can't be null");
+        this.executorProvider = Objects.requireNonNull(executorProvider, "executor provider can't be null");
+    }
+
+    /**
+     * Returns the strategy determining how often the status of the stacks is checked while waiting for them to reach
+     * a stable state.
+     *
+     * @return the polling strategy
+     */
+    public PollingStrategy getPollingStrategy() {
+        return pollingStrategy;
+    }
+
+    /**
+     * Returns the provider of the threads used for the blocking work and for scheduling the stack status checks.
+     *
+     * @return the executor provider
+     */
+    public ExecutorProvider getExecutorProvider() {
+        return executorProvider;
+    }
+
+    @Override
+    public String toString() {
+        return "BootstrapOptions{" +
+                "pollingStrategy=" + pollingStrategy +
+                ", executorProvider=" + executorProvider +
+                '}';
+    }
+
+    public static BootstrapOptions defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private PollingStrategy pollingStrategy;
+        private ExecutorProvider executorProvider;
+
+        private Builder() {
+            this.pollingStrategy = PollingStrategy.defaultStrategy();
+            this.executorProvider = ExecutorProvider.defaultProvider();
+        }
+
+        public Builder withPollingStrategy(PollingStrategy pollingStrategy) {
+            this.pollingStrategy = pollingStrategy;
+            return this;
+        }
+
+        public Builder withExecutorProvider(ExecutorProvider executorProvider) {
+            this.executorProvider = executorProvider;
+            return this;
+        }
+
+        public BootstrapOptions build() {
+            return new BootstrapOptions(pollingStrategy, executorProvider);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.dataspray.aws.cdk;
+
+import software.amazon.awssdk.services.cloudformation.model.ChangeSetType;
+import software.amazon.awssdk.services.cloudformation.model.Stack;
+
+import javax.annotation.Nullable;
+import java.util.Optional;
+
+/**
+ * A change set created for a stack deployment. An empty change set means that the deployed stack is already up to date
+ * and doesn't need to be touched.
+ */
+public class ChangeSet {
+
+    private final String stackName;
+    private final String stackId;
+    private final String changeSetId;
+    private final ChangeSetType type;
+    private final Stack deployedStack;
+
+    private ChangeSet(String stackName,
+                      @Nullable String stackId,
+                      @Nullable String changeSetId,
+                      @Nullable ChangeSetType type,
+                      @Nullable Stack deployedStack) {
+        this.stackName = stackName;
+        this.stackId = stackId;
+        this.changeSetId = changeSetId;
+        this.type = type;
+        this.deployedStack = deployedStack;
+    }
+
+    static ChangeSet of(String stackName, String stackId, String changeSetId, ChangeSetType type, @Nullable Stack deployedStack) {
+        return new ChangeSet(stackName, stackId, changeSetId, type, deployedStack);
+    }
+
+    static ChangeSet empty(String stackName, Stack deployedStack) {
+        return new ChangeSet(stackName, deployedStack.stackId(), null, null, deployedStack);
+    }
+
+    public String getStackName() {
+        return stackName;
+    }
+
+    public String getStackId() {
+        return stackId;
+    }
+
+    public Optional<String> getChangeSetId() {
+        return Optional.ofNullable(changeSetId);
+    }
+
+    public Optional<ChangeSetType> getType() {
+        return Optional.ofNullable(type);
+    }
+
+    /**
+     * Returns the stack as it was deployed before the change set was created.
+     *
+     * @return the deployed stack or empty if the stack is created by the change set
+     */
+    public Optional<Stack> getDeployedStack() {
+        return Optional.ofNullable(deployedStack);
+    }
+
+    public boolean isEmpty() {
+        return changeSetId == null;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{" +
+                "stackName='" + stackName + '\'' +
+                ", stackId='" + stackId + '\'' +
+                ", changeSetId='" + changeSetId + '\'' +
+                ", type=" + type +
+                '}';
+    }
+}
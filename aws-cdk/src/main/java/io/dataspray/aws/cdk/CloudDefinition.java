@@ -15,6 +15,7 @@ import software.amazon.jsii.NativeType;
 import software.amazon.jsii.UnsafeCast;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -31,13 +32,18 @@ public class CloudDefinition {
     private final List<StackDefinition> stacks;
     private final Map<String, FileAsset> fileAssets;
     private final Map<String, DockerImageAsset> imageAssets;
+    private final Map<String, Set<String>> fileAssetIdsByManifest;
+    private final Map<String, Set<String>> imageAssetIdsByManifest;
 
     private CloudDefinition(Path cloudAssemblyDirectory, List<StackDefinition> stacks,
-                            Map<String, FileAsset> fileAssets, Map<String, DockerImageAsset> imageAssets) {
+                            Map<String, FileAsset> fileAssets, Map<String, DockerImageAsset> imageAssets,
+                            Map<String, Set<String>> fileAssetIdsByManifest, Map<String, Set<String>> imageAssetIdsByManifest) {
         this.cloudAssemblyDirectory = cloudAssemblyDirectory;
         this.stacks = ImmutableList.copyOf(stacks);
         this.fileAssets = ImmutableMap.copyOf(fileAssets);
         this.imageAssets = ImmutableMap.copyOf(imageAssets);
+        this.fileAssetIdsByManifest = ImmutableMap.copyOf(fileAssetIdsByManifest);
+        this.imageAssetIdsByManifest = ImmutableMap.copyOf(imageAssetIdsByManifest);
     }
 
     /**
@@ -61,6 +67,38 @@ public class CloudDefinition {
         return imageAssets;
     }
 
+    /**
+     * Returns the ids of the file assets the stack requires, i.e. the assets defined in the asset manifests the stack
+     * depends on.
+     *
+     * @param stack the stack
+     * @return the ids of the file assets (the keys of {@link #getFileAssets()})
+     */
+    @Nonnull
+    public Set<String> getFileAssetIds(StackDefinition stack) {
+        return getAssetIds(stack, fileAssetIdsByManifest);
+    }
+
+    /**
+     * Returns the ids of the Docker image assets the stack requires, i.e. the assets defined in the asset manifests
+     * the stack depends on.
+     *
+     * @param stack the stack
+     * @return the ids of the image assets (the keys of {@link #getImageAssets()})
+     */
+    @Nonnull
+    public Set<String> getImageAssetIds(StackDefinition stack) {
+        return getAssetIds(stack, imageAssetIdsByManifest);
+    }
+
+    private Set<String> getAssetIds(StackDefinition stack, Map<String, Set<String>> assetIdsByManifest) {
+        Set<String> assetIds = new HashSet<>();
+        for (String dependency : stack.getDependencies()) {
+            assetIds.addAll(assetIdsByManifest.getOrDefault(dependency, Collections.emptySet()));
+        }
+        return assetIds;
+    }
+
     @Nonnull
     public Path getCloudAssemblyDirectory() {
         return cloudAssemblyDirectory;
@@ -89,22 +127,31 @@ public class CloudDefinition {
 
         Map<String, FileAsset> fileAssets = Maps.newHashMap();
         Map<String, DockerImageAsset> imageAssets = Maps.newHashMap();
+        Map<String, Set<String>> fileAssetIdsByManifest = Maps.newHashMap();
+        Map<String, Set<String>> imageAssetIdsByManifest = Maps.newHashMap();
         if (assemblyManifest.getArtifacts() != null) {
-            assemblyManifest.getArtifacts().values().stream()
-                    .filter(artifactManifest -> ArtifactType.ASSET_MANIFEST.equals(artifactManifest.getType()))
-                    .map(artifactManifest -> UnsafeCast.unsafeCast((JsiiObject) artifactManifest.getProperties(), AssetManifestProperties.class))
-                    .map(AssetManifestProperties::getFile)
-                    .map(assetManifestFile -> Manifest.loadAssetManifest(cloudAssemblyDirectory.resolve(assetManifestFile).toString()))
-                    .forEach(assetManifest -> {
-                        if (assetManifest.getFiles() != null) {
-                            fileAssets.putAll(assetManifest.getFiles());
-                        }
-                        if (assetManifest.getDockerImages() != null) {
-                            imageAssets.putAll(assetManifest.getDockerImages());
-                        }
-                    });
+            assemblyManifest.getArtifacts().forEach((artifactId, artifactManifest) -> {
+                if (!ArtifactType.ASSET_MANIFEST.equals(artifactManifest.getType())) {
+                    return;
+                }
+                AssetManifestProperties properties = UnsafeCast.unsafeCast((JsiiObject) artifactManifest.getProperties(), AssetManifestProperties.class);
+                AssetManifest assetManifest = Manifest.loadAssetManifest(cloudAssemblyDirectory.resolve(properties.getFile()).toString());
+                if (assetManifest.getFiles() != null) {
+                    fileAssets.putAll(assetManifest.getFiles());
+                    fileAssetIdsByManifest.put(artifactId, new HashSet<>(assetManifest.getFiles().keySet()));
+                }
+                if (assetManifest.getDockerImages() != null) {
+                    imageAssets.putAll(assetManifest.getDockerImages());
+                    imageAssetIdsByManifest.put(artifactId, new HashSet<>(assetManifest.getDockerImages().keySet()));
+                }
+            });
         }
 
+        // The dependencies are the ids of the artifacts, whereas the stacks are identified by their names
+        Map<String, String> stackNamesByArtifactId = new HashMap<>();
+        cloudAssembly.getStacks().forEach(stack -> stackNamesByArtifactId.put(stack.getId(),
+                ObjectUtils.firstNonNull(stack.getDisplayName(), stack.getId())));
+
         Map<String, StackDefinition> stacks = cloudAssembly.getStacks().stream()
                 .map(stack -> {
                     String artifactId = stack.getId();
@@ -150,7 +197,7 @@ public class CloudDefinition {
                             .parameters(parameters)
                             .parameterValues(parameterValues)
                             .resources(resources)
-                            .dependencies(stack.getManifest().getDependencies() != null ? stack.getManifest().getDependencies() : ImmutableList.of())
+                            .dependencies(resolveDependencies(stack.getManifest().getDependencies(), stackNamesByArtifactId))
                             .build();
                 })
                 .collect(Collectors.toMap(StackDefinition::getStackName, Function.identity()));
@@ -158,7 +205,27 @@ public class CloudDefinition {
         Set<String> visited = new HashSet<>();
         List<StackDefinition> sortedStacks = new ArrayList<>();
         stacks.keySet().forEach(stackName -> sortTopologically(stackName, stacks, visited, sortedStacks::add));
-        return new CloudDefinition(cloudAssemblyDirectory, sortedStacks, fileAssets, imageAssets);
+        return new CloudDefinition(cloudAssemblyDirectory, sortedStacks, fileAssets, imageAssets,
+                fileAssetIdsByManifest, imageAssetIdsByManifest);
+    }
+
+    /**
+     * Replaces the artifact ids of the stacks the stack depends on with the names of the stacks, which differ if the
+     * stacks have display names (e.g. the stacks defined in stages). The ids of the other artifacts, e.g. the asset
+     * manifests, are kept as is.
+     *
+     * @param dependencies the ids of the artifacts the stack depends on
+     * @param stackNamesByArtifactId the names of the stacks by the ids of their artifacts
+     * @return the dependencies of the stack
+     */
+    static List<String> resolveDependencies(@Nullable List<String> dependencies,
+                                            Map<String, String> stackNamesByArtifactId) {
+        if (dependencies == null) {
+            return ImmutableList.of();
+        }
+        return dependencies.stream()
+                .map(dependency -> stackNamesByArtifactId.getOrDefault(dependency, dependency))
+                .collect(Collectors.toList());
     }
 
     private static void sortTopologically(String stackName,
@@ -2,6 +2,8 @@ package io.dataspray.aws.cdk;
 
 import com.google.common.collect.Maps;
 import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
 import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
 
 import java.time.Duration;
@@ -13,6 +15,7 @@ import java.util.concurrent.ConcurrentMap;
 public class CloudFormationClientProvider {
 
     private static final ConcurrentMap<String, CloudFormationClient> clients = Maps.newConcurrentMap();
+    private static final ConcurrentMap<String, CloudFormationAsyncClient> asyncClients = Maps.newConcurrentMap();
 
     public static CloudFormationClient get(ResolvedEnvironment environment) {
         return clients.computeIfAbsent(environment.getName(), name -> CloudFormationClient.builder()
@@ -26,6 +29,21 @@ public class CloudFormationClientProvider {
                 .build());
     }
 
+    /**
+     * Returns a non-blocking client for the environment. The client doesn't tie up a thread while a request is in
+     * flight, so it should be used whenever many stacks are operated at the same time.
+     */
+    public static CloudFormationAsyncClient getAsync(ResolvedEnvironment environment) {
+        return asyncClients.computeIfAbsent(environment.getName(), name -> CloudFormationAsyncClient.builder()
+                .region(environment.getRegion())
+                .credentialsProvider(environment.getCredentialsProvider())
+                .httpClientBuilder(AwsCrtAsyncHttpClient.builder()
+                        .maxConcurrency(200)
+                        .connectionMaxIdleTime(Duration.ofSeconds(60))
+                        .connectionTimeout(Duration.ofSeconds(60)))
+                .build());
+    }
+
     private CloudFormationClientProvider() {
         // Disallow ctor
     }
@@ -0,0 +1,45 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * The default executor provider using dedicated daemon threads. The idle threads are released after a minute.
+ *
+ * A multi-release variant of this class using virtual threads is located in {@code src/main/java21}.
+ */
+final class DefaultExecutorProvider implements ExecutorProvider {
+
+    static final DefaultExecutorProvider INSTANCE = new DefaultExecutorProvider();
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+
+    private DefaultExecutorProvider() {
+        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("aws-cdk-io-%d")
+                .setDaemon(true)
+                .build());
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setNameFormat("aws-cdk-scheduler-%d")
+                .setDaemon(true)
+                .build());
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+}
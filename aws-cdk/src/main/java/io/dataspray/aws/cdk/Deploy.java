@@ -6,6 +6,7 @@ import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Deploys the synthesized templates to the AWS.
@@ -82,4 +83,56 @@ public interface Deploy {
             Map<String, String> tags,
             Set<String> notificationArns,
             Optional<String> profileOpt);
+
+    /**
+     * Deploy the synthesized templates to AWS without blocking the calling thread
+     *
+     * @param cloudAssemblyDirectory Directory of synthesized stack(s)
+     * @param toolkitStackName The name of the CDK toolkit stack.
+     * @param stacks Stacks, for which bootstrapping will be performed if it's required.
+     * @param parameters Input parameters for the stacks. For the new stacks, all the parameters without a default value
+     * must be specified. In the case of an update, existing values will be reused.
+     * @param tags Tags that will be added to the stacks.
+     * @param notificationArns SNS ARNs to publish stack related events.
+     * @param profileOpt Optional AWS account profile name
+     * @return a future completed once all the stacks are deployed
+     */
+    CompletableFuture<Void> executeAsync(
+            Path cloudAssemblyDirectory,
+            String toolkitStackName,
+            Set<String> stacks,
+            Map<String, String> parameters,
+            Map<String, String> tags,
+            Set<String> notificationArns,
+            Optional<String> profileOpt);
+
+    /**
+     * Deploy the synthesized templates to AWS for all stacks without blocking the calling thread
+     *
+     * @param cloudAssembly Cloud assembly created via app.synth()
+     * @return a future completed once all the stacks are deployed
+     */
+    CompletableFuture<Void> executeAsync(CloudAssembly cloudAssembly);
+
+    /**
+     * Deploy the synthesized templates to AWS without blocking the calling thread
+     *
+     * @param cloudAssembly Cloud assembly created via app.synth()
+     * @param toolkitStackName The name of the CDK toolkit stack.
+     * @param stacks Stacks, for which bootstrapping will be performed if it's required.
+     * @param parameters Input parameters for the stacks. For the new stacks, all the parameters without a default value
+     * must be specified. In the case of an update, existing values will be reused.
+     * @param tags Tags that will be added to the stacks.
+     * @param notificationArns SNS ARNs to publish stack related events.
+     * @param profileOpt Optional AWS account profile name
+     * @return a future completed once all the stacks are deployed
+     */
+    CompletableFuture<Void> executeAsync(
+            CloudAssembly cloudAssembly,
+            String toolkitStackName,
+            Set<String> stacks,
+            Map<String, String> parameters,
+            Map<String, String> tags,
+            Set<String> notificationArns,
+            Optional<String> profileOpt);
 }
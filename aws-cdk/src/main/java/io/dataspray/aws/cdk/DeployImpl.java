@@ -1,5 +1,6 @@
 package io.dataspray.aws.cdk;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -9,9 +10,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awscdk.cxapi.CloudAssembly;
 import software.amazon.awscdk.cxapi.CloudFormationStackArtifact;
+import software.amazon.awssdk.services.cloudformation.model.Stack;
 
+import javax.annotation.Nullable;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
 
 /**
  * Deploys the synthesized templates to the AWS.
@@ -20,21 +28,29 @@ public class DeployImpl implements Deploy {
 
     private static final Logger logger = LoggerFactory.getLogger(DeployImpl.class);
 
+    private final DeployOptions options;
+
+    public DeployImpl() {
+        this(DeployOptions.defaults());
+    }
+
+    public DeployImpl(DeployOptions options) {
+        this.options = Objects.requireNonNull(options, "deploy options can't be null");
+    }
+
     @Override
     public void execute(CloudAssembly cloudAssembly, String toolkitStackName, Set<String> stacks, Map<String, String> parameters, Map<String, String> tags, Set<String> notificationArns, Optional<String> profileOpt) {
-        execute(CloudDefinition.create(cloudAssembly), toolkitStackName, stacks, parameters, tags, notificationArns, profileOpt);
+        MoreFutures.join(executeAsync(cloudAssembly, toolkitStackName, stacks, parameters, tags, notificationArns, profileOpt));
     }
 
     @Override
     public void execute(Path cloudAssemblyDirectory, String toolkitStackName, Set<String> stacks, Map<String, String> parameters, Map<String, String> tags, Set<String> notificationArns, Optional<String> profileOpt) {
-        execute(CloudDefinition.create(cloudAssemblyDirectory), toolkitStackName, stacks, parameters, tags, notificationArns, profileOpt);
+        MoreFutures.join(executeAsync(cloudAssemblyDirectory, toolkitStackName, stacks, parameters, tags, notificationArns, profileOpt));
     }
 
     @Override
     public void execute(CloudAssembly cloudAssembly) {
-        execute(cloudAssembly, AwsCdk.DEFAULT_TOOLKIT_STACK_NAME,
-                ImmutableSet.copyOf(Lists.transform(cloudAssembly.getStacks(), CloudFormationStackArtifact::getStackName)),
-                null, null, ImmutableSet.of(), Optional.empty());
+        MoreFutures.join(executeAsync(cloudAssembly));
     }
 
     @Override
@@ -47,7 +63,24 @@ public class DeployImpl implements Deploy {
         execute(cloudAssembly, AwsCdk.DEFAULT_TOOLKIT_STACK_NAME, stacks, null, null, ImmutableSet.of(), Optional.of(profile));
     }
 
-    private void execute(CloudDefinition cloudDefinition, String toolkitStackName, Set<String> stacks, Map<String, String> parameters, Map<String, String> tags, Set<String> notificationArns, Optional<String> profileOpt) {
+    @Override
+    public CompletableFuture<Void> executeAsync(CloudAssembly cloudAssembly, String toolkitStackName, Set<String> stacks, Map<String, String> parameters, Map<String, String> tags, Set<String> notificationArns, Optional<String> profileOpt) {
+        return executeAsync(CloudDefinition.create(cloudAssembly), toolkitStackName, stacks, parameters, tags, notificationArns, profileOpt);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync(Path cloudAssemblyDirectory, String toolkitStackName, Set<String> stacks, Map<String, String> parameters, Map<String, String> tags, Set<String> notificationArns, Optional<String> profileOpt) {
+        return executeAsync(CloudDefinition.create(cloudAssemblyDirectory), toolkitStackName, stacks, parameters, tags, notificationArns, profileOpt);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync(CloudAssembly cloudAssembly) {
+        return executeAsync(cloudAssembly, AwsCdk.DEFAULT_TOOLKIT_STACK_NAME,
+                ImmutableSet.copyOf(Lists.transform(cloudAssembly.getStacks(), CloudFormationStackArtifact::getStackName)),
+                null, null, ImmutableSet.of(), Optional.empty());
+    }
+
+    private CompletableFuture<Void> executeAsync(CloudDefinition cloudDefinition, String toolkitStackName, Set<String> stacks, Map<String, String> parameters, Map<String, String> tags, Set<String> notificationArns, Optional<String> profileOpt) {
         EnvironmentResolver environmentResolver = EnvironmentResolver.create(profileOpt.orElse(null));
         if (stacks != null && !stacks.isEmpty() && logger.isWarnEnabled()) {
             Set<String> undefinedStacks = new HashSet<>(stacks);
@@ -58,38 +91,318 @@ public class DeployImpl implements Deploy {
             }
         }
 
+        List<StackDefinition> selectedStacks = cloudDefinition.getStacks().stream()
+                .filter(stack -> stacks == null || stacks.isEmpty() || stacks.contains(stack.getStackName()))
+                .collect(Collectors.toList());
+
         ProcessRunner processRunner = new DefaultProcessRunner(cloudDefinition.getCloudAssemblyDirectory().toFile());
-        FileAssetPublisher filePublisher = new FileAssetPublisher();
-        DockerImageAssetPublisher dockerImagePublisher = new DockerImageAssetPublisher(processRunner);
+        FileAssetPublisher filePublisher = new FileAssetPublisher(options);
+        DockerImageAssetPublisher dockerImagePublisher = new DockerImageAssetPublisher(processRunner,
+                options.getExecutorProvider());
         AssetDeployer assetDeployer = new AssetDeployer(
                 cloudDefinition.getCloudAssemblyDirectory(),
-                new FileAssetPublisher(),
-                new DockerImageAssetPublisher(processRunner),
-                environmentResolver);
-        assetDeployer.deploy(cloudDefinition.getImageAssets(), cloudDefinition.getFileAssets());
+                filePublisher,
+                dockerImagePublisher,
+                environmentResolver,
+                new ExecutableAssetGenerator(processRunner, cloudDefinition.getCloudAssemblyDirectory(),
+                        options.getAssetCacheDirectory().orElse(null), options.getAssetCacheMaxSize(),
+                        options.getExecutorProvider(), options.getMaxConcurrentExecutables()),
+                options);
 
+        // Every environment is a separate deployment lane, the stacks of different environments are deployed
+        // concurrently within the account and region limits
         Map<String, StackDeployer> deployers = new HashMap<>();
-        for (StackDefinition stack : cloudDefinition.getStacks()) {
-            if (stacks == null || stacks.isEmpty() || stacks.contains(stack.getStackName())) {
-                StackDeployer deployer = deployers.computeIfAbsent(stack.getEnvironment(), environment -> {
-                    ResolvedEnvironment resolvedEnvironment = environmentResolver.resolve(environment);
-                    ToolkitConfiguration toolkitConfiguration = new ToolkitConfiguration(toolkitStackName);
-                    return new StackDeployer(cloudDefinition.getCloudAssemblyDirectory(), resolvedEnvironment,
-                            toolkitConfiguration, filePublisher, dockerImagePublisher, notificationArns);
+        for (StackDefinition stack : selectedStacks) {
+            deployers.computeIfAbsent(stack.getEnvironment(), environment -> {
+                ResolvedEnvironment resolvedEnvironment = environmentResolver.resolve(environment);
+                ToolkitConfiguration toolkitConfiguration = new ToolkitConfiguration(toolkitStackName);
+                return new StackDeployer(cloudDefinition.getCloudAssemblyDirectory(), resolvedEnvironment,
+                        toolkitConfiguration, filePublisher, dockerImagePublisher, notificationArns,
+                        options.getPollingStrategy(), options.getExecutorProvider());
+            });
+        }
+
+        // The stack scheduler itself isn't bounded, the maximum concurrency applies to every lane separately
+        List<StackScheduler.Limit> limits = new ArrayList<>();
+        limits.add(StackScheduler.Limit.of("environment",
+                stack -> deployers.get(stack.getEnvironment()).getEnvironment().getName(),
+                options.getMaxConcurrency()));
+        options.getMaxConcurrencyPerAccount().ifPresent(maxConcurrency -> limits.add(StackScheduler.Limit.of("account",
+                stack -> deployers.get(stack.getEnvironment()).getEnvironment().getAccount(), maxConcurrency)));
+        options.getMaxConcurrencyPerRegion().ifPresent(maxConcurrency -> limits.add(StackScheduler.Limit.of("region",
+                stack -> deployers.get(stack.getEnvironment()).getEnvironment().getRegion().id(), maxConcurrency)));
+        StackScheduler scheduler = new StackScheduler(Integer.MAX_VALUE, limits);
+
+        Map<String, String> stackParameters = parameters != null ? parameters : ImmutableMap.of();
+        Map<String, String> stackTags = tags != null ? tags : ImmutableMap.of();
+
+        // The fingerprints of the stacks are compared with the fingerprints of the deployed stacks, which are described
+        // with a single paginated call per environment
+        Map<String, String> fingerprints = new HashMap<>();
+        Map<String, CompletableFuture<Optional<Stack>>> upToDateStacks = new HashMap<>();
+        Map<String, CompletableFuture<Map<String, Stack>>> deployedStacks = new HashMap<>();
+        for (StackDefinition stack : selectedStacks) {
+            if (options.isSkipUnchanged() && !stack.getResources().isEmpty()) {
+                String fingerprint = StackFingerprint.compute(stack, stackParameters, stackTags, notificationArns);
+                fingerprints.put(stack.getStackName(), fingerprint);
+                upToDateStacks.put(stack.getStackName(), deployedStacks
+                        .computeIfAbsent(stack.getEnvironment(), environment -> findDeployedStacks(deployers.get(environment)))
+                        .thenApply(environmentStacks -> Optional.ofNullable(environmentStacks.get(stack.getStackName()))
+                                .filter(deployedStack -> StackFingerprint.find(deployedStack).filter(fingerprint::equals).isPresent())));
+            } else {
+                upToDateStacks.put(stack.getStackName(), CompletableFuture.completedFuture(Optional.empty()));
+            }
+        }
+
+        // Every asset is linked to the stacks requiring it and published with the priority of the longest critical path
+        // among them. A stack is deployed as soon as its own assets are published while the rest of the assets are
+        // still being published. The assets required only by the stacks that are up to date are not published at all.
+        Map<String, Integer> criticalPathLengths = StackScheduler.getCriticalPathLengths(selectedStacks);
+        Map<String, List<StackDefinition>> fileAssetStacks = new HashMap<>();
+        Map<String, List<StackDefinition>> imageAssetStacks = new HashMap<>();
+        for (StackDefinition stack : selectedStacks) {
+            cloudDefinition.getFileAssetIds(stack).forEach(assetId -> fileAssetStacks.computeIfAbsent(assetId, id -> new ArrayList<>()).add(stack));
+            cloudDefinition.getImageAssetIds(stack).forEach(assetId -> imageAssetStacks.computeIfAbsent(assetId, id -> new ArrayList<>()).add(stack));
+        }
+
+        // The file uploads and the image builds are queued by the asset deployer, which bounds the number of concurrent
+        // uploads and builds
+        List<AssetTask<?>> assetTasks = new ArrayList<>();
+        Map<String, CompletableFuture<Void>> fileAssetPublications = new HashMap<>();
+        cloudDefinition.getFileAssets().forEach((assetId, asset) -> {
+            AssetTask<Void> task = new AssetTask<>(fileAssetStacks.getOrDefault(assetId, ImmutableList.of()), criticalPathLengths,
+                    priority -> assetDeployer.deployFileAssetAsync(assetId, asset, priority), null);
+            assetTasks.add(task);
+            fileAssetPublications.put(assetId, task.result);
+        });
+        Map<String, CompletableFuture<Void>> imageAssetPublications = new HashMap<>();
+        cloudDefinition.getImageAssets().forEach((assetId, asset) -> {
+            AssetTask<Void> task = new AssetTask<>(imageAssetStacks.getOrDefault(assetId, ImmutableList.of()), criticalPathLengths,
+                    priority -> assetDeployer.deployImageAssetAsync(assetId, asset, priority), null);
+            assetTasks.add(task);
+            imageAssetPublications.put(assetId, task.result);
+        });
+
+        Map<String, CompletableFuture<Map<String, ParameterValue>>> stackAssets = new HashMap<>();
+        for (StackDefinition stack : selectedStacks) {
+            StackDeployer deployer = deployers.get(stack.getEnvironment());
+            AssetTask<Map<String, ParameterValue>> task = new AssetTask<>(ImmutableList.of(stack), criticalPathLengths,
+                    priority -> (stack.getFileAssets().isEmpty()
+                            ? CompletableFuture.<Toolkit>completedFuture(null)
+                            : deployer.getToolkitAsync(stack))
+                            .thenCompose(toolkit -> assetDeployer.deployAsync(
+                                    stack,
+                                    cloudDefinition.getCloudAssemblyDirectory(),
+                                    deployer.getEnvironment(),
+                                    toolkit,
+                                    priority)), ImmutableMap.of());
+            assetTasks.add(task);
+
+            List<CompletableFuture<Void>> publications = new ArrayList<>();
+            cloudDefinition.getFileAssetIds(stack).forEach(assetId -> publications.add(fileAssetPublications.get(assetId)));
+            cloudDefinition.getImageAssetIds(stack).forEach(assetId -> publications.add(imageAssetPublications.get(assetId)));
+            publications.removeIf(Objects::isNull);
+            stackAssets.put(stack.getStackName(), CompletableFuture.allOf(publications.toArray(new CompletableFuture[0]))
+                    .thenCompose(ignored -> task.result));
+        }
+
+        CompletableFuture<Void> assetPublication = CompletableFuture
+                .allOf(upToDateStacks.values().toArray(new CompletableFuture[0]))
+                .thenRun(() -> assetTasks.stream()
+                        .sorted(Comparator.comparingInt((AssetTask<?> task) -> task.priority).reversed())
+                        .forEach(task -> {
+                            boolean required = task.stacks.isEmpty() || task.stacks.stream()
+                                    .anyMatch(stack -> !upToDateStacks.get(stack.getStackName()).join().isPresent());
+                            if (required) {
+                                task.submit();
+                            } else {
+                                task.skip();
+                            }
+                        }))
+                .thenCompose(ignored -> CompletableFuture.allOf(assetTasks.stream()
+                        .map(task -> task.result)
+                        .toArray(CompletableFuture[]::new)));
+
+        CompletableFuture<Void> deployment;
+        if (options.isChangeSetMode()) {
+            deployment = deployChangeSets(selectedStacks, deployers, scheduler, assetDeployer::cancel, stackAssets,
+                    stackParameters, stackTags, fingerprints, upToDateStacks);
+        } else {
+            deployment = scheduler
+                    .schedule(selectedStacks, stack -> {
+                        StackDeployer deployer = deployers.get(stack.getEnvironment());
+                        return upToDateStacks.get(stack.getStackName()).thenCompose(upToDateStack -> {
+                            if (upToDateStack.isPresent()) {
+                                logger.info("The stack '{}' hasn't changed since the last deployment. The deployment " +
+                                        "will be skipped", stack.getStackName());
+                                return CompletableFuture.completedFuture(null);
+                            }
+                            return stackAssets.get(stack.getStackName()).thenCompose(assetParameters -> {
+                                if (!stack.getResources().isEmpty()) {
+                                    return deployer.deployAsync(stack, assetParameters, stackParameters, stackTags,
+                                            fingerprints.get(stack.getStackName())).thenAccept(deployedStack -> {});
+                                }
+                                return deployer.destroyAsync(stack).thenAccept(destroyedStack -> {});
+                            });
+                        });
+                    })
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            assetDeployer.cancel();
+                        }
+                    });
+        }
+
+        // The deployment is completed once all the assets are published, including those not required by any stack
+        return deployment
+                .handle((result, e) -> assetPublication.handle((assetResult, assetError) -> {
+                    if (e != null || assetError != null) {
+                        throw new CompletionException(MoreFutures.unwrap(e != null ? e : assetError));
+                    }
+                    return assetResult;
+                }))
+                .thenCompose(future -> future)
+                .whenComplete((result, e) -> {
+                    filePublisher.reportTransferSummary();
+                    filePublisher.close();
+                    dockerImagePublisher.close();
                 });
+    }
+
+    private CompletableFuture<Map<String, Stack>> findDeployedStacks(StackDeployer deployer) {
+        return deployer.findDeployedStacks().exceptionally(e -> {
+            logger.warn("Unable to describe the deployed stacks, the stacks will be deployed regardless of their " +
+                    "fingerprints: {}", MoreFutures.unwrap(e).getMessage());
+            return ImmutableMap.of();
+        });
+    }
+
+    /**
+     * Creates the change sets of all the stacks concurrently, so that CloudFormation computes the changes in parallel,
+     * and then executes the non-empty change sets in the dependency order. If the deployment fails, the change sets
+     * that haven't been executed are deleted.
+     */
+    private CompletableFuture<Void> deployChangeSets(List<StackDefinition> stacks,
+                                                     Map<String, StackDeployer> deployers,
+                                                     StackScheduler scheduler,
+                                                     Runnable assetCancellation,
+                                                     Map<String, CompletableFuture<Map<String, ParameterValue>>> stackAssets,
+                                                     Map<String, String> parameters,
+                                                     Map<String, String> tags,
+                                                     Map<String, String> fingerprints,
+                                                     Map<String, CompletableFuture<Optional<Stack>>> upToDateStacks) {
+        Set<String> stackNames = stacks.stream().map(StackDefinition::getStackName).collect(Collectors.toSet());
+        Map<String, CompletableFuture<ChangeSet>> changeSets = new HashMap<>();
+        for (StackDefinition stack : stacks) {
+            if (!stack.getResources().isEmpty()) {
+                StackDeployer deployer = deployers.get(stack.getEnvironment());
+                String fingerprint = fingerprints.get(stack.getStackName());
+                changeSets.put(stack.getStackName(), upToDateStacks.get(stack.getStackName()).thenCompose(upToDateStack -> {
+                    if (upToDateStack.isPresent()) {
+                        logger.info("The stack '{}' hasn't changed since the last deployment. The deployment will be " +
+                                "skipped", stack.getStackName());
+                        return CompletableFuture.completedFuture(ChangeSet.empty(stack.getStackName(), upToDateStack.get()));
+                    }
+                    return stackAssets.get(stack.getStackName())
+                            .thenCompose(assetParameters -> deployer.createChangeSetAsync(stack, assetParameters, parameters, tags, fingerprint));
+                }));
+            }
+        }
+
+        Set<String> executedChangeSets = ConcurrentHashMap.newKeySet();
+        return scheduler
+                .schedule(stacks, stack -> {
+                    StackDeployer deployer = deployers.get(stack.getEnvironment());
+                    if (stack.getResources().isEmpty()) {
+                        return stackAssets.get(stack.getStackName())
+                                .thenCompose(assetParameters -> deployer.destroyAsync(stack))
+                                .thenAccept(destroyedStack -> {});
+                    }
+                    return changeSets.get(stack.getStackName())
+                            .handle((changeSet, e) -> {
+                                if (e == null) {
+                                    return CompletableFuture.completedFuture(changeSet);
+                                }
+                                // The change set may refer to the exports of the stacks that have just been deployed,
+                                // so it's created once again if any of the stack dependencies has been deployed
+                                CompletableFuture<Map<String, ParameterValue>> stackAssetParameters = stackAssets.get(stack.getStackName());
+                                boolean dependent = stack.getDependencies().stream().anyMatch(stackNames::contains);
+                                if (stackAssetParameters.isCompletedExceptionally() || !dependent) {
+                                    return MoreFutures.<ChangeSet>failed(MoreFutures.unwrap(e));
+                                }
+                                logger.warn("Unable to create the change set of '{}' stack before its dependencies " +
+                                        "are deployed, retrying: {}", stack.getStackName(), MoreFutures.unwrap(e).getMessage());
+                                return stackAssetParameters.thenCompose(p -> deployer.createChangeSetAsync(stack, p,
+                                        parameters, tags, fingerprints.get(stack.getStackName())));
+                            })
+                            .thenCompose(changeSet -> changeSet)
+                            .thenCompose(changeSet -> {
+                                executedChangeSets.add(stack.getStackName());
+                                return deployer.executeChangeSetAsync(changeSet);
+                            })
+                            .thenAccept(deployedStack -> {});
+                })
+                .handle((result, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    assetCancellation.run();
+                    List<CompletableFuture<Void>> discards = new ArrayList<>();
+                    for (StackDefinition stack : stacks) {
+                        CompletableFuture<ChangeSet> changeSet = changeSets.get(stack.getStackName());
+                        if (changeSet != null && !executedChangeSets.contains(stack.getStackName())) {
+                            StackDeployer deployer = deployers.get(stack.getEnvironment());
+                            discards.add(changeSet
+                                    .thenCompose(deployer::discardChangeSetAsync)
+                                    .exceptionally(discardError -> {
+                                        logger.debug("Unable to delete the change set of '{}' stack", stack.getStackName(), discardError);
+                                        return null;
+                                    }));
+                        }
+                    }
+                    return CompletableFuture.allOf(discards.toArray(new CompletableFuture[0]))
+                            .thenCompose(ignored -> MoreFutures.<Void>failed(MoreFutures.unwrap(e)));
+                })
+                .thenCompose(future -> future);
+    }
 
-                Map<String, ParameterValue> assetParameters = assetDeployer.deploy(
-                        stack,
-                        cloudDefinition.getCloudAssemblyDirectory(),
-                        deployer.getEnvironment(),
-                        deployer.getToolkitConfiguration());
+    /**
+     * Publishes the assets required by the given stacks.
+     */
+    private static class AssetTask<T> {
 
-                if (!stack.getResources().isEmpty()) {
-                    deployer.deploy(stack, assetParameters, parameters != null ? parameters : ImmutableMap.of(), tags != null ? tags : ImmutableMap.of());
+        private final List<StackDefinition> stacks;
+        private final int priority;
+        private final IntFunction<CompletableFuture<T>> publication;
+        private final T skippedResult;
+        private final CompletableFuture<T> result;
+
+        private AssetTask(List<StackDefinition> stacks,
+                          Map<String, Integer> criticalPathLengths,
+                          IntFunction<CompletableFuture<T>> publication,
+                          @Nullable T skippedResult) {
+            this.stacks = stacks;
+            this.priority = stacks.stream()
+                    .mapToInt(stack -> criticalPathLengths.getOrDefault(stack.getStackName(), 0))
+                    .max()
+                    .orElse(0);
+            this.publication = publication;
+            this.skippedResult = skippedResult;
+            this.result = new CompletableFuture<>();
+        }
+
+        private void submit() {
+            publication.apply(priority).whenComplete((value, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(MoreFutures.unwrap(e));
                 } else {
-                    deployer.destroy(stack);
+                    result.complete(value);
                 }
-            }
+            });
+        }
+
+        private void skip() {
+            result.complete(skippedResult);
         }
     }
 }
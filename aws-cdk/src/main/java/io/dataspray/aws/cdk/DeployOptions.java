@@ -0,0 +1,419 @@
+package io.dataspray.aws.cdk;
+
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Represents deployment settings that are not specific to a cloud assembly.
+ */
+public class DeployOptions {
+
+    /**
+     * By default, the stacks of every environment are deployed one by one.
+     */
+    public static final int DEFAULT_MAX_CONCURRENCY = 1;
+
+    /**
+     * By default, up to four file assets are uploaded at the same time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_UPLOADS = 4;
+
+    /**
+     * By default, up to two executables producing file assets are run at the same time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_EXECUTABLES = 2;
+
+    /**
+     * By default, up to two images are built and pushed at the same time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_IMAGE_BUILDS = 2;
+
+    /**
+     * By default, the asset cache is limited to 2 GB.
+     */
+    public static final long DEFAULT_ASSET_CACHE_MAX_SIZE = 2L * 1024 * 1024 * 1024;
+
+    private final int maxConcurrency;
+    private final Integer maxConcurrencyPerAccount;
+    private final Integer maxConcurrencyPerRegion;
+    private final PollingStrategy pollingStrategy;
+    private final ExecutorProvider executorProvider;
+    private final boolean changeSetMode;
+    private final boolean skipUnchanged;
+    private final int maxConcurrentUploads;
+    private final int maxConcurrentExecutables;
+    private final int maxConcurrentImageBuilds;
+    private final Path assetCacheDirectory;
+    private final long assetCacheMaxSize;
+    private final AssetTransferListener assetTransferListener;
+    private final boolean buildx;
+    private final ImageBuildCache imageBuildCache;
+    private final boolean daemonlessImagePush;
+
+    private DeployOptions(int maxConcurrency,
+                          @Nullable Integer maxConcurrencyPerAccount,
+                          @Nullable Integer maxConcurrencyPerRegion,
+                          PollingStrategy pollingStrategy,
+                          ExecutorProvider executorProvider,
+                          boolean changeSetMode,
+                          boolean skipUnchanged,
+                          int maxConcurrentUploads,
+                          int maxConcurrentExecutables,
+                          int maxConcurrentImageBuilds,
+                          @Nullable Path assetCacheDirectory,
+                          long assetCacheMaxSize,
+                          @Nullable AssetTransferListener assetTransferListener,
+                          boolean buildx,
+                          @Nullable ImageBuildCache imageBuildCache,
+                          boolean daemonlessImagePush) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("The maximum concurrency must be greater than zero");
+        }
+        if (maxConcurrencyPerAccount != null && maxConcurrencyPerAccount < 1) {
+            throw new IllegalArgumentException("The maximum concurrency per account must be greater than zero");
+        }
+        if (maxConcurrencyPerRegion != null && maxConcurrencyPerRegion < 1) {
+            throw new IllegalArgumentException("The maximum concurrency per region must be greater than zero");
+        }
+        if (maxConcurrentUploads < 1) {
+            throw new IllegalArgumentException("The maximum number of concurrent uploads must be greater than zero");
+        }
+        if (maxConcurrentExecutables < 1) {
+            throw new IllegalArgumentException("The maximum number of concurrent executables must be greater than zero");
+        }
+        if (maxConcurrentImageBuilds < 1) {
+            throw new IllegalArgumentException("The maximum number of concurrent image builds must be greater than zero");
+        }
+        if (assetCacheMaxSize < 1) {
+            throw new IllegalArgumentException("The maximum size of the asset cache must be greater than zero");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.maxConcurrencyPerAccount = maxConcurrencyPerAccount;
+        this.maxConcurrencyPerRegion = maxConcurrencyPerRegion;
+        this.pollingStrategy = Objects.requireNonNull(pollingStrategy, "polling strategy can't be null");
+        this.executorProvider = Objects.requireNonNull(executorProvider, "executor provider can't be null");
+        this.changeSetMode = changeSetMode;
+        this.skipUnchanged = skipUnchanged;
+        this.maxConcurrentUploads = maxConcurrentUploads;
+        this.maxConcurrentExecutables = maxConcurrentExecutables;
+        this.maxConcurrentImageBuilds = maxConcurrentImageBuilds;
+        this.assetCacheDirectory = assetCacheDirectory;
+        this.assetCacheMaxSize = assetCacheMaxSize;
+        this.assetTransferListener = assetTransferListener;
+        this.buildx = buildx;
+        this.imageBuildCache = imageBuildCache;
+        this.daemonlessImagePush = daemonlessImagePush;
+    }
+
+    /**
+     * Returns the maximum number of stacks deployed at the same time to the same environment (account and region).
+     * The environments are deployed independently of each other within the account and region limits. A stack is
+     * deployed as soon as all the stacks it depends on are deployed.
+     *
+     * @return the maximum number of concurrent stack deployments per environment
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the maximum number of stacks deployed at the same time to the same account (across all the regions).
+     *
+     * @return the maximum number of concurrent stack deployments per account or empty if there is no limit
+     */
+    public Optional<Integer> getMaxConcurrencyPerAccount() {
+        return Optional.ofNullable(maxConcurrencyPerAccount);
+    }
+
+    /**
+     * Returns the maximum number of stacks deployed at the same time to the same region (across all the accounts).
+     *
+     * @return the maximum number of concurrent stack deployments per region or empty if there is no limit
+     */
+    public Optional<Integer> getMaxConcurrencyPerRegion() {
+        return Optional.ofNullable(maxConcurrencyPerRegion);
+    }
+
+    /**
+     * Returns the strategy determining how often the status of the stacks is checked during the deployment.
+     *
+     * @return the polling strategy
+     */
+    public PollingStrategy getPollingStrategy() {
+        return pollingStrategy;
+    }
+
+    /**
+     * Returns the provider of the threads used for the blocking work and for scheduling the stack status checks.
+     *
+     * @return the executor provider
+     */
+    public ExecutorProvider getExecutorProvider() {
+        return executorProvider;
+    }
+
+    /**
+     * Returns whether the stacks are deployed by means of change sets. In this mode, the change sets of all the stacks
+     * are created concurrently up front and then executed in the dependency order. The stacks with empty change sets
+     * are not touched.
+     *
+     * @return {@code true} if the change set mode is enabled
+     */
+    public boolean isChangeSetMode() {
+        return changeSetMode;
+    }
+
+    /**
+     * Returns whether the stacks that haven't changed since the last deployment are skipped. A fingerprint of the
+     * template, the parameters, the tags and the assets of every stack is stored as a stack output and compared with
+     * the fingerprint of the stack being deployed.
+     *
+     * @return {@code true} if the unchanged stacks are skipped
+     */
+    public boolean isSkipUnchanged() {
+        return skipUnchanged;
+    }
+
+    /**
+     * Returns the maximum number of file assets packaged and uploaded at the same time. The uploads required by the
+     * stacks on the longest dependency chains are started first.
+     *
+     * @return the maximum number of concurrent file asset uploads
+     */
+    public int getMaxConcurrentUploads() {
+        return maxConcurrentUploads;
+    }
+
+    /**
+     * Returns the maximum number of executables producing file assets that are run at the same time.
+     *
+     * @return the maximum number of concurrent executables
+     */
+    public int getMaxConcurrentExecutables() {
+        return maxConcurrentExecutables;
+    }
+
+    /**
+     * Returns the maximum number of Docker images built and pushed at the same time. The output of every build is
+     * logged prefixed with the id of its asset.
+     *
+     * @return the maximum number of concurrent image builds
+     */
+    public int getMaxConcurrentImageBuilds() {
+        return maxConcurrentImageBuilds;
+    }
+
+    /**
+     * Returns the directory where the zipped directory assets and the files produced by executables are cached by the
+     * hashes of their sources. A cached artifact is uploaded as is instead of zipping the directory or running the
+     * executable again.
+     *
+     * @return the directory of the asset cache or empty if the assets are not cached
+     */
+    public Optional<Path> getAssetCacheDirectory() {
+        return Optional.ofNullable(assetCacheDirectory);
+    }
+
+    /**
+     * Returns the maximum size of the asset cache. The least recently used archives are evicted once the cache exceeds
+     * the size.
+     *
+     * @return the maximum size of the asset cache in bytes
+     */
+    public long getAssetCacheMaxSize() {
+        return assetCacheMaxSize;
+    }
+
+    /**
+     * Returns the listener receiving the statistics of the asset uploads: the bytes transferred, the duration and the
+     * throughput of every upload as well as the totals of the deployment.
+     *
+     * @return the listener or empty if the statistics are only logged
+     */
+    public Optional<AssetTransferListener> getAssetTransferListener() {
+        return Optional.ofNullable(assetTransferListener);
+    }
+
+    /**
+     * Returns whether the Docker images are built with BuildKit by means of {@code docker buildx build}. The buildx
+     * mode is always enabled if the image build cache is configured or the images are pushed without the Docker daemon.
+     *
+     * @return {@code true} if the images are built with buildx
+     */
+    public boolean isBuildx() {
+        return buildx || imageBuildCache != null || daemonlessImagePush;
+    }
+
+    /**
+     * Returns the cache the layers of the Docker images are imported from before the build and exported to after the
+     * build. The entry of an image in the cache is keyed by its repository and its Dockerfile rather than by the
+     * content of the image, so that the unchanged layers are reused by the builds running on fresh machines, e.g.
+     * ephemeral CI runners.
+     *
+     * @return the image build cache or empty if the builds aren't cached
+     */
+    public Optional<ImageBuildCache> getImageBuildCache() {
+        return Optional.ofNullable(imageBuildCache);
+    }
+
+    /**
+     * Returns whether the Docker images are pushed by means of the registry API instead of the Docker daemon. The
+     * images are exported by buildx in the OCI image layout, the blobs missing in the repository are uploaded
+     * concurrently and the blobs of the repositories pushed to during the same deployment are mounted instead of being
+     * uploaded.
+     *
+     * @return {@code true} if the images are pushed without the Docker daemon
+     */
+    public boolean isDaemonlessImagePush() {
+        return daemonlessImagePush;
+    }
+
+    @Override
+    public String toString() {
+        return "DeployOptions{" +
+                "maxConcurrency=" + maxConcurrency +
+                ", maxConcurrencyPerAccount=" + maxConcurrencyPerAccount +
+                ", maxConcurrencyPerRegion=" + maxConcurrencyPerRegion +
+                ", pollingStrategy=" + pollingStrategy +
+                ", executorProvider=" + executorProvider +
+                ", changeSetMode=" + changeSetMode +
+                ", skipUnchanged=" + skipUnchanged +
+                ", maxConcurrentUploads=" + maxConcurrentUploads +
+                ", maxConcurrentExecutables=" + maxConcurrentExecutables +
+                ", maxConcurrentImageBuilds=" + maxConcurrentImageBuilds +
+                ", assetCacheDirectory=" + assetCacheDirectory +
+                ", assetCacheMaxSize=" + assetCacheMaxSize +
+                ", assetTransferListener=" + assetTransferListener +
+                ", buildx=" + buildx +
+                ", imageBuildCache=" + imageBuildCache +
+                ", daemonlessImagePush=" + daemonlessImagePush +
+                '}';
+    }
+
+    public static DeployOptions defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private int maxConcurrency;
+        private Integer maxConcurrencyPerAccount;
+        private Integer maxConcurrencyPerRegion;
+        private PollingStrategy pollingStrategy;
+        private ExecutorProvider executorProvider;
+        private boolean changeSetMode;
+        private boolean skipUnchanged;
+        private int maxConcurrentUploads;
+        private int maxConcurrentExecutables;
+        private int maxConcurrentImageBuilds;
+        private Path assetCacheDirectory;
+        private long assetCacheMaxSize;
+        private AssetTransferListener assetTransferListener;
+        private boolean buildx;
+        private ImageBuildCache imageBuildCache;
+        private boolean daemonlessImagePush;
+
+        private Builder() {
+            this.maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+            this.maxConcurrentUploads = DEFAULT_MAX_CONCURRENT_UPLOADS;
+            this.maxConcurrentExecutables = DEFAULT_MAX_CONCURRENT_EXECUTABLES;
+            this.maxConcurrentImageBuilds = DEFAULT_MAX_CONCURRENT_IMAGE_BUILDS;
+            this.assetCacheMaxSize = DEFAULT_ASSET_CACHE_MAX_SIZE;
+            this.pollingStrategy = PollingStrategy.defaultStrategy();
+            this.executorProvider = ExecutorProvider.defaultProvider();
+        }
+
+        public Builder withMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder withMaxConcurrencyPerAccount(@Nullable Integer maxConcurrencyPerAccount) {
+            this.maxConcurrencyPerAccount = maxConcurrencyPerAccount;
+            return this;
+        }
+
+        public Builder withMaxConcurrencyPerRegion(@Nullable Integer maxConcurrencyPerRegion) {
+            this.maxConcurrencyPerRegion = maxConcurrencyPerRegion;
+            return this;
+        }
+
+        public Builder withPollingStrategy(PollingStrategy pollingStrategy) {
+            this.pollingStrategy = pollingStrategy;
+            return this;
+        }
+
+        public Builder withExecutorProvider(ExecutorProvider executorProvider) {
+            this.executorProvider = executorProvider;
+            return this;
+        }
+
+        public Builder withChangeSetMode(boolean changeSetMode) {
+            this.changeSetMode = changeSetMode;
+            return this;
+        }
+
+        public Builder withSkipUnchanged(boolean skipUnchanged) {
+            this.skipUnchanged = skipUnchanged;
+            return this;
+        }
+
+        public Builder withMaxConcurrentUploads(int maxConcurrentUploads) {
+            this.maxConcurrentUploads = maxConcurrentUploads;
+            return this;
+        }
+
+        public Builder withMaxConcurrentExecutables(int maxConcurrentExecutables) {
+            this.maxConcurrentExecutables = maxConcurrentExecutables;
+            return this;
+        }
+
+        public Builder withMaxConcurrentImageBuilds(int maxConcurrentImageBuilds) {
+            this.maxConcurrentImageBuilds = maxConcurrentImageBuilds;
+            return this;
+        }
+
+        public Builder withAssetCacheDirectory(@Nullable Path assetCacheDirectory) {
+            this.assetCacheDirectory = assetCacheDirectory;
+            return this;
+        }
+
+        public Builder withAssetCacheMaxSize(long assetCacheMaxSize) {
+            this.assetCacheMaxSize = assetCacheMaxSize;
+            return this;
+        }
+
+        public Builder withAssetTransferListener(@Nullable AssetTransferListener assetTransferListener) {
+            this.assetTransferListener = assetTransferListener;
+            return this;
+        }
+
+        public Builder withBuildx(boolean buildx) {
+            this.buildx = buildx;
+            return this;
+        }
+
+        public Builder withImageBuildCache(@Nullable ImageBuildCache imageBuildCache) {
+            this.imageBuildCache = imageBuildCache;
+            return this;
+        }
+
+        public Builder withDaemonlessImagePush(boolean daemonlessImagePush) {
+            this.daemonlessImagePush = daemonlessImagePush;
+            return this;
+        }
+
+        public DeployOptions build() {
+            return new DeployOptions(maxConcurrency, maxConcurrencyPerAccount, maxConcurrencyPerRegion, pollingStrategy,
+                    executorProvider, changeSetMode, skipUnchanged, maxConcurrentUploads, maxConcurrentExecutables,
+                    maxConcurrentImageBuilds, assetCacheDirectory, assetCacheMaxSize, assetTransferListener, buildx,
+                    imageBuildCache, daemonlessImagePush);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import software.amazon.awscdk.cxapi.CloudAssembly;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public interface Destroy {
 
@@ -59,4 +60,38 @@ public interface Destroy {
             CloudAssembly cloudAssembly,
             Set<String> stacks,
             Optional<String> profileOpt);
+
+    /**
+     * Destroys CDK stack(s) without blocking the calling thread
+     *
+     * @param cloudAssemblyDirectory Directory of synthesized stack(s)
+     * @param stacks Stacks, for which bootstrapping will be performed if it's required.
+     * @param profileOpt Optional AWS account profile name
+     * @return a future completed once all the stacks are destroyed
+     */
+    CompletableFuture<Void> executeAsync(
+            Path cloudAssemblyDirectory,
+            Set<String> stacks,
+            Optional<String> profileOpt);
+
+    /**
+     * Destroys CDK stack(s) for all stacks defined in cloud assembly without blocking the calling thread
+     *
+     * @param cloudAssembly Cloud assembly created via app.synth()
+     * @return a future completed once all the stacks are destroyed
+     */
+    CompletableFuture<Void> executeAsync(CloudAssembly cloudAssembly);
+
+    /**
+     * Destroys CDK stack(s) without blocking the calling thread
+     *
+     * @param cloudAssembly Cloud assembly created via app.synth()
+     * @param stacks Stacks, for which bootstrapping will be performed if it's required.
+     * @param profileOpt Optional AWS account profile name
+     * @return a future completed once all the stacks are destroyed
+     */
+    CompletableFuture<Void> executeAsync(
+            CloudAssembly cloudAssembly,
+            Set<String> stacks,
+            Optional<String> profileOpt);
 }
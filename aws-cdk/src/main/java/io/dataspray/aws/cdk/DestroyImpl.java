@@ -6,29 +6,37 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awscdk.cxapi.CloudAssembly;
 import software.amazon.awscdk.cxapi.CloudFormationStackArtifact;
-import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
 import software.amazon.awssdk.services.cloudformation.model.Stack;
 import software.amazon.awssdk.services.cloudformation.model.StackStatus;
 
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.IntStream;
+import java.util.concurrent.CompletableFuture;
 
 public class DestroyImpl implements Destroy {
 
     private static final Logger logger = LoggerFactory.getLogger(DestroyImpl.class);
 
+    private final DestroyOptions options;
+
+    public DestroyImpl() {
+        this(DestroyOptions.defaults());
+    }
+
+    public DestroyImpl(DestroyOptions options) {
+        this.options = Objects.requireNonNull(options, "destroy options can't be null");
+    }
+
     @Override
     public void execute(Path cloudAssemblyDirectory, Set<String> stacks, Optional<String> profileOpt) {
-        execute(CloudDefinition.create(cloudAssemblyDirectory), stacks, profileOpt);
+        MoreFutures.join(executeAsync(cloudAssemblyDirectory, stacks, profileOpt));
     }
 
     @Override
     public void execute(CloudAssembly cloudAssembly) {
-        execute(cloudAssembly,
-                ImmutableSet.copyOf(Lists.transform(cloudAssembly.getStacks(), CloudFormationStackArtifact::getStackName)),
-                Optional.empty());
+        MoreFutures.join(executeAsync(cloudAssembly));
     }
 
     @Override
@@ -43,10 +51,27 @@ public class DestroyImpl implements Destroy {
 
     @Override
     public void execute(CloudAssembly cloudAssembly, Set<String> stacks, Optional<String> profileOpt) {
-        execute(CloudDefinition.create(cloudAssembly), stacks, profileOpt);
+        MoreFutures.join(executeAsync(cloudAssembly, stacks, profileOpt));
     }
 
-    private void execute(CloudDefinition cloudDefinition, Set<String> stacks, Optional<String> profileOpt) {
+    @Override
+    public CompletableFuture<Void> executeAsync(Path cloudAssemblyDirectory, Set<String> stacks, Optional<String> profileOpt) {
+        return executeAsync(CloudDefinition.create(cloudAssemblyDirectory), stacks, profileOpt);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync(CloudAssembly cloudAssembly) {
+        return executeAsync(cloudAssembly,
+                ImmutableSet.copyOf(Lists.transform(cloudAssembly.getStacks(), CloudFormationStackArtifact::getStackName)),
+                Optional.empty());
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync(CloudAssembly cloudAssembly, Set<String> stacks, Optional<String> profileOpt) {
+        return executeAsync(CloudDefinition.create(cloudAssembly), stacks, profileOpt);
+    }
+
+    private CompletableFuture<Void> executeAsync(CloudDefinition cloudDefinition, Set<String> stacks, Optional<String> profileOpt) {
         EnvironmentResolver environmentResolver = EnvironmentResolver.create(profileOpt.orElse(null));
         if (stacks != null && !stacks.isEmpty() && logger.isWarnEnabled()) {
             Set<String> undefinedStacks = new HashSet<>(stacks);
@@ -57,39 +82,47 @@ public class DestroyImpl implements Destroy {
             }
         }
 
-        Map<String, CloudFormationClient> clients = new HashMap<>();
-        IntStream.range(0, cloudDefinition.getStacks().size())
-                .map(i -> cloudDefinition.getStacks().size() - 1 - i)
-                .mapToObj(cloudDefinition.getStacks()::get)
-                .filter(stack -> stacks == null || stacks.isEmpty() || stacks.contains(stack.getStackName()))
-                .forEach(stack -> {
-                    CloudFormationClient client = clients.computeIfAbsent(stack.getEnvironment(), environment -> {
-                        ResolvedEnvironment resolvedEnvironment = environmentResolver.resolve(environment);
-                        return CloudFormationClientProvider.get(resolvedEnvironment);
-                    });
-
-                    destroy(client, stack);
+        // The stacks are deleted one by one in the reverse order of their deployment
+        Map<String, CloudFormationAsyncClient> clients = new HashMap<>();
+        CompletableFuture<Void> result = CompletableFuture.completedFuture(null);
+        for (StackDefinition stack : Lists.reverse(cloudDefinition.getStacks())) {
+            if (stacks == null || stacks.isEmpty() || stacks.contains(stack.getStackName())) {
+                CloudFormationAsyncClient client = clients.computeIfAbsent(stack.getEnvironment(), environment -> {
+                    ResolvedEnvironment resolvedEnvironment = environmentResolver.resolve(environment);
+                    return CloudFormationClientProvider.getAsync(resolvedEnvironment);
                 });
 
+                result = result.thenCompose(ignored -> destroy(client, stack));
+            }
+        }
+        return result;
     }
 
-    private void destroy(CloudFormationClient client, StackDefinition stackDefinition) {
-        Stack stack = Stacks.findStack(client, stackDefinition.getStackName())
-                .filter(s -> s.stackStatus() != StackStatus.DELETE_COMPLETE)
-                .orElse(null);
-        if (stack != null) {
-            Instant startTime = Instant.now();
-            stack = Stacks.deleteStack(client, stack.stackName());
-            logger.info("The stack '{}' is being deleted, waiting until the operation is completed", stack.stackName());
-            if (logger.isInfoEnabled()) {
-                stack = Stacks.awaitCompletion(client, stack, new LoggingStackEventListener(startTime));
-            } else {
-                stack = Stacks.awaitCompletion(client, stack);
-            }
-            if (stack.stackStatus() != StackStatus.DELETE_COMPLETE) {
-                throw new CdkException("The deletion of '" + stack.stackName() + "' has failed.");
+    private CompletableFuture<Void> destroy(CloudFormationAsyncClient client, StackDefinition stackDefinition) {
+        return Stacks.findStack(client, stackDefinition.getStackName()).thenCompose(deployedStack -> {
+            Stack stack = deployedStack
+                    .filter(s -> s.stackStatus() != StackStatus.DELETE_COMPLETE)
+                    .orElse(null);
+            if (stack == null) {
+                return CompletableFuture.completedFuture(null);
             }
-            logger.info("The stack '{}' has been successfully deleted", stack.stackName());
-        }
+            Instant startTime = Instant.now();
+            return Stacks.deleteStack(client, stack.stackName())
+                    .thenCompose(deletedStack -> {
+                        logger.info("The stack '{}' is being deleted, waiting until the operation is completed", deletedStack.stackName());
+                        if (logger.isInfoEnabled()) {
+                            return Stacks.awaitCompletion(client, deletedStack, new LoggingStackEventListener(startTime), startTime,
+                                    options.getPollingStrategy(), options.getExecutorProvider());
+                        }
+                        return Stacks.awaitCompletion(client, deletedStack, null, null, options.getPollingStrategy(),
+                                options.getExecutorProvider());
+                    })
+                    .thenAccept(deletedStack -> {
+                        if (deletedStack.stackStatus() != StackStatus.DELETE_COMPLETE) {
+                            throw new CdkException("The deletion of '" + deletedStack.stackName() + "' has failed.");
+                        }
+                        logger.info("The stack '{}' has been successfully deleted", deletedStack.stackName());
+                    });
+        });
     }
 }
@@ -1,25 +1,92 @@
 package io.dataspray.aws.cdk;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.dataspray.aws.cdk.process.LineOutputStream;
+import io.dataspray.aws.cdk.process.ProcessContext;
 import io.dataspray.aws.cdk.process.ProcessExecutionException;
 import io.dataspray.aws.cdk.process.ProcessRunner;
+import io.dataspray.aws.cdk.registry.OciImageLayout;
+import io.dataspray.aws.cdk.registry.RegistryImagePusher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.services.ecr.EcrClient;
 import software.amazon.awssdk.services.ecr.model.*;
 
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class DockerImageAssetPublisher {
+/**
+ * Builds Docker images and publishes them to ECR. A separate ECR client is used for every environment, the clients are
+ * closed along with the publisher.
+ *
+ * <p>The ECR authorization tokens are valid for 12 hours and are issued per registry (i.e. per account and region),
+ * hence Docker is logged in to every registry once and the login is reused until shortly before the token expires. The
+ * logins are kept as long as the publisher, so a publisher reused by a long-running process logs in once per token.</p>
+ *
+ * <p>The images can be built with BuildKit by means of {@code docker buildx build} importing the layers from a
+ * persistent build cache and exporting them back once the build is done, so that the unchanged layers are reused by
+ * the builds running on fresh machines.</p>
+ *
+ * <p>The images stored in the OCI image layout can be pushed without a Docker daemon by means of the registry API. The
+ * blobs that already exist in the repositories the publisher has pushed to are mounted instead of being uploaded.</p>
+ */
+public class DockerImageAssetPublisher implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(DockerImageAssetPublisher.class);
 
-    private final ProcessRunner processRunner;
+    /**
+     * The login is renewed this long before the authorization token expires, so that a push started with the token
+     * doesn't outlive it.
+     */
+    private static final Duration LOGIN_RENEWAL_MARGIN = Duration.ofMinutes(15);
 
-    private EcrClient ecrClient;
+    /**
+     * The maximum number of blobs of an image uploaded at the same time by means of the registry API.
+     */
+    private static final int BLOB_UPLOAD_PARALLELISM = 4;
+
+    private final ProcessRunner processRunner;
+    private final ExecutorProvider executorProvider;
+    private final ConcurrentMap<String, RegistryLogin> registryLogins;
+    private final ConcurrentMap<String, ReentrantLock> registryLocks;
+    private final ConcurrentMap<String, EcrClient> ecrClients;
+    private final ConcurrentMap<String, Set<String>> repositories;
+    /**
+     * The builds sharing a cache entry wait for each other on a {@link ReentrantLock} rather than on a monitor, so
+     * that the virtual threads waiting for a build don't pin their carrier threads.
+     */
+    private final ConcurrentMap<String, ReentrantLock> cacheLocks;
+    private volatile boolean dockerInstalled;
+    private SdkHttpClient httpClient;
 
     public DockerImageAssetPublisher(ProcessRunner processRunner) {
+        this(processRunner, ExecutorProvider.defaultProvider());
+    }
+
+    /**
+     * Creates a publisher.
+     *
+     * @param processRunner the runner of the Docker commands
+     * @param executorProvider the executor provider, the blobs pushed by means of the registry API are uploaded in its
+     *                         executor
+     */
+    public DockerImageAssetPublisher(ProcessRunner processRunner, ExecutorProvider executorProvider) {
         this.processRunner = processRunner;
+        this.executorProvider = executorProvider;
+        this.registryLogins = new ConcurrentHashMap<>();
+        this.registryLocks = new ConcurrentHashMap<>();
+        this.ecrClients = new ConcurrentHashMap<>();
+        this.repositories = new ConcurrentHashMap<>();
+        this.cacheLocks = new ConcurrentHashMap<>();
     }
 
     /**
@@ -31,24 +98,55 @@ public class DockerImageAssetPublisher {
      * @param environment resolved environment
      */
     public void publish(String repositoryName, String tag, ImageBuild imageBuild, ResolvedEnvironment environment) {
+        publish(imageBuild.getImageTag(), repositoryName, tag, imageBuild, environment);
+    }
+
+    /**
+     * Builds the given using the specified build parameters and published the built image to ECR. The output of the
+     * build and the push is logged line by line prefixed with the asset id, so that the output of the images published
+     * concurrently can be told apart. If the build has an output directory, the image is exported to it in the OCI
+     * image layout and pushed by means of the registry API instead of the Docker daemon, see
+     * {@link #publish(String, String, OciImageLayout, ResolvedEnvironment)}.
+     *
+     * @param assetId the id of the asset
+     * @param repositoryName the name of the repository
+     * @param tag image tag
+     * @param imageBuild build definition
+     * @param environment resolved environment
+     */
+    public void publish(String assetId, String repositoryName, String tag, ImageBuild imageBuild,
+                        ResolvedEnvironment environment) {
         ImageDetail image = findImage(repositoryName, tag, environment).orElse(null);
         if (image == null) {
             ensureDockerInstalled();
+            login(environment, true);
 
-            AuthorizationData authorizationData = getAuthorizationData(environment)
-                    .orElseThrow(() -> new CdkException("Unable to retrieve authorization token from ECR"));
-            try {
-                processRunner.run(toDockerLoginCommand(authorizationData));
-            } catch (ProcessExecutionException e) {
-                throw new CdkException("Unable to add ECR authorization data");
+            logger.info("Building docker image before publishing it to the ECR, dockerFile={}", imageBuild.getDockerfile());
+            if (imageBuild.getCache() != null) {
+                // The images sharing a cache entry are built one by one, so that they don't overwrite the exports of
+                // each other
+                ReentrantLock cacheLock = cacheLocks.computeIfAbsent(imageBuild.getCacheKey(),
+                        key -> new ReentrantLock());
+                cacheLock.lock();
+                try {
+                    build(assetId, imageBuild);
+                    imageBuild.getCache().complete(imageBuild.getCacheKey());
+                } finally {
+                    cacheLock.unlock();
+                }
+            } else {
+                build(assetId, imageBuild);
             }
 
-            logger.info("Building docker image before publishing it to the ECR, dockerFile={}", imageBuild.getDockerfile());
-            try {
-                processRunner.run(toBuildCommand(imageBuild));
-            } catch (ProcessExecutionException e) {
-                throw new CdkException("Failed to build the docker image from " + imageBuild.getDockerfile() +
-                        ". Please make sure that the Docker daemon is running");
+            if (imageBuild.getOutputDirectory() != null) {
+                OciImageLayout layout;
+                try {
+                    layout = OciImageLayout.read(imageBuild.getOutputDirectory());
+                } catch (IOException e) {
+                    throw new CdkException("Unable to read the image built to " + imageBuild.getOutputDirectory(), e);
+                }
+                push(repositoryName, tag, layout, environment);
+                return;
             }
 
             Repository repository = findRepository(repositoryName, environment)
@@ -58,25 +156,167 @@ public class DockerImageAssetPublisher {
 
             logger.info("Publishing docker image, imageUri={}", imageUri);
             try {
-                processRunner.run(ImmutableList.of("docker", "push", imageUri));
+                run(assetId, ImmutableList.of("docker", "push", imageUri));
             } catch (ProcessExecutionException e) {
+                // The push may have failed because the login has been invalidated, e.g. by a "docker logout", so the
+                // next image is published with a fresh login
+                registryLogins.remove(environment.getName());
                 throw new CdkException("Unable to push the image " + imageUri + " to the ECR repository", e);
             }
+            addRepository(repositoryName, environment);
+        }
+    }
+
+    /**
+     * Publishes the image stored in the OCI image layout to ECR by means of the registry API, i.e. without a Docker
+     * daemon. The blobs that already exist in the repository are skipped, the blobs that exist in the other
+     * repositories the publisher has pushed to are mounted and the rest of the blobs are uploaded concurrently. Only
+     * the repositories this publisher has pushed to since it was created (i.e. during the same deployment) are
+     * considered for mounting, the blobs pushed to the other repositories by earlier deployments are uploaded again.
+     *
+     * @param repositoryName the name of the repository
+     * @param tag image tag
+     * @param image the image
+     * @param environment resolved environment
+     */
+    public void publish(String repositoryName, String tag, OciImageLayout image, ResolvedEnvironment environment) {
+        if (!findImage(repositoryName, tag, environment).isPresent()) {
+            push(repositoryName, tag, image, environment);
+        }
+    }
+
+    private void push(String repositoryName, String tag, OciImageLayout image, ResolvedEnvironment environment) {
+        AuthorizationData authorizationData = login(environment, false).authorizationData;
+        findRepository(repositoryName, environment).orElseGet(() -> createRepository(repositoryName, environment));
+        Set<String> mountRepositories = new HashSet<>(repositories.getOrDefault(environment.getName(),
+                ImmutableSet.of()));
+        mountRepositories.remove(repositoryName);
+
+        logger.info("Publishing image {} by means of the registry API, repositoryName={}, tag={}",
+                image.getManifest().getDigest(), repositoryName, tag);
+        RegistryImagePusher pusher = new RegistryImagePusher(getHttpClient(),
+                URI.create(authorizationData.proxyEndpoint()), "Basic " + authorizationData.authorizationToken(),
+                executorProvider.getExecutor(), BLOB_UPLOAD_PARALLELISM);
+        try {
+            pusher.push(image, repositoryName, tag, mountRepositories);
+        } catch (RuntimeException e) {
+            registryLogins.remove(environment.getName());
+            throw new CdkException("Unable to push the image " + image.getManifest().getDigest() + " to the ECR " +
+                    "repository " + repositoryName, e);
+        }
+        addRepository(repositoryName, environment);
+    }
+
+    private void build(String assetId, ImageBuild imageBuild) {
+        try {
+            run(assetId, toBuildCommand(imageBuild));
+        } catch (ProcessExecutionException e) {
+            String message = "Failed to build the docker image from " + imageBuild.getDockerfile() +
+                    ". Please make sure that the Docker daemon is running" + (imageBuild.isBuildx()
+                    ? " and that the Docker buildx plugin is installed" : "");
+            if (imageBuild.getOutputDirectory() != null || imageBuild.getCache() != null) {
+                // The default "docker" driver exports neither the OCI image layout nor the build cache
+                message += ". The export of the image or of the build cache requires a builder other than the " +
+                        "default one, e.g. one created with \"docker buildx create --use\"";
+            }
+            throw new CdkException(message);
+        }
+    }
+
+    private void addRepository(String repositoryName, ResolvedEnvironment environment) {
+        repositories.computeIfAbsent(environment.getName(), name -> ConcurrentHashMap.newKeySet()).add(repositoryName);
+    }
+
+    private synchronized SdkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = ApacheHttpClient.builder().build();
+        }
+        return httpClient;
+    }
+
+    private void run(String assetId, List<String> command) {
+        // Each stream is split into lines separately, so that the interleaved output and error output don't end up
+        // in the same line
+        LineOutputStream output = new LineOutputStream(line -> logger.info("[{}] {}", assetId, line));
+        LineOutputStream errorOutput = new LineOutputStream(line -> logger.info("[{}] {}", assetId, line));
+        try {
+            processRunner.run(command, ProcessContext.builder()
+                    .withOutput(output)
+                    .withErrorOutput(errorOutput)
+                    .build());
+        } finally {
+            output.close();
+            errorOutput.close();
         }
     }
 
     private void ensureDockerInstalled() {
+        if (dockerInstalled) {
+            return;
+        }
         try {
             processRunner.run(Arrays.asList("docker", "--version"));
         } catch (ProcessExecutionException e) {
             throw new CdkException("Docker is required in order to build container assets");
         }
+        dockerInstalled = true;
     }
 
-    private List<String> toBuildCommand(ImageBuild build) {
+    /**
+     * Retrieves the authorization token of the registry of the environment unless there is a token that isn't about to
+     * expire, and logs Docker in to the registry if required. The images published concurrently to the same registry
+     * wait for a single login on a {@link ReentrantLock}, which unlike a monitor doesn't pin the waiting virtual
+     * threads to their carrier threads. The logins to the other registries aren't blocked by it.
+     */
+    private RegistryLogin login(ResolvedEnvironment environment, boolean docker) {
+        ReentrantLock registryLock = registryLocks.computeIfAbsent(environment.getName(),
+                registry -> new ReentrantLock());
+        registryLock.lock();
+        try {
+            RegistryLogin registryLogin = registryLogins.get(environment.getName());
+            boolean valid = registryLogin != null && registryLogin.isValid();
+            if (valid && (registryLogin.docker || !docker)) {
+                return registryLogin;
+            }
+            AuthorizationData authorizationData = valid
+                    ? registryLogin.authorizationData
+                    : getAuthorizationData(environment)
+                            .orElseThrow(() -> new CdkException("Unable to retrieve authorization token from ECR"));
+            if (docker) {
+                try {
+                    processRunner.run(toDockerLoginCommand(authorizationData));
+                } catch (ProcessExecutionException e) {
+                    throw new CdkException("Unable to add ECR authorization data");
+                }
+                logger.debug("Logged in to {}, the authorization token expires at {}",
+                        authorizationData.proxyEndpoint(), authorizationData.expiresAt());
+            }
+            RegistryLogin login = new RegistryLogin(authorizationData, docker);
+            registryLogins.put(environment.getName(), login);
+            return login;
+        } finally {
+            registryLock.unlock();
+        }
+    }
+
+    static List<String> toBuildCommand(ImageBuild build) {
         List<String> buildCommand = new ArrayList<>();
         buildCommand.add("docker");
-        buildCommand.add("build");
+        if (build.isBuildx()) {
+            buildCommand.add("buildx");
+            buildCommand.add("build");
+            if (build.getOutputDirectory() != null) {
+                // The provenance attestation would turn the image into an image index, which isn't supported by the
+                // registry push
+                buildCommand.add("--output");
+                buildCommand.add("type=oci,tar=false,dest=" + build.getOutputDirectory());
+                buildCommand.add("--provenance=false");
+            } else {
+                buildCommand.add("--load");
+            }
+        } else {
+            buildCommand.add("build");
+        }
         buildCommand.add("--tag");
         buildCommand.add(build.getImageTag());
 
@@ -88,6 +328,15 @@ public class DockerImageAssetPublisher {
             buildCommand.add("--target");
             buildCommand.add(build.getTarget());
         }
+        ImageBuildCache cache = build.getCache();
+        if (cache != null) {
+            cache.getCacheFrom(build.getCacheKey()).ifPresent(cacheFrom -> {
+                buildCommand.add("--cache-from");
+                buildCommand.add(cacheFrom);
+            });
+            buildCommand.add("--cache-to");
+            buildCommand.add(cache.getCacheTo(build.getCacheKey()));
+        }
         buildCommand.add("--file");
         buildCommand.add(build.getDockerfile().toString());
         buildCommand.add(build.getContextDirectory().toString());
@@ -96,14 +345,25 @@ public class DockerImageAssetPublisher {
     }
 
     private EcrClient getEcrClient(ResolvedEnvironment environment) {
-        if (this.ecrClient == null) {
-            this.ecrClient = EcrClient.builder()
-                    .region(environment.getRegion())
-                    .credentialsProvider(environment.getCredentialsProvider())
-                    .build();
-        }
+        return ecrClients.computeIfAbsent(environment.getName(), name -> EcrClient.builder()
+                .region(environment.getRegion())
+                .credentialsProvider(environment.getCredentialsProvider())
+                .build());
+    }
 
-        return ecrClient;
+    /**
+     * Closes the ECR clients of all the environments and the HTTP client of the registry API.
+     */
+    @Override
+    public void close() {
+        ecrClients.values().forEach(EcrClient::close);
+        ecrClients.clear();
+        synchronized (this) {
+            if (httpClient != null) {
+                httpClient.close();
+                httpClient = null;
+            }
+        }
     }
 
     private List<String> toDockerLoginCommand(AuthorizationData authorizationData) {
@@ -143,16 +403,40 @@ public class DockerImageAssetPublisher {
         }
     }
 
+    /**
+     * Creates the repository. The images are published concurrently, so the repository may have been created by
+     * another image bound for it since it was looked up, in which case the existing repository is returned.
+     */
     private Repository createRepository(String name, ResolvedEnvironment environment) {
         CreateRepositoryRequest createRequest = CreateRepositoryRequest.builder()
                 .repositoryName(name)
                 .build();
-        CreateRepositoryResponse response = getEcrClient(environment).createRepository(createRequest);
-        return response.repository();
+        try {
+            CreateRepositoryResponse response = getEcrClient(environment).createRepository(createRequest);
+            return response.repository();
+        } catch (RepositoryAlreadyExistsException e) {
+            return findRepository(name, environment)
+                    .orElseThrow(() -> new CdkException("Unable to find the ECR repository " + name, e));
+        }
     }
 
     private Optional<AuthorizationData> getAuthorizationData(ResolvedEnvironment environment) {
         return getEcrClient(environment).getAuthorizationToken().authorizationData().stream().findFirst();
     }
 
+    private static class RegistryLogin {
+
+        private final AuthorizationData authorizationData;
+        private final boolean docker;
+
+        private RegistryLogin(AuthorizationData authorizationData, boolean docker) {
+            this.authorizationData = authorizationData;
+            this.docker = docker;
+        }
+
+        private boolean isValid() {
+            Instant expiresAt = authorizationData.expiresAt();
+            return expiresAt == null || Instant.now().plus(LOGIN_RENEWAL_MARGIN).isBefore(expiresAt);
+        }
+    }
 }
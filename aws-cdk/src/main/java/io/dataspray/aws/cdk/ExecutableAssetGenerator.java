@@ -0,0 +1,158 @@
+package io.dataspray.aws.cdk;
+
+import io.dataspray.aws.cdk.process.LineOutputStream;
+import io.dataspray.aws.cdk.process.ProcessContext;
+import io.dataspray.aws.cdk.process.ProcessExecutionException;
+import io.dataspray.aws.cdk.process.ProcessRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Generates the file assets whose sources are executables. The executable produces the asset and prints the path of
+ * the produced file to the standard output.
+ *
+ * <p>The executables are run concurrently, the number of executables running at the same time is bounded. Every asset
+ * is generated at most once per deployment, even if it has several destinations. If the cache is enabled, the
+ * generated files are cached by the asset ids (which are the hashes of the asset sources), so the executables aren't
+ * run again as long as the assets don't change.</p>
+ */
+public class ExecutableAssetGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutableAssetGenerator.class);
+
+    private static final String CACHE_KEY_PREFIX = "executable-";
+
+    private final ProcessRunner processRunner;
+    private final Path cloudAssemblyDirectory;
+    private final AssetCache assetCache;
+    private final PriorityTaskQueue generationQueue;
+    private final ConcurrentMap<String, CompletableFuture<Path>> generatedAssets;
+
+    /**
+     * Creates a generator caching the generated assets.
+     *
+     * @param processRunner the runner of the executables
+     * @param cloudAssemblyDirectory the cloud assembly directory, the paths printed by the executables are resolved
+     *                               against it
+     * @param assetCacheDirectory the directory of the asset cache or {@code null} to disable the cache
+     * @param assetCacheMaxSize the maximum size of the cache in bytes
+     * @param executorProvider the executor provider
+     * @param maxConcurrency the maximum number of executables running at the same time
+     */
+    public ExecutableAssetGenerator(ProcessRunner processRunner,
+                                    Path cloudAssemblyDirectory,
+                                    @Nullable Path assetCacheDirectory,
+                                    long assetCacheMaxSize,
+                                    ExecutorProvider executorProvider,
+                                    int maxConcurrency) {
+        this.processRunner = processRunner;
+        this.cloudAssemblyDirectory = cloudAssemblyDirectory;
+        this.assetCache = assetCacheDirectory != null ? new AssetCache(assetCacheDirectory, assetCacheMaxSize) : null;
+        this.generationQueue = new PriorityTaskQueue(executorProvider.getExecutor(), maxConcurrency);
+        this.generatedAssets = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Queues the generation of the asset unless it's already generated or queued.
+     *
+     * @param assetId the id of the asset
+     * @param executable the command producing the asset
+     * @param priority the priority of the generation, the higher the value the sooner the executable is run
+     * @return a future completed with the generated file
+     */
+    public CompletableFuture<Path> generate(String assetId, List<String> executable, int priority) {
+        return generatedAssets.computeIfAbsent(assetId, id -> {
+            Optional<Path> cachedFile = assetCache != null
+                    ? assetCache.find(CACHE_KEY_PREFIX + assetId)
+                    : Optional.empty();
+            if (cachedFile.isPresent()) {
+                logger.debug("Using the cached file {} of the asset {}", cachedFile.get(), assetId);
+                return CompletableFuture.completedFuture(cachedFile.get());
+            }
+            return generationQueue.submit(priority, () -> run(assetId, executable));
+        });
+    }
+
+    /**
+     * Cancels the generations that haven't been started yet.
+     */
+    public void cancel() {
+        generationQueue.cancel();
+    }
+
+    private Path run(String assetId, List<String> executable) {
+        logger.info("Generating the asset {} with {}", assetId, String.join(" ", executable));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        // The executables run concurrently, so their error output is logged line by line prefixed with the asset id
+        LineOutputStream errorOutput = new LineOutputStream(line -> logger.info("[{}] {}", assetId, line));
+        ProcessContext processContext = ProcessContext.builder()
+                .withOutput(output)
+                .withErrorOutput(errorOutput)
+                .build();
+        try {
+            processRunner.run(executable, processContext);
+        } catch (ProcessExecutionException e) {
+            throw new CdkException("The executable of the asset " + assetId + " has failed: " +
+                    String.join(" ", executable), e);
+        } finally {
+            errorOutput.close();
+        }
+
+        Path file = parseOutput(new String(output.toByteArray(), StandardCharsets.UTF_8))
+                .map(cloudAssemblyDirectory::resolve)
+                .orElseThrow(() -> new CdkException("The executable of the asset " + assetId + " hasn't printed " +
+                        "the path of the generated file"));
+        if (!Files.exists(file)) {
+            throw new CdkException("The file generated by the executable of the asset " + assetId + " doesn't " +
+                    "exist: " + file);
+        }
+
+        if (assetCache != null && Files.isRegularFile(file)) {
+            cache(assetId, file);
+        }
+        return file;
+    }
+
+    private void cache(String assetId, Path file) {
+        Path cacheFile = null;
+        try {
+            cacheFile = assetCache.createTempFile();
+            Files.copy(file, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Unable to add the generated file {} to the asset cache: {}", file, e.getMessage());
+            if (cacheFile != null) {
+                assetCache.discard(cacheFile);
+            }
+            return;
+        }
+        assetCache.put(CACHE_KEY_PREFIX + assetId, cacheFile);
+    }
+
+    /**
+     * Returns the path printed by the executable. The executables may print other messages before it, so the last
+     * non-blank line is taken.
+     */
+    static Optional<String> parseOutput(String output) {
+        String[] lines = output.split("\\r?\\n");
+        for (int i = lines.length - 1; i >= 0; i--) {
+            String line = lines[i].trim();
+            if (!line.isEmpty()) {
+                return Optional.of(line);
+            }
+        }
+        return Optional.empty();
+    }
+}
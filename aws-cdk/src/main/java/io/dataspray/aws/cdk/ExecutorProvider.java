@@ -0,0 +1,65 @@
+package io.dataspray.aws.cdk;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Provides the threads used by the stack operations: an executor for the blocking work (requests performed with
+ * the blocking clients, asset publishing, template uploads) and a scheduler for the delayed stack status checks.
+ *
+ * The executors are owned by the provider, i.e. they are not shut down once an operation completes.
+ */
+public interface ExecutorProvider {
+
+    /**
+     * Returns the executor for the blocking work. The tasks never wait for the other tasks submitted to the same
+     * executor (the uploads and the deployments are chained to the futures of the work they depend on instead), so
+     * the executor may bound the number of its threads, e.g. a fixed thread pool limits the blocking work performed
+     * at the same time.
+     *
+     * @return the executor
+     */
+    Executor getExecutor();
+
+    /**
+     * Returns the scheduler of the delayed tasks. The scheduled tasks are short, they only hand the work over to
+     * {@link #getExecutor() the executor} or to a non-blocking client.
+     *
+     * @return the scheduler
+     */
+    ScheduledExecutorService getScheduler();
+
+    /**
+     * Returns a provider of the given executors.
+     *
+     * @param executor the executor for the blocking work
+     * @param scheduler the scheduler of the delayed tasks
+     * @return the executor provider
+     */
+    static ExecutorProvider of(Executor executor, ScheduledExecutorService scheduler) {
+        Objects.requireNonNull(executor, "executor can't be null");
+        Objects.requireNonNull(scheduler, "scheduler can't be null");
+        return new ExecutorProvider() {
+            @Override
+            public Executor getExecutor() {
+                return executor;
+            }
+
+            @Override
+            public ScheduledExecutorService getScheduler() {
+                return scheduler;
+            }
+        };
+    }
+
+    /**
+     * Returns the default provider that uses daemon threads dedicated to the stack operations. On Java 21 and newer
+     * the blocking work is performed in virtual threads.
+     *
+     * @return the default executor provider
+     */
+    static ExecutorProvider defaultProvider() {
+        return DefaultExecutorProvider.INSTANCE;
+    }
+}
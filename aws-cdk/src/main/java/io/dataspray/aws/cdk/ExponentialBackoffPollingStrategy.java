@@ -0,0 +1,116 @@
+package io.dataspray.aws.cdk;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A polling strategy increasing the delay between the checks exponentially while the stack doesn't make any progress.
+ * A random jitter is applied to the delay so the checks of the stacks started at the same time are spread out.
+ */
+public class ExponentialBackoffPollingStrategy implements PollingStrategy {
+
+    private static final Duration DEFAULT_INITIAL_DELAY = Duration.ofSeconds(1);
+    private static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(15);
+    private static final double DEFAULT_MULTIPLIER = 1.5;
+    private static final double DEFAULT_JITTER = 0.2;
+
+    private final Duration initialDelay;
+    private final Duration maxDelay;
+    private final double multiplier;
+    private final double jitter;
+
+    private ExponentialBackoffPollingStrategy(Duration initialDelay, Duration maxDelay, double multiplier, double jitter) {
+        this.initialDelay = Objects.requireNonNull(initialDelay, "initial delay can't be null");
+        this.maxDelay = Objects.requireNonNull(maxDelay, "max delay can't be null");
+        if (initialDelay.isNegative() || maxDelay.compareTo(initialDelay) < 0) {
+            throw new IllegalArgumentException("The initial delay must be equal or greater than zero and the max " +
+                    "delay can't be less than the initial delay");
+        }
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("The multiplier must be equal or greater than one");
+        }
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("The jitter must be in the range [0, 1)");
+        }
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public Duration getDelay(int attempt) {
+        double delay = initialDelay.toMillis() * Math.pow(multiplier, Math.max(attempt, 0));
+        double cappedDelay = Math.min(delay, maxDelay.toMillis());
+        double jitteredDelay = cappedDelay * (1 - jitter * ThreadLocalRandom.current().nextDouble());
+        return Duration.ofMillis((long) jitteredDelay);
+    }
+
+    public Duration getInitialDelay() {
+        return initialDelay;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    @Override
+    public String toString() {
+        return "ExponentialBackoffPollingStrategy{" +
+                "initialDelay=" + initialDelay +
+                ", maxDelay=" + maxDelay +
+                ", multiplier=" + multiplier +
+                ", jitter=" + jitter +
+                '}';
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private Duration initialDelay;
+        private Duration maxDelay;
+        private double multiplier;
+        private double jitter;
+
+        private Builder() {
+            this.initialDelay = DEFAULT_INITIAL_DELAY;
+            this.maxDelay = DEFAULT_MAX_DELAY;
+            this.multiplier = DEFAULT_MULTIPLIER;
+            this.jitter = DEFAULT_JITTER;
+        }
+
+        public Builder withInitialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+            return this;
+        }
+
+        public Builder withMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        public Builder withMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        public Builder withJitter(double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        public ExponentialBackoffPollingStrategy build() {
+            return new ExponentialBackoffPollingStrategy(initialDelay, maxDelay, multiplier, jitter);
+        }
+    }
+}
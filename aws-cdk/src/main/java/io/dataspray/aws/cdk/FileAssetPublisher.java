@@ -1,32 +1,84 @@
 package io.dataspray.aws.cdk;
 
+import io.dataspray.aws.cdk.zip.ZipPacker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.zeroturnaround.zip.ZipUtil;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.BlockingOutputStreamAsyncRequestBody;
+import software.amazon.awssdk.utils.CancellableOutputStream;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
 import software.amazon.awssdk.transfer.s3.model.CompletedUpload;
 import software.amazon.awssdk.transfer.s3.model.UploadRequest;
+import software.amazon.awssdk.transfer.s3.progress.TransferListener;
 
 import javax.annotation.Nullable;
-import java.io.File;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
- * Publishes file assets to S3.
+ * Publishes file assets to S3. A separate S3 client is used for every environment, the clients share the default CRT
+ * event loop group and are closed along with the publisher.
+ *
+ * <p>Every object is uploaded with a CRC32C checksum. The checksums of the parts are calculated by the client while
+ * the parts are streamed and validated by S3 on upload, so the integrity of the objects doesn't require a separate
+ * read pass. The objects that already exist in the bucket aren't validated again.</p>
  */
-public class FileAssetPublisher {
+public class FileAssetPublisher implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(FileAssetPublisher.class);
     private static final int MINIMUM_PART_SIZE = 5 * 1024 * 1024;
 
-    private S3AsyncClient s3Client;
-    private S3TransferManager s3TransferManager;
+    private final ExecutorProvider executorProvider;
+    private final ZipPacker zipPacker;
+    private final AssetCache assetCache;
+    private final AssetTransferListener transferListener;
+    private final ConcurrentMap<String, CompletableFuture<Set<String>>> existingObjects;
+    private final ConcurrentMap<String, S3AsyncClient> s3Clients;
+    private final ConcurrentMap<String, S3TransferManager> s3TransferManagers;
+    private int transfers;
+    private int failedTransfers;
+    private int skippedTransfers;
+    private long bytesTransferred;
+    private long firstTransferStartTime;
+    private long lastTransferEndTime;
+
+    public FileAssetPublisher() {
+        this(DeployOptions.defaults());
+    }
+
+    /**
+     * Creates a publisher.
+     *
+     * @param options the deployment options: the executor, the cache of the packaged directory assets and the listener
+     *                receiving the statistics of the uploads
+     */
+    public FileAssetPublisher(DeployOptions options) {
+        this.executorProvider = options.getExecutorProvider();
+        this.transferListener = options.getAssetTransferListener().orElse(null);
+        this.assetCache = options.getAssetCacheDirectory()
+                .map(directory -> new AssetCache(directory, options.getAssetCacheMaxSize()))
+                .orElse(null);
+        this.zipPacker = new ZipPacker(executorProvider.getExecutor(), Runtime.getRuntime().availableProcessors());
+        this.existingObjects = new ConcurrentHashMap<>();
+        this.s3Clients = new ConcurrentHashMap<>();
+        this.s3TransferManagers = new ConcurrentHashMap<>();
+    }
 
     /**
      * Uploads a file or a directory (zipping it before uploading) to S3 bucket.
@@ -37,12 +89,60 @@ public class FileAssetPublisher {
      * @throws IOException if I/O error occurs while uploading a file or directory
      */
     public void publish(Path file, String objectName, String bucketName, ResolvedEnvironment environment) throws IOException {
-        logger.info("Publishing s3://{}/{}", bucketName, objectName);
-        if (Files.isDirectory(file)) {
-            publishDirectory(file, objectName, bucketName, environment);
-        } else {
-            publishFile(file, objectName, bucketName, environment);
-        }
+        publish(file, objectName, bucketName, environment, null);
+    }
+
+    /**
+     * Uploads a file or a directory (zipping it before uploading) to S3 bucket. The zipped directory is cached by the
+     * hash of its source, so that the directory isn't zipped again as long as its source hash doesn't change.
+     *
+     * @param file       the file or directory to be uploaded
+     * @param objectName the name of the object in the bucket
+     * @param bucketName the name of the bucket
+     * @param sourceHash the hash of the asset source or {@code null} if the zipped directory shouldn't be cached
+     * @throws IOException if I/O error occurs while uploading a file or directory
+     */
+    public void publish(Path file, String objectName, String bucketName, ResolvedEnvironment environment,
+                        @Nullable String sourceHash) throws IOException {
+        join(publishAsync(file, objectName, bucketName, environment, sourceHash));
+    }
+
+    /**
+     * Uploads a file or a directory (zipping it before uploading) to S3 bucket without blocking the calling thread.
+     * Only zipping a directory occupies a thread of the executor, no thread waits for the upload.
+     *
+     * @param file       the file or directory to be uploaded
+     * @param objectName the name of the object in the bucket
+     * @param bucketName the name of the bucket
+     * @param sourceHash the hash of the asset source or {@code null} if the zipped directory shouldn't be cached
+     * @return a future completed once the object is uploaded, it fails with {@link IOException} if I/O error occurs
+     * while uploading a file or directory
+     */
+    public CompletableFuture<Void> publishAsync(Path file, String objectName, String bucketName,
+                                                ResolvedEnvironment environment, @Nullable String sourceHash) {
+        return exists(objectName, bucketName, environment).thenCompose(exists -> {
+            if (exists) {
+                logger.info("Skipping s3://{}/{}, the object already exists", bucketName, objectName);
+                transferSkipped();
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            logger.info("Publishing s3://{}/{}", bucketName, objectName);
+            CompletableFuture<Void> upload;
+            if (Files.isDirectory(file)) {
+                Optional<Path> cachedArtifact = assetCache != null && sourceHash != null
+                        ? assetCache.find(sourceHash)
+                        : Optional.empty();
+                if (cachedArtifact.isPresent()) {
+                    logger.debug("Using the cached archive {} of the directory {}", cachedArtifact.get(), file);
+                    upload = publishFile(cachedArtifact.get(), objectName, bucketName, environment);
+                } else {
+                    upload = publishDirectory(file, objectName, bucketName, environment, sourceHash);
+                }
+            } else {
+                upload = publishFile(file, objectName, bucketName, environment);
+            }
+            return upload.thenRun(() -> addExisting(objectName, bucketName));
+        });
     }
 
     /**
@@ -54,61 +154,285 @@ public class FileAssetPublisher {
      * @throws IOException if I/O error occurs while uploading a file or directory
      */
     public void publish(byte[] data, String objectName, String bucketName, ResolvedEnvironment environment) throws IOException {
-        logger.info("Publishing inline content asset, bucketName={}, objectName={}", bucketName, objectName);
-        publishFile(data, objectName, bucketName, environment);
+        join(publishAsync(data, objectName, bucketName, environment));
     }
 
     /**
-     * Zips the directory and uploads it to S3 bucket.
+     * Uploads a string as a file to S3 bucket without blocking the calling thread.
+     *
+     * @param data       the content of the file
+     * @param objectName the name of the object in the bucket
+     * @param bucketName the name of the bucket
+     * @return a future completed once the object is uploaded
      */
-    private void publishDirectory(Path directory, String objectName, String bucketName, ResolvedEnvironment environment) throws IOException {
-        Path tempDir = Files.createTempDirectory("aws-cdk-4j-" + objectName);
-        File packedFile = tempDir.resolve(objectName).toFile();
-        ZipUtil.pack(directory.toFile(), packedFile);
-        publishFile(packedFile, objectName, bucketName, environment);
+    public CompletableFuture<Void> publishAsync(byte[] data, String objectName, String bucketName,
+                                                ResolvedEnvironment environment) {
+        return exists(objectName, bucketName, environment).thenCompose(exists -> {
+            if (exists) {
+                logger.info("Skipping inline content asset, the object already exists, bucketName={}, objectName={}",
+                        bucketName, objectName);
+                transferSkipped();
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            logger.info("Publishing inline content asset, bucketName={}, objectName={}", bucketName, objectName);
+            return publishFile(data, objectName, bucketName, environment)
+                    .thenRun(() -> addExisting(objectName, bucketName));
+        });
     }
 
     /**
-     * Uploads the bytes to S3 bucket.
+     * Waits for the publication, the {@link IOException} it has failed with is rethrown as is.
      */
-    private void publishFile(byte[] data, String objectName, String bucketName, ResolvedEnvironment environment) throws IOException {
-        upload(environment, AsyncRequestBody.fromBytes(data), bucketName, objectName).join();
+    private static void join(CompletableFuture<Void> publication) throws IOException {
+        try {
+            publication.join();
+        } catch (CompletionException e) {
+            Throwable cause = MoreFutures.unwrap(e);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
     }
 
     /**
-     * Uploads the file to S3 bucket.
+     * Checks whether the object already exists in the bucket. The names of the assets are derived from the hashes of
+     * their contents, so an existing object doesn't need to be uploaded again. The objects sharing the same prefix
+     * are listed once per deployment.
+     */
+    private CompletableFuture<Boolean> exists(String objectName, String bucketName, ResolvedEnvironment environment) {
+        String prefix = getPrefix(objectName);
+        return existingObjects.computeIfAbsent(bucketName + "/" + prefix,
+                        key -> listObjects(prefix, bucketName, environment))
+                .thenApply(objectNames -> objectNames.contains(objectName));
+    }
+
+    private void addExisting(String objectName, String bucketName) {
+        CompletableFuture<Set<String>> objectNames = existingObjects.get(bucketName + "/" + getPrefix(objectName));
+        if (objectNames != null) {
+            objectNames.thenAccept(names -> names.add(objectName));
+        }
+    }
+
+    private CompletableFuture<Set<String>> listObjects(String prefix, String bucketName, ResolvedEnvironment environment) {
+        Set<String> objectNames = ConcurrentHashMap.newKeySet();
+        return getS3Client(environment)
+                .listObjectsV2Paginator(ListObjectsV2Request.builder()
+                        .bucket(bucketName)
+                        .prefix(prefix)
+                        .delimiter("/")
+                        .build())
+                .contents()
+                .subscribe(object -> objectNames.add(object.key()))
+                .handle((result, e) -> {
+                    if (e != null) {
+                        logger.warn("Unable to list the objects of s3://{}/{}, the assets will be uploaded regardless " +
+                                "of whether they exist: {}", bucketName, prefix, MoreFutures.unwrap(e).getMessage());
+                    }
+                    return objectNames;
+                });
+    }
+
+    private static String getPrefix(String objectName) {
+        return objectName.substring(0, objectName.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Zips the directory and uploads it to S3 bucket. The archive is streamed to a multipart upload while it's being
+     * produced: writing to the request body blocks until the upload has consumed the previous parts, so neither a temp
+     * file nor the whole archive in memory is required. If the cache is enabled, the archive is written to the cache at
+     * the same time. A failure to write the cache doesn't affect the upload, the archive just isn't cached. The
+     * directory is zipped by a thread of the executor, no thread waits for the upload once the archive is written.
+     */
+    private CompletableFuture<Void> publishDirectory(Path directory, String objectName, String bucketName,
+                                                     ResolvedEnvironment environment, @Nullable String sourceHash) {
+        Path cacheFile = assetCache != null && sourceHash != null ? createCacheFile() : null;
+        BlockingOutputStreamAsyncRequestBody body = AsyncRequestBody.forBlockingOutputStream(null);
+        CompletableFuture<CompletedUpload> upload = upload(environment, body, bucketName, objectName);
+        CompletableFuture<Boolean> packing;
+        try {
+            packing = CompletableFuture.supplyAsync(() -> pack(directory, body.outputStream(), cacheFile),
+                    executorProvider.getExecutor());
+        } catch (RuntimeException e) {
+            upload.cancel(true);
+            if (cacheFile != null) {
+                assetCache.discard(cacheFile);
+            }
+            return MoreFutures.failed(e);
+        }
+        return packing.handle((cached, packError) -> upload.handle((result, uploadError) -> {
+            if (packError != null || uploadError != null) {
+                if (cacheFile != null) {
+                    assetCache.discard(cacheFile);
+                }
+                Throwable failure = MoreFutures.unwrap(packError != null ? packError : uploadError);
+                if (packError != null && uploadError != null) {
+                    failure.addSuppressed(MoreFutures.unwrap(uploadError));
+                }
+                throw new CompletionException(failure);
+            }
+            if (cached) {
+                assetCache.put(sourceHash, cacheFile);
+            } else if (cacheFile != null) {
+                assetCache.discard(cacheFile);
+            }
+            return (Void) null;
+        })).thenCompose(Function.identity());
+    }
+
+    /**
+     * Zips the directory to the request body and to the cache file (if any).
+     *
+     * @return {@code true} if the whole archive has been written to the cache file
+     */
+    private boolean pack(Path directory, CancellableOutputStream outputStream, @Nullable Path cacheFile) {
+        CachingOutputStream cachingOutput = cacheFile != null ? new CachingOutputStream(outputStream, cacheFile) : null;
+        try {
+            zipPacker.pack(directory, cachingOutput != null ? cachingOutput : outputStream);
+            boolean cached = cachingOutput != null && cachingOutput.closeCache();
+            outputStream.close();
+            return cached;
+        } catch (IOException | RuntimeException e) {
+            if (cachingOutput != null) {
+                cachingOutput.closeCache();
+            }
+            // Fails the upload, so that the incomplete archive isn't stored
+            outputStream.cancel();
+            throw new CompletionException(new IOException("Unable to zip the directory " + directory, e));
+        }
+    }
+
+    @Nullable
+    private Path createCacheFile() {
+        try {
+            return assetCache.createTempFile();
+        } catch (IOException e) {
+            logger.warn("Unable to create a file in the asset cache, the archive won't be cached: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Uploads the bytes to S3 bucket.
      */
-    private void publishFile(Path file, String objectName, String bucketName, ResolvedEnvironment environment) throws IOException {
-        upload(environment, AsyncRequestBody.fromFile(file), bucketName, objectName).join();
+    private CompletableFuture<Void> publishFile(byte[] data, String objectName, String bucketName,
+                                                ResolvedEnvironment environment) {
+        return upload(environment, AsyncRequestBody.fromBytes(data), bucketName, objectName)
+                .thenApply(result -> null);
     }
 
     /**
      * Uploads the file to S3 bucket.
      */
-    private void publishFile(File file, String objectName, String bucketName, ResolvedEnvironment environment) throws IOException {
-        upload(environment, AsyncRequestBody.fromFile(file), bucketName, objectName).join();
+    private CompletableFuture<Void> publishFile(Path file, String objectName, String bucketName,
+                                                ResolvedEnvironment environment) {
+        return upload(environment, AsyncRequestBody.fromFile(file), bucketName, objectName)
+                .thenApply(result -> null);
     }
 
     private S3AsyncClient getS3Client(ResolvedEnvironment environment) {
-        if (this.s3Client == null) {
-            this.s3Client = S3AsyncClient.crtBuilder()
-                    .region(environment.getRegion())
-                    .credentialsProvider(environment.getCredentialsProvider())
-                    .minimumPartSizeInBytes((long) MINIMUM_PART_SIZE)
-                    .build();
+        return s3Clients.computeIfAbsent(environment.getName(), name -> S3AsyncClient.crtBuilder()
+                .region(environment.getRegion())
+                .credentialsProvider(environment.getCredentialsProvider())
+                .minimumPartSizeInBytes((long) MINIMUM_PART_SIZE)
+                .build());
+    }
+
+    private S3TransferManager getS3TransferManager(ResolvedEnvironment environment) {
+        return s3TransferManagers.computeIfAbsent(environment.getName(), name -> S3TransferManager.builder()
+                .s3Client(getS3Client(environment))
+                .executor(executorProvider.getExecutor())
+                .build());
+    }
+
+    /**
+     * Returns the totals of all the uploads performed by the publisher so far.
+     *
+     * @return the totals of the uploads
+     */
+    public synchronized AssetTransferSummary getTransferSummary() {
+        Duration duration = transfers + failedTransfers > 0
+                ? Duration.ofNanos(lastTransferEndTime - firstTransferStartTime)
+                : Duration.ZERO;
+        return new AssetTransferSummary(transfers, failedTransfers, skippedTransfers, bytesTransferred, duration);
+    }
+
+    /**
+     * Logs the totals of all the uploads and passes them to the listener.
+     */
+    public void reportTransferSummary() {
+        AssetTransferSummary summary = getTransferSummary();
+        if (summary.getTransfers() + summary.getFailedTransfers() + summary.getSkippedTransfers() > 0) {
+            logger.info("Uploaded {} assets ({} skipped, {} failed), {} in {} ({}/s)", summary.getTransfers(),
+                    summary.getSkippedTransfers(), summary.getFailedTransfers(),
+                    AssetTransfer.formatSize(summary.getBytesTransferred()),
+                    AssetTransfer.formatDuration(summary.getDuration()),
+                    AssetTransfer.formatSize(summary.getThroughput()));
         }
+        notifyListener(listener -> listener.publicationCompleted(summary));
+    }
 
-        return s3Client;
+    private synchronized void transferSkipped() {
+        skippedTransfers++;
     }
 
-    private S3TransferManager getS3TransferManager(ResolvedEnvironment environment) {
-        if (this.s3TransferManager == null) {
-            this.s3TransferManager = S3TransferManager.builder()
-                    .s3Client(getS3Client(environment))
-                    .build();
+    private void transferCompleted(AssetTransfer transfer, long startTime, long endTime) {
+        synchronized (this) {
+            transfers++;
+            bytesTransferred += transfer.getBytesTransferred();
+            addTransferTime(startTime, endTime);
+        }
+        logger.info("Published s3://{}/{}, {} in {} ({}/s)", transfer.getBucketName(), transfer.getObjectName(),
+                AssetTransfer.formatSize(transfer.getBytesTransferred()), AssetTransfer.formatDuration(transfer.getDuration()),
+                AssetTransfer.formatSize(transfer.getThroughput()));
+        transfer.getChecksum().ifPresent(checksum -> logger.debug("The CRC32C checksum of s3://{}/{} is {}",
+                transfer.getBucketName(), transfer.getObjectName(), checksum));
+        notifyListener(listener -> listener.transferCompleted(transfer));
+    }
+
+    private void transferFailed(AssetTransfer transfer, long startTime, long endTime, Throwable error) {
+        synchronized (this) {
+            failedTransfers++;
+            bytesTransferred += transfer.getBytesTransferred();
+            addTransferTime(startTime, endTime);
+        }
+        notifyListener(listener -> listener.transferFailed(transfer, error));
+    }
+
+    private void addTransferTime(long startTime, long endTime) {
+        if (transfers + failedTransfers == 1 || startTime - firstTransferStartTime < 0) {
+            firstTransferStartTime = startTime;
         }
+        if (transfers + failedTransfers == 1 || endTime - lastTransferEndTime > 0) {
+            lastTransferEndTime = endTime;
+        }
+    }
 
-        return s3TransferManager;
+    private void notifyListener(Consumer<AssetTransferListener> notification) {
+        if (transferListener != null) {
+            try {
+                notification.accept(transferListener);
+            } catch (RuntimeException e) {
+                logger.warn("The asset transfer listener has failed", e);
+            }
+        }
+    }
+
+    /**
+     * Closes the transfer managers and the S3 clients of all the environments.
+     */
+    @Override
+    public void close() {
+        s3TransferManagers.values().forEach(S3TransferManager::close);
+        s3TransferManagers.clear();
+        s3Clients.values().forEach(S3AsyncClient::close);
+        s3Clients.clear();
     }
 
     private CompletableFuture<CompletedUpload> upload(ResolvedEnvironment environment, AsyncRequestBody body, String bucketName, String objectKey) {
@@ -128,9 +452,137 @@ public class FileAssetPublisher {
                                 .bucket(bucketName)
                                 .key(objectKey)
                                 .contentType(contentType)
+                                .checksumAlgorithm(ChecksumAlgorithm.CRC32C)
                                 .build())
                         .requestBody(body)
+                        .addTransferListener(new TransferRecorder(bucketName, objectKey))
                         .build())
                 .completionFuture();
     }
+
+    /**
+     * Measures a single upload. The part retries are performed by the CRT client internally and aren't reported, so
+     * they show up as a lower throughput.
+     */
+    private class TransferRecorder implements TransferListener {
+
+        private final String bucketName;
+        private final String objectName;
+        private final long startTime;
+
+        private TransferRecorder(String bucketName, String objectName) {
+            this.bucketName = bucketName;
+            this.objectName = objectName;
+            this.startTime = System.nanoTime();
+        }
+
+        @Override
+        public void transferComplete(Context.TransferComplete context) {
+            long endTime = System.nanoTime();
+            String checksum = context.completedTransfer() instanceof CompletedUpload
+                    ? ((CompletedUpload) context.completedTransfer()).response().checksumCRC32C()
+                    : null;
+            transferCompleted(new AssetTransfer(bucketName, objectName, context.progressSnapshot().transferredBytes(),
+                    Duration.ofNanos(endTime - startTime), checksum), startTime, endTime);
+        }
+
+        @Override
+        public void transferFailed(Context.TransferFailed context) {
+            long endTime = System.nanoTime();
+            FileAssetPublisher.this.transferFailed(new AssetTransfer(bucketName, objectName,
+                    context.progressSnapshot().transferredBytes(), Duration.ofNanos(endTime - startTime), null),
+                    startTime, endTime, context.exception());
+        }
+    }
+
+    /**
+     * Writes the archive to the upload and to the cache file at the same time. Once writing the cache file fails, the
+     * cache file is abandoned while the archive keeps being written to the upload.
+     */
+    private static class CachingOutputStream extends OutputStream {
+
+        private final OutputStream upload;
+        private final Path cacheFile;
+        private OutputStream cache;
+        private boolean cacheFailed;
+
+        private CachingOutputStream(OutputStream upload, Path cacheFile) {
+            this.upload = upload;
+            this.cacheFile = cacheFile;
+            try {
+                this.cache = new BufferedOutputStream(Files.newOutputStream(cacheFile));
+            } catch (IOException e) {
+                failCache(e);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            upload.write(b);
+            if (cache != null) {
+                try {
+                    cache.write(b);
+                } catch (IOException e) {
+                    failCache(e);
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            upload.write(b, off, len);
+            if (cache != null) {
+                try {
+                    cache.write(b, off, len);
+                } catch (IOException e) {
+                    failCache(e);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            upload.flush();
+            if (cache != null) {
+                try {
+                    cache.flush();
+                } catch (IOException e) {
+                    failCache(e);
+                }
+            }
+        }
+
+        /**
+         * Closes the cache file, the upload stays open.
+         *
+         * @return {@code true} if the whole archive has been written to the cache file
+         */
+        private boolean closeCache() {
+            if (cache != null) {
+                try {
+                    cache.close();
+                    cache = null;
+                } catch (IOException e) {
+                    failCache(e);
+                }
+            }
+            return !cacheFailed;
+        }
+
+        private void failCache(IOException e) {
+            if (!cacheFailed) {
+                cacheFailed = true;
+                logger.warn("Unable to write the archive to the asset cache file {}, the archive won't be cached: {}",
+                        cacheFile, e.getMessage());
+            }
+            if (cache != null) {
+                try {
+                    cache.close();
+                } catch (IOException closeError) {
+                    logger.debug("Unable to close the asset cache file {}", cacheFile, closeError);
+                }
+                cache = null;
+            }
+        }
+    }
 }
@@ -29,16 +29,44 @@ public class ImageBuild {
     @Nonnull
     Map<String, String> arguments;
 
+    private final boolean buildx;
+
+    @Nullable
+    private final ImageBuildCache cache;
+
+    @Nullable
+    private final String cacheKey;
+
+    @Nullable
+    private final Path outputDirectory;
+
     private ImageBuild(@NotNull Path contextDirectory,
                        @NotNull Path dockerfile,
                        @NotNull String imageTag,
                        @Nullable String target,
-                       @Nullable Map<String, String> arguments) {
+                       @Nullable Map<String, String> arguments,
+                       boolean buildx,
+                       @Nullable ImageBuildCache cache,
+                       @Nullable String cacheKey,
+                       @Nullable Path outputDirectory) {
+        if (cache != null && !buildx) {
+            throw new IllegalArgumentException("The build cache is supported only by buildx builds");
+        }
+        if (cache != null && cacheKey == null) {
+            throw new IllegalArgumentException("The cache key is required if the build cache is used");
+        }
+        if (outputDirectory != null && !buildx) {
+            throw new IllegalArgumentException("The image layout output is supported only by buildx builds");
+        }
         this.contextDirectory = Objects.requireNonNull(contextDirectory, "Docker context directory path can't be null");
         this.dockerfile = Objects.requireNonNull(dockerfile, "Docker Dockerfile path can't be null");
         this.imageTag = Objects.requireNonNull(imageTag, "Image tag can't be null");
         this.target = target;
         this.arguments = arguments != null ? ImmutableMap.copyOf(arguments) : ImmutableMap.of();
+        this.buildx = buildx;
+        this.cache = cache;
+        this.cacheKey = cacheKey;
+        this.outputDirectory = outputDirectory;
     }
 
     @Nonnull
@@ -66,6 +94,47 @@ public class ImageBuild {
         return arguments;
     }
 
+    /**
+     * Returns whether the image is built with BuildKit by means of {@code docker buildx build}. The built image is
+     * loaded into the Docker image store unless an output directory is specified.
+     *
+     * @return {@code true} if the image is built with buildx
+     */
+    public boolean isBuildx() {
+        return buildx;
+    }
+
+    /**
+     * Returns the cache the layers of the image are imported from and exported to.
+     *
+     * @return the build cache or {@code null} if the build isn't cached
+     */
+    @Nullable
+    public ImageBuildCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns the key identifying the entry of the image in the build cache.
+     *
+     * @return the cache key or {@code null} if the build isn't cached
+     */
+    @Nullable
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * Returns the directory the built image is exported to in the OCI image layout instead of being loaded into the
+     * Docker image store, the image is then pushed by means of the registry API.
+     *
+     * @return the output directory or {@code null} if the image is loaded into the Docker image store
+     */
+    @Nullable
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
     @Override
     public String toString() {
         return "ImageBuild{" +
@@ -74,6 +143,10 @@ public class ImageBuild {
                 ", imageTag='" + imageTag + '\'' +
                 ", target='" + target + '\'' +
                 ", arguments=" + arguments +
+                ", buildx=" + buildx +
+                ", cache=" + cache +
+                ", cacheKey='" + cacheKey + '\'' +
+                ", outputDirectory=" + outputDirectory +
                 '}';
     }
 
@@ -88,6 +161,10 @@ public class ImageBuild {
         private Path dockerfile;
         private String imageTag;
         private String target;
+        private boolean buildx;
+        private ImageBuildCache cache;
+        private String cacheKey;
+        private Path outputDirectory;
 
         private Builder() {
         }
@@ -117,8 +194,29 @@ public class ImageBuild {
             return this;
         }
 
+        public Builder withBuildx(boolean buildx) {
+            this.buildx = buildx;
+            return this;
+        }
+
+        public Builder withCache(@Nullable ImageBuildCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        public Builder withCacheKey(@Nullable String cacheKey) {
+            this.cacheKey = cacheKey;
+            return this;
+        }
+
+        public Builder withOutputDirectory(@Nullable Path outputDirectory) {
+            this.outputDirectory = outputDirectory;
+            return this;
+        }
+
         public ImageBuild build() {
-            return new ImageBuild(contextDirectory, dockerfile, imageTag, target, arguments);
+            return new ImageBuild(contextDirectory, dockerfile, imageTag, target, arguments, buildx, cache, cacheKey,
+                    outputDirectory);
         }
     }
 }
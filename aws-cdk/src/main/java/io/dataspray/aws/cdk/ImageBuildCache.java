@@ -0,0 +1,192 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of the Docker image layers built by BuildKit. The cache can be stored either in a local directory
+ * (e.g. a directory restored by a CI system between the runs) or in a registry. Every image has its own entry in the
+ * cache identified by a cache key (see {@link #generateKey}), so that the images don't overwrite the cache of each
+ * other. The images with equal keys share the entry and are built one by one.
+ */
+public class ImageBuildCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageBuildCache.class);
+
+    private static final String NEW_ENTRY_SUFFIX = ".new";
+
+    private final Path directory;
+    private final String repository;
+
+    private ImageBuildCache(@Nullable Path directory, @Nullable String repository) {
+        this.directory = directory;
+        this.repository = repository;
+    }
+
+    /**
+     * Creates a cache stored in a local directory, the cache of every image is stored in a subdirectory named after
+     * its cache key.
+     *
+     * @param directory the directory of the cache
+     * @return the cache
+     */
+    public static ImageBuildCache local(Path directory) {
+        return new ImageBuildCache(Objects.requireNonNull(directory, "The cache directory can't be null"), null);
+    }
+
+    /**
+     * Creates a cache stored in a registry, the cache of every image is stored in the repository under a tag equal to
+     * its cache key.
+     *
+     * @param repository the repository of the cache, e.g. {@code 123456789012.dkr.ecr.eu-west-1.amazonaws.com/cache}
+     * @return the cache
+     */
+    public static ImageBuildCache registry(String repository) {
+        return new ImageBuildCache(null, Objects.requireNonNull(repository, "The cache repository can't be null"));
+    }
+
+    /**
+     * Returns the directory of the cache or {@code null} if the cache is stored in a registry.
+     *
+     * @return the directory
+     */
+    @Nullable
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the repository of the cache or {@code null} if the cache is stored in a local directory.
+     *
+     * @return the repository
+     */
+    @Nullable
+    public String getRepository() {
+        return repository;
+    }
+
+    /**
+     * Returns the value of the {@code --cache-from} option of the build.
+     *
+     * @param key the cache key of the image
+     * @return the cache source or empty if there is nothing to import yet
+     */
+    public Optional<String> getCacheFrom(String key) {
+        if (directory != null) {
+            Path entry = directory.resolve(key);
+            return Files.exists(entry.resolve("index.json"))
+                    ? Optional.of("type=local,src=" + entry)
+                    : Optional.empty();
+        }
+        return Optional.of("type=registry,ref=" + repository + ":" + key);
+    }
+
+    /**
+     * Returns the value of the {@code --cache-to} option of the build. All the layers including the ones of the
+     * intermediate stages are exported.
+     *
+     * @param key the cache key of the image
+     * @return the cache destination
+     */
+    public String getCacheTo(String key) {
+        if (directory != null) {
+            // The local exporter never removes the blobs that are no longer referenced, so the cache is exported to a
+            // new directory replacing the previous one once the build succeeds
+            return "type=local,mode=max,dest=" + directory.resolve(key + NEW_ENTRY_SUFFIX);
+        }
+        // ECR accepts the cache only if it's stored as an image manifest
+        return "type=registry,mode=max,image-manifest=true,oci-mediatypes=true,ref=" + repository + ":" + key;
+    }
+
+    /**
+     * Completes the export of the cache of an image once the build has succeeded. The image has been built
+     * regardless of the cache, so a failure to replace the entry is only logged, the next build just doesn't reuse
+     * the layers of this one.
+     *
+     * @param key the cache key of the image
+     */
+    public void complete(String key) {
+        if (directory == null) {
+            return;
+        }
+        Path newEntry = directory.resolve(key + NEW_ENTRY_SUFFIX);
+        if (!Files.exists(newEntry)) {
+            return;
+        }
+        Path entry = directory.resolve(key);
+        try {
+            delete(entry);
+            Files.move(newEntry, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Unable to replace the image build cache {}: {}", entry, e.getMessage());
+        }
+    }
+
+    /**
+     * Generates the cache key of an image. The key doesn't depend on the content of the Docker context, so that the
+     * next build of a changed image reuses the layers of the previous one. Instead, the image is identified by the
+     * repository it's published to along with its Dockerfile, target and build arguments. The images built from the
+     * same Dockerfile template are kept apart as long as they are published to different repositories (e.g. by a
+     * synthesizer creating a repository for every image), the images sharing a repository and a template share the
+     * cache entry.
+     *
+     * @param repositoryName the name of the repository the image is published to
+     * @param dockerfile the Dockerfile of the image
+     * @param target the build target or {@code null} if the last stage is built
+     * @param arguments the build arguments or {@code null} if there are no arguments
+     * @return the cache key
+     */
+    public static String generateKey(String repositoryName, Path dockerfile, @Nullable String target,
+                                     @Nullable Map<String, String> arguments) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(repositoryName, StandardCharsets.UTF_8).putByte((byte) 0);
+        try {
+            hasher.putBytes(Files.readAllBytes(dockerfile));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the Dockerfile " + dockerfile, e);
+        }
+        hasher.putString(target != null ? target : "", StandardCharsets.UTF_8);
+        if (arguments != null) {
+            new TreeMap<>(arguments).forEach((name, value) -> hasher.putByte((byte) 0)
+                    .putString(name, StandardCharsets.UTF_8)
+                    .putByte((byte) 0)
+                    .putString(value, StandardCharsets.UTF_8));
+        }
+
+        String prefix = target != null ? target.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_.-]", "-") : "image";
+        return prefix + "-" + hasher.hash().toString().substring(0, 16);
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return directory != null ? "local(" + directory + ")" : "registry(" + repository + ")";
+    }
+}
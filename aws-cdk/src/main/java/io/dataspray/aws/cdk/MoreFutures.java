@@ -0,0 +1,82 @@
+package io.dataspray.aws.cdk;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Contains additional utilities for {@link CompletableFuture}.
+ */
+public final class MoreFutures {
+
+    private MoreFutures() {
+    }
+
+    /**
+     * Waits for the future to complete and returns its result. Unlike {@link CompletableFuture#join()}, the exception
+     * the future has been completed with is rethrown as is (if it's unchecked) instead of being wrapped into
+     * {@link CompletionException}.
+     *
+     * @param future the future to wait for
+     * @param <T> the type of the result
+     * @return the result of the future
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CdkException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Returns a future completed exceptionally with the given exception.
+     *
+     * @param throwable the failure
+     * @param <T> the type of the result
+     * @return the failed future
+     */
+    public static <T> CompletableFuture<T> failed(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    /**
+     * Calls the supplier in the current thread and returns its result as a completed future. If the supplier fails,
+     * the returned future is completed exceptionally.
+     *
+     * @param supplier the supplier of the result
+     * @param <T> the type of the result
+     * @return the future completed with the result of the supplier
+     */
+    public static <T> CompletableFuture<T> call(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.completedFuture(supplier.get());
+        } catch (Exception e) {
+            return failed(e);
+        }
+    }
+
+    /**
+     * Returns the actual cause of a failure, i.e. unwraps {@link CompletionException} and {@link ExecutionException}.
+     *
+     * @param throwable the failure
+     * @return the actual cause of the failure
+     */
+    public static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,56 @@
+package io.dataspray.aws.cdk;
+
+import java.time.Duration;
+
+/**
+ * Determines how often the status of a stack is checked while waiting for the stack to reach a stable state.
+ */
+public interface PollingStrategy {
+
+    /**
+     * Returns the delay before the next status check.
+     *
+     * @param attempt the number of consecutive checks that haven't observed any progress of the stack (i.e. neither
+     * new stack events nor a change of the stack status), starting from zero
+     * @return the delay before the next check
+     */
+    Duration getDelay(int attempt);
+
+    /**
+     * Returns a strategy checking the status of a stack periodically with the given period.
+     *
+     * @param period the delay between the checks
+     * @return the polling strategy
+     */
+    static PollingStrategy fixed(Duration period) {
+        if (period.isNegative()) {
+            throw new IllegalArgumentException("The period must be equal or greater than zero");
+        }
+        return attempt -> period;
+    }
+
+    /**
+     * Returns a strategy starting with the given delay that is then increased exponentially up to the maximum delay
+     * while the stack doesn't make any progress.
+     *
+     * @param initialDelay the delay before the first check
+     * @param maxDelay the maximum delay between the checks
+     * @return the polling strategy
+     */
+    static PollingStrategy exponentialBackoff(Duration initialDelay, Duration maxDelay) {
+        return ExponentialBackoffPollingStrategy.builder()
+                .withInitialDelay(initialDelay)
+                .withMaxDelay(maxDelay)
+                .build();
+    }
+
+    /**
+     * Returns the default strategy: the first checks are made every second, the delay is then increased exponentially
+     * up to 15 seconds and reset back as soon as the stack makes a progress.
+     *
+     * @return the default polling strategy
+     */
+    static PollingStrategy defaultStrategy() {
+        return ExponentialBackoffPollingStrategy.builder().build();
+    }
+}
@@ -0,0 +1,154 @@
+package io.dataspray.aws.cdk;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on an executor with a bounded concurrency. Once a slot is available, the queued task with the highest
+ * priority is started, the tasks with the same priority are started in the order of submission. An asynchronous task
+ * occupies its slot until its future is completed without occupying a thread of the executor.
+ */
+class PriorityTaskQueue {
+
+    private final Executor executor;
+    private final int maxConcurrency;
+    private final PriorityQueue<Task<?>> queue;
+    private long sequence;
+    private int running;
+    private boolean cancelled;
+
+    PriorityTaskQueue(Executor executor, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("The maximum concurrency must be greater than zero");
+        }
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+        this.queue = new PriorityQueue<>(Comparator.<Task<?>>comparingInt(task -> -task.priority)
+                .thenComparingLong(task -> task.sequence));
+    }
+
+    /**
+     * Queues the task.
+     *
+     * @param priority the priority of the task, the higher the value the sooner the task is started
+     * @param supplier the task
+     * @param <T> the type of the result
+     * @return a future completed with the result of the task
+     */
+    <T> CompletableFuture<T> submit(int priority, Supplier<T> supplier) {
+        return submitAsync(priority, () -> CompletableFuture.completedFuture(supplier.get()));
+    }
+
+    /**
+     * Queues the asynchronous task. The task is started by a thread of the executor and holds its slot until the
+     * returned future is completed.
+     *
+     * @param priority the priority of the task, the higher the value the sooner the task is started
+     * @param supplier the task
+     * @param <T> the type of the result
+     * @return a future completed with the result of the task
+     */
+    <T> CompletableFuture<T> submitAsync(int priority, Supplier<CompletableFuture<T>> supplier) {
+        Task<T> task;
+        boolean accepted;
+        synchronized (this) {
+            task = new Task<>(priority, sequence++, supplier);
+            accepted = !cancelled;
+            if (accepted) {
+                queue.add(task);
+            }
+        }
+        if (!accepted) {
+            task.future.cancel(false);
+        }
+        drain();
+        return task.future;
+    }
+
+    CompletableFuture<Void> submit(int priority, Runnable runnable) {
+        return submit(priority, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * Cancels the tasks that haven't been started yet as well as all the tasks submitted later. The tasks in progress
+     * are allowed to complete.
+     */
+    void cancel() {
+        List<Task<?>> tasks;
+        synchronized (this) {
+            cancelled = true;
+            tasks = new ArrayList<>(queue);
+            queue.clear();
+        }
+        tasks.forEach(task -> task.future.cancel(false));
+    }
+
+    private void drain() {
+        List<Task<?>> tasks = new ArrayList<>();
+        synchronized (this) {
+            while (running < maxConcurrency && !queue.isEmpty()) {
+                running++;
+                tasks.add(queue.poll());
+            }
+        }
+        for (Task<?> task : tasks) {
+            try {
+                executor.execute(() -> run(task));
+            } catch (Exception e) {
+                task.future.completeExceptionally(e);
+                release();
+            }
+        }
+    }
+
+    private <T> void run(Task<T> task) {
+        CompletableFuture<T> result;
+        try {
+            result = Objects.requireNonNull(task.supplier.get(), "The task has returned no future");
+        } catch (Throwable e) {
+            result = MoreFutures.failed(e);
+        }
+        result.whenComplete((value, e) -> {
+            try {
+                if (e != null) {
+                    task.future.completeExceptionally(MoreFutures.unwrap(e));
+                } else {
+                    task.future.complete(value);
+                }
+            } finally {
+                release();
+            }
+        });
+    }
+
+    private void release() {
+        synchronized (this) {
+            running--;
+        }
+        drain();
+    }
+
+    private static class Task<T> {
+
+        private final int priority;
+        private final long sequence;
+        private final Supplier<CompletableFuture<T>> supplier;
+        private final CompletableFuture<T> future;
+
+        private Task(int priority, long sequence, Supplier<CompletableFuture<T>> supplier) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.supplier = supplier;
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
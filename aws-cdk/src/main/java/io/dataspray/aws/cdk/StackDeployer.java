@@ -1,24 +1,32 @@
 package io.dataspray.aws.cdk;
 
 import com.google.common.collect.Streams;
-import com.google.common.hash.Hashing;
-import com.google.common.io.ByteSource;
-import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
-import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
+import software.amazon.awssdk.services.cloudformation.model.ChangeSetStatus;
+import software.amazon.awssdk.services.cloudformation.model.ChangeSetType;
 import software.amazon.awssdk.services.cloudformation.model.CloudFormationException;
+import software.amazon.awssdk.services.cloudformation.model.ExecutionStatus;
 import software.amazon.awssdk.services.cloudformation.model.Output;
 import software.amazon.awssdk.services.cloudformation.model.Stack;
 import software.amazon.awssdk.services.cloudformation.model.StackStatus;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Deploys stacks to a single environment. The stack operations don't block any thread while waiting for the stacks to
+ * reach a stable state, only the upload of large templates is performed by the executor of the given provider.
+ */
 public class StackDeployer {
 
     private static final Logger logger = LoggerFactory.getLogger(StackDeployer.class);
@@ -27,54 +35,204 @@ public class StackDeployer {
     private static final String BUCKET_NAME_OUTPUT = "BucketName";
     private static final String BUCKET_DOMAIN_NAME_OUTPUT = "BucketDomainName";
     private static final int MAX_TEMPLATE_SIZE = 50 * 1024;
+    private static final String CHANGE_SET_NAME_PREFIX = "aws-cdk-";
 
-    private final CloudFormationClient client;
+    private final CloudFormationAsyncClient client;
     private final Path cloudAssemblyDirectory;
     private final ResolvedEnvironment environment;
     private final ToolkitConfiguration toolkitConfiguration;
     private final FileAssetPublisher fileAssetPublisher;
     private final DockerImageAssetPublisher dockerImagePublisher;
     private final Set<String> notificationArns;
+    private final PollingStrategy pollingStrategy;
+    private final ExecutorProvider executorProvider;
+    private final TemplateSerializer templateSerializer;
+    private CompletableFuture<Stack> toolkitStack;
 
     public StackDeployer(Path cloudAssemblyDirectory,
                          ResolvedEnvironment environment,
                          ToolkitConfiguration toolkitConfiguration,
                          FileAssetPublisher fileAssetPublisher,
                          DockerImageAssetPublisher dockerImagePublisher,
-                         Set<String> notificationArns) {
+                         Set<String> notificationArns,
+                         PollingStrategy pollingStrategy,
+                         ExecutorProvider executorProvider) {
         this.cloudAssemblyDirectory = cloudAssemblyDirectory;
         this.environment = environment;
         this.toolkitConfiguration = toolkitConfiguration;
         this.fileAssetPublisher = fileAssetPublisher;
         this.dockerImagePublisher = dockerImagePublisher;
         this.notificationArns = notificationArns;
-        this.client = CloudFormationClientProvider.get(environment);
+        this.pollingStrategy = pollingStrategy;
+        this.executorProvider = executorProvider;
+        this.templateSerializer = new TemplateSerializer();
+        this.client = CloudFormationClientProvider.getAsync(environment);
     }
 
     public Stack deploy(StackDefinition stackDefinition, Map<String, ParameterValue> assetParameters, Map<String, String> parameters, Map<String, String> tags) {
+        return MoreFutures.join(deployAsync(stackDefinition, assetParameters, parameters, tags));
+    }
+
+    public CompletableFuture<Stack> deployAsync(StackDefinition stackDefinition, Map<String, ParameterValue> assetParameters, Map<String, String> parameters, Map<String, String> tags) {
+        return deployAsync(stackDefinition, assetParameters, parameters, tags, null);
+    }
+
+    /**
+     * Deploys the stack. If the fingerprint is specified, it's stored as an output of the stack so the next deployment
+     * can be skipped if nothing changes.
+     */
+    public CompletableFuture<Stack> deployAsync(StackDefinition stackDefinition, Map<String, ParameterValue> assetParameters, Map<String, String> parameters, Map<String, String> tags, @Nullable String fingerprint) {
         String stackName = stackDefinition.getStackName();
         logger.info("Deploying '{}' stack", stackName);
 
-        Map<String, ParameterValue> stackParameters = new HashMap<>();
-        Stack deployedStack = Stacks.findStack(client, stackName).orElse(null);
-        if (deployedStack != null) {
-            if (Stacks.isInProgress(deployedStack)) {
-                logger.info("Waiting until stack '{}' reaches stable state", deployedStack.stackName());
-                deployedStack = awaitCompletion(deployedStack);
-            }
-            if (deployedStack.stackStatus() == StackStatus.ROLLBACK_COMPLETE || deployedStack.stackStatus() == StackStatus.ROLLBACK_FAILED) {
-                logger.warn("The stack '{}' is in {} state after unsuccessful creation. The stack will be deleted " +
-                        "and re-created.", stackName, deployedStack.stackStatus());
-                deployedStack = Stacks.awaitCompletion(client, Stacks.deleteStack(client, deployedStack.stackName()));
-            }
-            if (Stacks.isFailed(deployedStack)) {
-                throw StackDeploymentException.builder(stackName, environment)
-                        .withCause("The stack '" + stackName + "' is in the failed state " + deployedStack.stackStatus())
+        return findStableStack(stackName).thenCompose(this::deleteReviewedStack).thenCompose(deployedStack -> {
+            Map<String, ParameterValue> effectiveParameters = getEffectiveParameters(stackDefinition, deployedStack, assetParameters, parameters);
+            return getTemplateRef(stackDefinition, fingerprint)
+                    .thenCompose(templateRef -> createOrUpdate(stackName, deployedStack, templateRef, effectiveParameters, tags));
+        });
+    }
+
+    /**
+     * Creates a change set for the stack without touching the stack itself. The returned change set is empty if the
+     * stack is up to date (the empty change set is deleted right away). If the fingerprint is specified, it's stored as
+     * an output of the stack.
+     */
+    public CompletableFuture<ChangeSet> createChangeSetAsync(StackDefinition stackDefinition, Map<String, ParameterValue> assetParameters, Map<String, String> parameters, Map<String, String> tags, @Nullable String fingerprint) {
+        String stackName = stackDefinition.getStackName();
+        logger.info("Creating a change set for '{}' stack", stackName);
+
+        return findStableStack(stackName).thenCompose(deployedStack -> {
+            Map<String, ParameterValue> effectiveParameters = getEffectiveParameters(stackDefinition, deployedStack, assetParameters, parameters);
+            boolean exists = deployedStack != null && deployedStack.stackStatus() != StackStatus.DELETE_COMPLETE &&
+                    !Stacks.isInReview(deployedStack);
+            ChangeSetType changeSetType = exists ? ChangeSetType.UPDATE : ChangeSetType.CREATE;
+            String changeSetName = CHANGE_SET_NAME_PREFIX + System.currentTimeMillis();
+            return getTemplateRef(stackDefinition, fingerprint)
+                    .thenCompose(templateRef -> Stacks.createChangeSet(client, stackName, changeSetName, changeSetType,
+                            templateRef, effectiveParameters, tags, notificationArns))
+                    .thenCompose(response -> Stacks.awaitChangeSet(client, response.id(), pollingStrategy, executorProvider))
+                    .thenCompose(changeSet -> {
+                        if (changeSet.status() == ChangeSetStatus.CREATE_COMPLETE) {
+                            return CompletableFuture.completedFuture(ChangeSet.of(stackName, changeSet.stackId(),
+                                    changeSet.changeSetId(), changeSetType, exists ? deployedStack : null));
+                        }
+                        if (exists && Stacks.isEmpty(changeSet)) {
+                            logger.info("No changes of the '{}' stack are detected. The deployment will be skipped", stackName);
+                            return Stacks.deleteChangeSet(client, changeSet.changeSetId())
+                                    .thenApply(ignored -> ChangeSet.empty(stackName, deployedStack));
+                        }
+                        // The stack created along with a failed CREATE change set would otherwise stay in the review
+                        // state and block the next deployment
+                        return Stacks.deleteChangeSet(client, changeSet.changeSetId())
+                                .thenCompose(ignored -> changeSetType == ChangeSetType.CREATE
+                                        ? Stacks.deleteStack(client, changeSet.stackId()).thenAccept(stack -> {})
+                                        : CompletableFuture.<Void>completedFuture(null))
+                                .handle((ignored, e) -> {
+                                    throw StackDeploymentException.builder(stackName, environment)
+                                            .withCause("The creation of the change set has failed: " + changeSet.statusReason())
+                                            .build();
+                                });
+                    });
+        });
+    }
+
+    /**
+     * Executes the change set and waits until the stack is deployed. Nothing is done for an empty change set.
+     * The stack may still be reported in its previous state right after the execution is requested, so the stack is
+     * awaited only once the execution is reflected by it.
+     */
+    public CompletableFuture<Stack> executeChangeSetAsync(ChangeSet changeSet) {
+        if (changeSet.isEmpty()) {
+            return CompletableFuture.completedFuture(changeSet.getDeployedStack().orElse(null));
+        }
+        logger.info("Executing the change set of '{}' stack", changeSet.getStackName());
+        return Stacks.executeChangeSet(client, changeSet.getStackId(), changeSet.getChangeSetId().get())
+                .thenCompose(stack -> awaitExecution(changeSet, stack, 0))
+                .thenCompose(stack -> awaitDeployment(changeSet.getStackName(), stack));
+    }
+
+    /**
+     * Waits until the stack picks up the execution of the change set: a stack created by the change set leaves the
+     * review state, an existing stack gets a newer last update time. Fails if the execution of the change set fails
+     * before the stack is touched.
+     */
+    private CompletableFuture<Stack> awaitExecution(ChangeSet changeSet, Stack stack, int attempt) {
+        if (isExecutionStarted(changeSet, stack)) {
+            return CompletableFuture.completedFuture(stack);
+        }
+        return Stacks.describeChangeSet(client, changeSet.getChangeSetId().get()).thenCompose(description -> {
+            if (description.executionStatus() == ExecutionStatus.EXECUTE_FAILED ||
+                    description.executionStatus() == ExecutionStatus.OBSOLETE) {
+                throw StackDeploymentException.builder(changeSet.getStackName(), environment)
+                        .withCause("The execution of the change set has failed: " + description.statusReason())
                         .build();
             }
-            if (deployedStack.stackStatus() != StackStatus.DELETE_COMPLETE) {
-                deployedStack.parameters().forEach(p -> stackParameters.put(p.parameterKey(), ParameterValue.unchanged()));
+            CompletableFuture<Void> delay = new CompletableFuture<>();
+            executorProvider.getScheduler().schedule(() -> delay.complete(null),
+                    pollingStrategy.getDelay(attempt).toNanos(), TimeUnit.NANOSECONDS);
+            return delay
+                    .thenCompose(ignored -> Stacks.getStack(client, changeSet.getStackId()))
+                    .thenCompose(updatedStack -> awaitExecution(changeSet, updatedStack, attempt + 1));
+        });
+    }
+
+    private static boolean isExecutionStarted(ChangeSet changeSet, Stack stack) {
+        Stack deployedStack = changeSet.getDeployedStack().orElse(null);
+        if (deployedStack == null) {
+            return !Stacks.isInReview(stack);
+        }
+        return stack.lastUpdatedTime() != null && (deployedStack.lastUpdatedTime() == null ||
+                stack.lastUpdatedTime().isAfter(deployedStack.lastUpdatedTime()));
+    }
+
+    /**
+     * Deletes the change set that won't be executed. If the stack has been created only for the change set, the stack
+     * is deleted too.
+     */
+    public CompletableFuture<Void> discardChangeSetAsync(ChangeSet changeSet) {
+        if (changeSet.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        logger.info("Deleting the change set of '{}' stack", changeSet.getStackName());
+        return Stacks.deleteChangeSet(client, changeSet.getChangeSetId().get()).thenCompose(ignored -> {
+            if (changeSet.getType().orElse(null) == ChangeSetType.CREATE) {
+                return Stacks.deleteStack(client, changeSet.getStackId()).thenAccept(stack -> {});
             }
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Returns the deployed stack once it is in a stable state or {@code null} if the stack doesn't exist.
+     */
+    private CompletableFuture<Stack> findStableStack(String stackName) {
+        return Stacks.findStack(client, stackName)
+                .thenCompose(deployedStack -> deployedStack.isPresent()
+                        ? awaitStableState(stackName, deployedStack.get())
+                        : CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Deletes the stack created by a change set that has never been executed, such a stack can't be updated.
+     */
+    private CompletableFuture<Stack> deleteReviewedStack(@Nullable Stack deployedStack) {
+        if (deployedStack == null || !Stacks.isInReview(deployedStack)) {
+            return CompletableFuture.completedFuture(deployedStack);
+        }
+        logger.info("The stack '{}' has been created by a change set that hasn't been executed. The stack will be " +
+                "deleted and re-created.", deployedStack.stackName());
+        return Stacks.deleteStack(client, deployedStack.stackId())
+                .thenCompose(deletedStack -> Stacks.awaitCompletion(client, deletedStack, null, null,
+                        pollingStrategy, executorProvider));
+    }
+
+    private Map<String, ParameterValue> getEffectiveParameters(StackDefinition stackDefinition,
+                                                               Stack deployedStack,
+                                                               Map<String, ParameterValue> assetParameters,
+                                                               Map<String, String> parameters) {
+        Map<String, ParameterValue> stackParameters = new HashMap<>();
+        if (deployedStack != null && deployedStack.stackStatus() != StackStatus.DELETE_COMPLETE) {
+            deployedStack.parameters().forEach(p -> stackParameters.put(p.parameterKey(), ParameterValue.unchanged()));
         }
 
         Streams.concat(stackDefinition.getParameterValues().entrySet().stream(), parameters.entrySet().stream())
@@ -87,8 +245,6 @@ public class StackDeployer {
                 .filter(parameter -> stackDefinition.getParameters().containsKey(parameter.getKey()))
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 
-        TemplateRef templateRef = getTemplateRef(stackDefinition);
-
         List<String> missingParameters = stackDefinition.getParameters().values().stream()
                 .filter(parameterDefinition -> parameterDefinition.getDefaultValue() == null)
                 .filter(parameterDefinition -> !effectiveParameters.containsKey(parameterDefinition.getName()))
@@ -96,49 +252,101 @@ public class StackDeployer {
                 .collect(Collectors.toList());
 
         if (!missingParameters.isEmpty()) {
-            throw StackDeploymentException.builder(stackName, environment)
+            throw StackDeploymentException.builder(stackDefinition.getStackName(), environment)
                     .withCause("The values for the following template parameters are missing: " + String.join(", ", missingParameters))
                     .build();
         }
+        return effectiveParameters;
+    }
 
-        boolean updated = true;
-        Stack stack;
-        if (deployedStack != null && deployedStack.stackStatus() != StackStatus.DELETE_COMPLETE) {
-            try {
-                stack = Stacks.updateStack(client, stackName, templateRef, effectiveParameters, tags, notificationArns);
-            } catch (CloudFormationException e) {
-                AwsErrorDetails errorDetails = e.awsErrorDetails();
-                if (!errorDetails.errorCode().equals("ValidationError") ||
-                        !errorDetails.errorMessage().startsWith("No updates are to be performed")) {
-                    throw e;
-                }
-                logger.info("No changes of the '{}' stack are detected. The deployment will be skipped", stackName);
-                stack = deployedStack;
-                updated = false;
-            }
+    /**
+     * Waits until the deployed stack reaches a stable state and deletes it if it can't be updated (i.e. its creation
+     * has failed).
+     */
+    private CompletableFuture<Stack> awaitStableState(String stackName, Stack deployedStack) {
+        CompletableFuture<Stack> stableStack;
+        // The stack left in the review state by a change set is stable, it's deleted before the deployment
+        if (Stacks.isInProgress(deployedStack) && !Stacks.isInReview(deployedStack)) {
+            logger.info("Waiting until stack '{}' reaches stable state", deployedStack.stackName());
+            stableStack = awaitCompletion(deployedStack);
         } else {
-            stack = Stacks.createStack(client, stackName, templateRef, effectiveParameters, tags, notificationArns);
+            stableStack = CompletableFuture.completedFuture(deployedStack);
         }
+        return stableStack
+                .thenCompose(stack -> {
+                    if (stack.stackStatus() == StackStatus.ROLLBACK_COMPLETE || stack.stackStatus() == StackStatus.ROLLBACK_FAILED) {
+                        logger.warn("The stack '{}' is in {} state after unsuccessful creation. The stack will be deleted " +
+                                "and re-created.", stackName, stack.stackStatus());
+                        return Stacks.deleteStack(client, stack.stackName())
+                                .thenCompose(deletedStack -> Stacks.awaitCompletion(client, deletedStack, null, null,
+                                        pollingStrategy, executorProvider));
+                    }
+                    return CompletableFuture.completedFuture(stack);
+                })
+                .thenApply(stack -> {
+                    if (Stacks.isFailed(stack)) {
+                        throw StackDeploymentException.builder(stackName, environment)
+                                .withCause("The stack '" + stackName + "' is in the failed state " + stack.stackStatus())
+                                .build();
+                    }
+                    return stack;
+                });
+    }
 
-        if (updated) {
-            if (!Stacks.isCompleted(stack)) {
-                logger.info("Waiting until '{}' reaches stable state", stackName);
-                stack = awaitCompletion(stack);
-            }
-            if (Stacks.isFailed(stack)) {
+    private CompletableFuture<Stack> createOrUpdate(String stackName,
+                                                    Stack deployedStack,
+                                                    TemplateRef templateRef,
+                                                    Map<String, ParameterValue> effectiveParameters,
+                                                    Map<String, String> tags) {
+        if (deployedStack == null || deployedStack.stackStatus() == StackStatus.DELETE_COMPLETE) {
+            return Stacks.createStack(client, stackName, templateRef, effectiveParameters, tags, notificationArns)
+                    .thenCompose(stack -> awaitDeployment(stackName, stack));
+        }
+
+        return Stacks.updateStack(client, stackName, templateRef, effectiveParameters, tags, notificationArns)
+                .handle((stack, e) -> {
+                    if (e == null) {
+                        return stack;
+                    }
+                    Throwable cause = MoreFutures.unwrap(e);
+                    if (!(cause instanceof CloudFormationException)) {
+                        throw new CompletionException(cause);
+                    }
+                    AwsErrorDetails errorDetails = ((CloudFormationException) cause).awsErrorDetails();
+                    if (!errorDetails.errorCode().equals("ValidationError") ||
+                            !errorDetails.errorMessage().startsWith("No updates are to be performed")) {
+                        throw new CompletionException(cause);
+                    }
+                    logger.info("No changes of the '{}' stack are detected. The deployment will be skipped", stackName);
+                    return null;
+                })
+                .thenCompose(stack -> stack != null
+                        ? awaitDeployment(stackName, stack)
+                        : CompletableFuture.completedFuture(deployedStack));
+    }
+
+    private CompletableFuture<Stack> awaitDeployment(String stackName, Stack stack) {
+        CompletableFuture<Stack> completedStack;
+        if (!Stacks.isCompleted(stack)) {
+            logger.info("Waiting until '{}' reaches stable state", stackName);
+            completedStack = awaitCompletion(stack);
+        } else {
+            completedStack = CompletableFuture.completedFuture(stack);
+        }
+        return completedStack.thenApply(deployedStack -> {
+            if (Stacks.isFailed(deployedStack)) {
                 throw StackDeploymentException.builder(stackName, environment)
-                        .withCause("The deployment has failed: " + stack.stackStatus())
+                        .withCause("The deployment has failed: " + deployedStack.stackStatus())
                         .build();
             }
-            if (Stacks.isRolledBack(stack)) {
+            if (Stacks.isRolledBack(deployedStack)) {
                 throw StackDeploymentException.builder(stackName, environment)
                         .withCause("The deployment has been unsuccessful, the stack has been rolled back to its previous state")
                         .build();
             }
             logger.info("The stack '{}' has been successfully deployed", stackName);
-        }
-
-        return stack;
+            return deployedStack;
+        });
     }
 
     public ResolvedEnvironment getEnvironment() {
@@ -149,91 +357,125 @@ public class StackDeployer {
         return toolkitConfiguration;
     }
 
-    private TemplateRef getTemplateRef(StackDefinition stackDefinition) {
-        Map<String, Object> template = stackDefinition.getTemplate();
-        String templateStr;
+    /**
+     * Describes all the stacks of the environment at once.
+     *
+     * @return a future completed with the deployed stacks by their names
+     */
+    public CompletableFuture<Map<String, Stack>> findDeployedStacks() {
+        return Stacks.listStacks(client).thenApply(stacks -> stacks.stream()
+                .collect(Collectors.toMap(Stack::stackName, stack -> stack, (first, second) -> first)));
+    }
+
+    private CompletableFuture<TemplateRef> getTemplateRef(StackDefinition stackDefinition, @Nullable String fingerprint) {
+        Map<String, Object> template = fingerprint != null
+                ? StackFingerprint.addOutput(stackDefinition.getTemplate(), fingerprint)
+                : stackDefinition.getTemplate();
+        TemplateSerializer.SerializedTemplate serializedTemplate;
         try {
-            templateStr = new Gson().toJson(template);
+            serializedTemplate = templateSerializer.serialize(template, MAX_TEMPLATE_SIZE);
         } catch (Exception e) {
             throw StackDeploymentException.builder(stackDefinition.getStackName(), environment)
                     .withCause("Unable to parse template as json")
                     .withCause(e)
                     .build();
         }
-        byte[] templateBytes = templateStr.getBytes(StandardCharsets.UTF_8);
-        TemplateRef templateRef = null;
 
-        if (templateBytes.length <= MAX_TEMPLATE_SIZE) {
-            templateRef = TemplateRef.fromString(templateStr);
+        if (serializedTemplate.getBody() != null) {
+            return CompletableFuture.completedFuture(TemplateRef.fromString(serializedTemplate.getBody()));
         }
 
-        if (templateRef == null) {
-            Toolkit toolkit = getToolkit(stackDefinition);
-            String contentHash;
-            try {
-                contentHash = hash(templateBytes);
-            } catch (IOException e) {
-                throw StackDeploymentException.builder(stackDefinition.getStackName(), environment)
-                        .withCause("Unable to hash the template")
-                        .withCause(e)
-                        .build();
-            }
-
+        return getToolkitAsync(stackDefinition).thenCompose(toolkit -> {
+            String contentHash = serializedTemplate.getHash();
             String objectName = "cdk/" + stackDefinition.getStackName() + "/" + contentHash + ".json";
 
+            CompletableFuture<Void> upload;
             try {
-                fileAssetPublisher.publish(templateBytes, objectName, toolkit.getBucketName(), environment);
-            } catch (IOException e) {
-                throw StackDeploymentException.builder(stackDefinition.getStackName(), environment)
-                        .withCause("An error occurred while uploading the template to the deployment bucket")
-                        .withCause(e)
-                        .build();
-            } catch (CdkException e) {
-                throw StackDeploymentException.builder(stackDefinition.getStackName(), environment)
-                        .withCause(e.getMessage())
-                        .withCause(e.getCause())
-                        .build();
+                upload = fileAssetPublisher.publishAsync(serializedTemplate.getBytes(), objectName,
+                        toolkit.getBucketName(), environment);
             } catch (Exception e) {
-                throw StackDeploymentException.builder(stackDefinition.getStackName(), environment)
-                        .withCause(e)
-                        .build();
+                upload = MoreFutures.failed(e);
             }
+            return upload.handle((ignored, e) -> {
+                if (e != null) {
+                    throw toTemplateUploadException(stackDefinition, MoreFutures.unwrap(e));
+                }
+                return TemplateRef.fromUrl("https://" + toolkit.getBucketDomainName() + "/" + objectName);
+            });
+        });
+    }
 
-            templateRef = TemplateRef.fromUrl("https://" + toolkit.getBucketDomainName() + "/" + objectName);
+    private StackDeploymentException toTemplateUploadException(StackDefinition stackDefinition, Throwable e) {
+        if (e instanceof IOException) {
+            return StackDeploymentException.builder(stackDefinition.getStackName(), environment)
+                    .withCause("An error occurred while uploading the template to the deployment bucket")
+                    .withCause(e)
+                    .build();
         }
-
-        return templateRef;
+        if (e instanceof CdkException) {
+            return StackDeploymentException.builder(stackDefinition.getStackName(), environment)
+                    .withCause(e.getMessage())
+                    .withCause(e.getCause())
+                    .build();
+        }
+        return StackDeploymentException.builder(stackDefinition.getStackName(), environment)
+                .withCause(e)
+                .build();
     }
 
     public Optional<Stack> destroy(StackDefinition stackDefinition) {
-        Stack stack = Stacks.findStack(client, stackDefinition.getStackName()).orElse(null);
-        if (stack != null && stack.stackStatus() != StackStatus.DELETE_COMPLETE) {
-            logger.info("The stack '${} is being deleted, awaiting until the operation is completed", stackDefinition.getStackName());
-            stack = awaitCompletion(Stacks.deleteStack(client, stack.stackId()));
-            if (stack.stackStatus() != StackStatus.DELETE_COMPLETE) {
-                throw new CdkException("The deletion of '" + stackDefinition.getStackName() + "' stack has failed: " + stack.stackStatus());
+        return MoreFutures.join(destroyAsync(stackDefinition));
+    }
+
+    public CompletableFuture<Optional<Stack>> destroyAsync(StackDefinition stackDefinition) {
+        return Stacks.findStack(client, stackDefinition.getStackName()).thenCompose(deployedStack -> {
+            Stack stack = deployedStack.orElse(null);
+            if (stack == null || stack.stackStatus() == StackStatus.DELETE_COMPLETE) {
+                logger.warn("The generated template for the stack '{}' doesn't have any resources defined. The deployment " +
+                        "will be skipped", stackDefinition.getStackName());
+                return CompletableFuture.completedFuture(Optional.ofNullable(stack));
             }
-            logger.info("The stack '{}' has been successfully deleted", stack.stackName());
-        } else {
-            logger.warn("The generated template for the stack '{}' doesn't have any resources defined. The deployment " +
-                    "will be skipped", stackDefinition.getStackName());
-        }
 
-        return Optional.ofNullable(stack);
+            logger.info("The stack '${} is being deleted, awaiting until the operation is completed", stackDefinition.getStackName());
+            return Stacks.deleteStack(client, stack.stackId())
+                    .thenCompose(this::awaitCompletion)
+                    .thenApply(deletedStack -> {
+                        if (deletedStack.stackStatus() != StackStatus.DELETE_COMPLETE) {
+                            throw new CdkException("The deletion of '" + stackDefinition.getStackName() + "' stack has failed: " + deletedStack.stackStatus());
+                        }
+                        logger.info("The stack '{}' has been successfully deleted", deletedStack.stackName());
+                        return Optional.of(deletedStack);
+                    });
+        });
     }
 
-    private String hash(byte[] data) throws IOException {
-        return ByteSource.wrap(data).hash(Hashing.sha256()).toString();
+    /**
+     * Returns the toolkit of the environment once it's checked against the requirements of the stack. The toolkit
+     * stack is described once per deployer, i.e. once per environment, and shared by all the stacks.
+     *
+     * @param stack the stack requiring the toolkit
+     * @return a future completed with the toolkit
+     */
+    public CompletableFuture<Toolkit> getToolkitAsync(StackDefinition stack) {
+        return getToolkitStack().thenApply(toolkitStack -> getToolkit(stack, toolkitStack));
     }
 
-    private Toolkit getToolkit(StackDefinition stack) {
-        Stack toolkitStack = Stacks.findStack(client, toolkitConfiguration.getStackName()).orElse(null);
-        if (toolkitStack != null && Stacks.isInProgress(toolkitStack)) {
-            logger.info("Waiting until toolkit stack reaches stable state, environment={}, stackName={}",
-                    environment, toolkitConfiguration.getStackName());
-            toolkitStack = awaitCompletion(toolkitStack);
+    private synchronized CompletableFuture<Stack> getToolkitStack() {
+        if (toolkitStack == null) {
+            toolkitStack = Stacks.findStack(client, toolkitConfiguration.getStackName())
+                    .thenCompose(deployedStack -> {
+                        if (deployedStack.isPresent() && Stacks.isInProgress(deployedStack.get())) {
+                            logger.info("Waiting until toolkit stack reaches stable state, environment={}, " +
+                                    "stackName={}", environment, toolkitConfiguration.getStackName());
+                            return awaitCompletion(deployedStack.get());
+                        }
+                        return CompletableFuture.completedFuture(deployedStack.orElse(null));
+                    });
         }
+        return toolkitStack;
+    }
 
+    private Toolkit getToolkit(StackDefinition stack, Stack toolkitStack) {
         if (toolkitStack == null || toolkitStack.stackStatus() == StackStatus.DELETE_COMPLETE ||
                 toolkitStack.stackStatus() == StackStatus.ROLLBACK_COMPLETE) {
             throw StackDeploymentException.builder(stack.getStackName(), environment)
@@ -284,14 +526,13 @@ public class StackDeployer {
         return new Toolkit(bucketName, bucketDomainName);
     }
 
-    private Stack awaitCompletion(Stack stack) {
-        Stack completedStack;
+    private CompletableFuture<Stack> awaitCompletion(Stack stack) {
         if (logger.isInfoEnabled()) {
-            completedStack = Stacks.awaitCompletion(client, stack, new LoggingStackEventListener(Stacks.lastChange(stack)));
-        } else {
-            completedStack = Stacks.awaitCompletion(client, stack);
+            Instant notBefore = Stacks.lastChange(stack);
+            return Stacks.awaitCompletion(client, stack, new LoggingStackEventListener(notBefore), notBefore,
+                    pollingStrategy, executorProvider);
         }
-        return completedStack;
+        return Stacks.awaitCompletion(client, stack, null, null, pollingStrategy, executorProvider);
     }
 
 }
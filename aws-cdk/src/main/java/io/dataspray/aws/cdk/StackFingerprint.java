@@ -0,0 +1,133 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import software.amazon.awscdk.cloudassembly.schema.ContainerImageAssetMetadataEntry;
+import software.amazon.awscdk.cloudassembly.schema.FileAssetMetadataEntry;
+import software.amazon.awssdk.services.cloudformation.model.Output;
+import software.amazon.awssdk.services.cloudformation.model.Stack;
+import software.amazon.awssdk.services.cloudformation.model.StackStatus;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Computes a fingerprint of everything that determines the result of a stack deployment: the template, the parameter
+ * values, the tags, the notification ARNs and the hashes of the stack assets. The fingerprint is stored as an output of
+ * the deployed stack, so a stack whose fingerprint hasn't changed since the last successful deployment can be skipped.
+ */
+final class StackFingerprint {
+
+    static final String OUTPUT_KEY = "AwsCdkMavenFingerprint";
+
+    /**
+     * Increment whenever the way the fingerprint is computed changes.
+     */
+    private static final int VERSION = 1;
+
+    private StackFingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint of the stack deployment.
+     *
+     * @param stack the stack definition
+     * @param parameters the input parameters of the deployment
+     * @param tags the tags of the stack
+     * @param notificationArns the notification ARNs of the stack
+     * @return the hex-encoded SHA-256 fingerprint
+     */
+    static String compute(StackDefinition stack,
+                          Map<String, String> parameters,
+                          Map<String, String> tags,
+                          @Nullable Set<String> notificationArns) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putInt(VERSION);
+        putString(hasher, TemplateSerializer.GSON.toJson(stack.getTemplate()));
+
+        // Only the values of the parameters defined in the template have an effect on the deployment
+        Map<String, String> parameterValues = new TreeMap<>();
+        stack.getParameterValues().forEach((key, value) -> putParameter(parameterValues, stack, key, value));
+        parameters.forEach((key, value) -> putParameter(parameterValues, stack, key, value));
+        putMap(hasher, parameterValues);
+        putMap(hasher, new TreeMap<>(tags));
+
+        Set<String> sortedArns = notificationArns != null ? new TreeSet<>(notificationArns) : new TreeSet<>();
+        hasher.putInt(sortedArns.size());
+        sortedArns.forEach(arn -> putString(hasher, arn));
+
+        Map<String, String> assetHashes = new TreeMap<>();
+        for (FileAssetMetadataEntry asset : stack.getFileAssets()) {
+            assetHashes.put("file:" + asset.getId(), asset.getSourceHash());
+        }
+        for (ContainerImageAssetMetadataEntry asset : stack.getImageAssets()) {
+            assetHashes.put("image:" + asset.getId(), asset.getSourceHash());
+        }
+        putMap(hasher, assetHashes);
+
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Returns the fingerprint of the last successful deployment of the stack.
+     *
+     * @param stack the deployed stack
+     * @return the fingerprint or empty if the stack doesn't have a fingerprint or isn't in a successfully deployed state
+     */
+    static Optional<String> find(Stack stack) {
+        if (Stacks.isInProgress(stack) || Stacks.isFailed(stack) || stack.stackStatus() == StackStatus.ROLLBACK_COMPLETE ||
+                stack.stackStatus() == StackStatus.DELETE_COMPLETE) {
+            return Optional.empty();
+        }
+        return Stacks.findOutput(stack, OUTPUT_KEY).map(Output::outputValue);
+    }
+
+    /**
+     * Returns a copy of the template with the fingerprint added as an output.
+     *
+     * @param template the template of the stack
+     * @param fingerprint the fingerprint of the deployment
+     * @return the template with the fingerprint output
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> addOutput(Map<String, Object> template, String fingerprint) {
+        Map<String, Object> outputs = new LinkedHashMap<>();
+        Object templateOutputs = template.get("Outputs");
+        if (templateOutputs instanceof Map) {
+            outputs.putAll((Map<String, Object>) templateOutputs);
+        }
+        outputs.put(OUTPUT_KEY, ImmutableMap.of(
+                "Description", "The fingerprint of the last deployment, used to skip the deployments with no changes",
+                "Value", fingerprint));
+
+        Map<String, Object> fingerprintedTemplate = new LinkedHashMap<>(template);
+        fingerprintedTemplate.put("Outputs", outputs);
+        return fingerprintedTemplate;
+    }
+
+    private static void putParameter(Map<String, String> parameterValues, StackDefinition stack, String key, String value) {
+        if (key != null && value != null && stack.getParameters().containsKey(key)) {
+            parameterValues.put(key, value);
+        }
+    }
+
+    private static void putMap(Hasher hasher, Map<String, String> map) {
+        hasher.putInt(map.size());
+        map.forEach((key, value) -> {
+            putString(hasher, key);
+            putString(hasher, value);
+        });
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        hasher.putInt(value.length());
+        hasher.putString(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,310 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Schedules operations on stacks respecting the dependencies between them. An operation on a stack is started as soon
+ * as the operations on all of its dependencies have completed successfully and the number of operations in progress is
+ * below the configured limits. Besides the overall limit, additional limits can be applied to the groups of stacks,
+ * e.g. to the stacks residing in the same account or region.
+ *
+ * Dependencies on stacks (or other artifacts) that are not part of the scheduled set are considered to be satisfied.
+ * Once an operation fails, no new operations are started; the operations that are already in progress are allowed to
+ * complete before the failure is reported.
+ */
+public class StackScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StackScheduler.class);
+
+    private final int maxConcurrency;
+    private final List<Limit> limits;
+
+    public StackScheduler(int maxConcurrency) {
+        this(maxConcurrency, ImmutableList.of());
+    }
+
+    public StackScheduler(int maxConcurrency, List<Limit> limits) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("The maximum concurrency must be greater than zero");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.limits = ImmutableList.copyOf(limits);
+    }
+
+    /**
+     * Starts the operations on the given stacks.
+     *
+     * @param stacks the stacks to be processed
+     * @param operation an operation to run for every stack
+     * @return a future that is completed once all the operations are completed or exceptionally with the first
+     * failure (the failures of the other operations are added as suppressed exceptions)
+     */
+    public CompletableFuture<Void> schedule(List<StackDefinition> stacks,
+                                            Function<StackDefinition, CompletableFuture<?>> operation) {
+        return new Execution(stacks, operation).start();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the length of the longest chain of the operations that can start only after the operation on the given
+     * stack (including the stack itself). The stacks with the longest chains are on the critical path, delaying them
+     * delays the completion of all the operations.
+     *
+     * @param stacks the stacks to be processed
+     * @return the lengths of the chains by the stack names
+     */
+    public static Map<String, Integer> getCriticalPathLengths(List<StackDefinition> stacks) {
+        Map<String, List<String>> dependents = new HashMap<>();
+        Set<String> stackNames = new HashSet<>();
+        stacks.forEach(stack -> stackNames.add(stack.getStackName()));
+        for (StackDefinition stack : stacks) {
+            for (String dependency : stack.getDependencies()) {
+                if (stackNames.contains(dependency) && !dependency.equals(stack.getStackName())) {
+                    dependents.computeIfAbsent(dependency, name -> new ArrayList<>()).add(stack.getStackName());
+                }
+            }
+        }
+
+        Map<String, Integer> lengths = new HashMap<>();
+        stackNames.forEach(stackName -> getCriticalPathLength(stackName, dependents, lengths, new HashSet<>()));
+        return lengths;
+    }
+
+    private static int getCriticalPathLength(String stackName,
+                                             Map<String, List<String>> dependents,
+                                             Map<String, Integer> lengths,
+                                             Set<String> visiting) {
+        Integer length = lengths.get(stackName);
+        if (length != null) {
+            return length;
+        }
+        if (!visiting.add(stackName)) {
+            // A cycle, which can't be scheduled anyway
+            return 0;
+        }
+        int maxDependentLength = 0;
+        for (String dependent : dependents.getOrDefault(stackName, ImmutableList.of())) {
+            maxDependentLength = Math.max(maxDependentLength, getCriticalPathLength(dependent, dependents, lengths, visiting));
+        }
+        visiting.remove(stackName);
+        lengths.put(stackName, maxDependentLength + 1);
+        return maxDependentLength + 1;
+    }
+
+    /**
+     * A limit of concurrent operations on the stacks belonging to the same group.
+     */
+    public static class Limit {
+
+        private final String name;
+        private final Function<StackDefinition, String> groupFunction;
+        private final int maxConcurrency;
+
+        private Limit(String name, Function<StackDefinition, String> groupFunction, int maxConcurrency) {
+            if (maxConcurrency < 1) {
+                throw new IllegalArgumentException("The maximum concurrency per " + name + " must be greater than zero");
+            }
+            this.name = name;
+            this.groupFunction = groupFunction;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        /**
+         * Creates a limit for the groups of stacks.
+         *
+         * @param name the name of the grouping, e.g. "account"
+         * @param groupFunction a function returning the group the stack belongs to
+         * @param maxConcurrency the maximum number of concurrent operations within a group
+         * @return the limit
+         */
+        public static Limit of(String name, Function<StackDefinition, String> groupFunction, int maxConcurrency) {
+            return new Limit(name, groupFunction, maxConcurrency);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        @Override
+        public String toString() {
+            return "Limit{" +
+                    "name='" + name + '\'' +
+                    ", maxConcurrency=" + maxConcurrency +
+                    '}';
+        }
+    }
+
+    private class Execution {
+
+        private final Function<StackDefinition, CompletableFuture<?>> operation;
+        private final Map<String, StackDefinition> stacks;
+        private final Map<String, Set<String>> pendingDependencies;
+        private final Map<String, List<String>> dependents;
+        private final Deque<StackDefinition> ready;
+        private final Map<Limit, Map<String, Integer>> runningPerGroup;
+        private final List<Throwable> failures;
+        private final CompletableFuture<Void> result;
+        private int running;
+        private int remaining;
+
+        private Execution(List<StackDefinition> stacks, Function<StackDefinition, CompletableFuture<?>> operation) {
+            this.operation = operation;
+            this.stacks = new LinkedHashMap<>();
+            stacks.forEach(stack -> this.stacks.put(stack.getStackName(), stack));
+            this.pendingDependencies = new HashMap<>();
+            this.dependents = new HashMap<>();
+            this.ready = new ArrayDeque<>();
+            this.runningPerGroup = new HashMap<>();
+            limits.forEach(limit -> runningPerGroup.put(limit, new HashMap<>()));
+            this.failures = new ArrayList<>();
+            this.result = new CompletableFuture<>();
+            this.remaining = this.stacks.size();
+
+            for (StackDefinition stack : this.stacks.values()) {
+                Set<String> dependencies = new LinkedHashSet<>();
+                for (String dependency : stack.getDependencies()) {
+                    if (this.stacks.containsKey(dependency) && !dependency.equals(stack.getStackName())) {
+                        dependencies.add(dependency);
+                        dependents.computeIfAbsent(dependency, name -> new ArrayList<>()).add(stack.getStackName());
+                    }
+                }
+                pendingDependencies.put(stack.getStackName(), dependencies);
+                if (dependencies.isEmpty()) {
+                    ready.add(stack);
+                }
+            }
+        }
+
+        private CompletableFuture<Void> start() {
+            List<StackDefinition> toStart;
+            synchronized (this) {
+                toStart = dispatch();
+            }
+            launch(toStart);
+            return result;
+        }
+
+        /**
+         * Picks the stacks that can be started right away. Must be called while holding the lock.
+         */
+        private List<StackDefinition> dispatch() {
+            List<StackDefinition> toStart = new ArrayList<>();
+            if (failures.isEmpty()) {
+                Iterator<StackDefinition> candidates = ready.iterator();
+                while (running < maxConcurrency && candidates.hasNext()) {
+                    StackDefinition stack = candidates.next();
+                    if (hasCapacity(stack)) {
+                        candidates.remove();
+                        acquire(stack, 1);
+                        toStart.add(stack);
+                        running++;
+                    }
+                }
+            }
+            if (running == 0 && toStart.isEmpty()) {
+                complete();
+            }
+            return toStart;
+        }
+
+        private boolean hasCapacity(StackDefinition stack) {
+            for (Limit limit : limits) {
+                String group = limit.groupFunction.apply(stack);
+                if (runningPerGroup.get(limit).getOrDefault(group, 0) >= limit.maxConcurrency) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void acquire(StackDefinition stack, int permits) {
+            for (Limit limit : limits) {
+                runningPerGroup.get(limit).merge(limit.groupFunction.apply(stack), permits, Integer::sum);
+            }
+        }
+
+        private void launch(List<StackDefinition> toStart) {
+            for (StackDefinition stack : toStart) {
+                CompletableFuture<?> future;
+                try {
+                    future = operation.apply(stack);
+                } catch (Throwable e) {
+                    future = new CompletableFuture<>();
+                    future.completeExceptionally(e);
+                }
+                future.whenComplete((r, e) -> onCompleted(stack, e));
+            }
+        }
+
+        private void onCompleted(StackDefinition stack, Throwable error) {
+            List<StackDefinition> toStart;
+            synchronized (this) {
+                running--;
+                remaining--;
+                acquire(stack, -1);
+                if (error != null) {
+                    failures.add(MoreFutures.unwrap(error));
+                } else {
+                    for (String dependent : dependents.getOrDefault(stack.getStackName(), new ArrayList<>())) {
+                        Set<String> dependencies = pendingDependencies.get(dependent);
+                        dependencies.remove(stack.getStackName());
+                        if (dependencies.isEmpty()) {
+                            ready.add(stacks.get(dependent));
+                        }
+                    }
+                }
+                toStart = dispatch();
+            }
+            launch(toStart);
+        }
+
+        private void complete() {
+            if (!failures.isEmpty()) {
+                Throwable failure = failures.get(0);
+                failures.subList(1, failures.size()).forEach(failure::addSuppressed);
+                if (remaining > 0) {
+                    logger.warn("{} stack(s) have not been processed due to the failure", remaining);
+                }
+                result.completeExceptionally(failure);
+            } else if (remaining > 0) {
+                result.completeExceptionally(new CdkException("Unable to process the stacks due to a circular " +
+                        "dependency between them: " + String.join(", ", unprocessedStacks())));
+            } else {
+                result.complete(null);
+            }
+        }
+
+        private List<String> unprocessedStacks() {
+            List<String> unprocessed = new ArrayList<>();
+            pendingDependencies.forEach((stackName, dependencies) -> {
+                if (!dependencies.isEmpty()) {
+                    unprocessed.add(stackName);
+                }
+            });
+            return unprocessed;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
+import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStackEventsRequest;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStackEventsResponse;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStacksRequest;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStacksResponse;
+import software.amazon.awssdk.services.cloudformation.model.Stack;
+import software.amazon.awssdk.services.cloudformation.model.StackStatus;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Watches the stacks of a single CloudFormation client (i.e. a single environment) until they reach a stable state.
+ *
+ * Instead of polling every stack separately, the watcher refreshes all the stacks that are due for a check with a
+ * single paginated {@code DescribeStacks} call, so the number of API calls grows with the number of pages rather than
+ * with the number of stacks. If only a few stacks are due, they are described one by one as long as it's cheaper than
+ * listing all the stacks. The stack events, if requested, are still fetched for every stack separately.
+ *
+ * Every watched stack is checked according to its own {@link PollingStrategy}: the delay is reset once the stack
+ * makes progress (new stack events show up or the stack status changes).
+ *
+ * The watcher works with both blocking and non-blocking clients. With a non-blocking client, no thread is occupied
+ * while the requests are in flight.
+ */
+public class StackWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StackWatcher.class);
+
+    /**
+     * The watchers are grouped by the client and the executor provider. They are weakly referenced in both directions
+     * so that neither a client nor an idle watcher is retained.
+     */
+    private static final ConcurrentMap<Object, ConcurrentMap<ExecutorProvider, StackWatcher>> watchers = new MapMaker()
+            .weakKeys()
+            .makeMap();
+
+    private final Function<DescribeStacksRequest, CompletableFuture<DescribeStacksResponse>> describeStacks;
+    private final Function<DescribeStackEventsRequest, CompletableFuture<DescribeStackEventsResponse>> describeStackEvents;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final Set<WatchedStack> watchedStacks;
+    private boolean polling;
+    private ScheduledFuture<?> nextPoll;
+    private long nextPollTime;
+    private volatile int estimatedPages;
+
+    private StackWatcher(Function<DescribeStacksRequest, CompletableFuture<DescribeStacksResponse>> describeStacks,
+                         Function<DescribeStackEventsRequest, CompletableFuture<DescribeStackEventsResponse>> describeStackEvents,
+                         Executor executor,
+                         ScheduledExecutorService scheduler) {
+        this.describeStacks = describeStacks;
+        this.describeStackEvents = describeStackEvents;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.watchedStacks = ConcurrentHashMap.newKeySet();
+        this.estimatedPages = 1;
+    }
+
+    /**
+     * Returns the watcher shared by all the stack operations performed with the given client. The requests are
+     * performed by the executor of the provider since the client blocks the calling thread.
+     *
+     * @param client CloudFormation client
+     * @param executorProvider the provider of the threads used for the polling
+     * @return the watcher of the stacks
+     */
+    public static StackWatcher of(CloudFormationClient client, ExecutorProvider executorProvider) {
+        return getWatchers(client).computeIfAbsent(executorProvider, provider -> new StackWatcher(
+                request -> MoreFutures.call(() -> client.describeStacks(request)),
+                request -> MoreFutures.call(() -> client.describeStackEvents(request)),
+                provider.getExecutor(),
+                provider.getScheduler()));
+    }
+
+    /**
+     * Returns the watcher shared by all the stack operations performed with the given non-blocking client.
+     *
+     * @param client CloudFormation client
+     * @param executorProvider the provider of the threads used for the polling
+     * @return the watcher of the stacks
+     */
+    public static StackWatcher of(CloudFormationAsyncClient client, ExecutorProvider executorProvider) {
+        return getWatchers(client).computeIfAbsent(executorProvider, provider -> new StackWatcher(
+                client::describeStacks,
+                client::describeStackEvents,
+                MoreExecutors.directExecutor(),
+                provider.getScheduler()));
+    }
+
+    private static ConcurrentMap<ExecutorProvider, StackWatcher> getWatchers(Object client) {
+        return watchers.computeIfAbsent(client, c -> new MapMaker()
+                .weakKeys()
+                .weakValues()
+                .makeMap());
+    }
+
+    /**
+     * Starts watching the stack. The returned future is completed once the stack reaches a stable state.
+     *
+     * @param stack the stack to watch
+     * @param eventListener an optional listener of the stack events
+     * @param pollingStrategy the strategy determining how often the stack is checked
+     * @return a future completed with the stack in the stable state
+     */
+    public CompletableFuture<Stack> watch(Stack stack,
+                                          @Nullable Stacks.StackEventListener eventListener,
+                                          PollingStrategy pollingStrategy) {
+        WatchedStack watchedStack = new WatchedStack(stack, eventListener, pollingStrategy, System.nanoTime());
+        watchedStacks.add(watchedStack);
+        synchronized (this) {
+            if (!polling) {
+                schedulePoll(watchedStack.nextPollTime);
+            }
+        }
+        return watchedStack.future;
+    }
+
+    /**
+     * Schedules the next poll at the given time unless a poll is already scheduled to happen earlier. Must be called
+     * while holding the lock.
+     */
+    private void schedulePoll(long time) {
+        if (nextPoll != null) {
+            if (nextPollTime <= time) {
+                return;
+            }
+            if (!nextPoll.cancel(false)) {
+                // The poll has already started
+                return;
+            }
+        }
+        nextPollTime = time;
+        nextPoll = scheduler.schedule(() -> executor.execute(this::poll),
+                Math.max(time - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+    }
+
+    private void poll() {
+        synchronized (this) {
+            polling = true;
+            nextPoll = null;
+        }
+        CompletableFuture<Void> refresh;
+        try {
+            long now = System.nanoTime();
+            List<WatchedStack> dueStacks = new ArrayList<>();
+            for (WatchedStack watchedStack : watchedStacks) {
+                if (watchedStack.nextPollTime <= now) {
+                    dueStacks.add(watchedStack);
+                }
+            }
+            if (dueStacks.size() <= 1 || dueStacks.size() < estimatedPages) {
+                refresh = allOf(dueStacks.stream().map(this::refresh));
+            } else {
+                refresh = refresh(dueStacks);
+            }
+        } catch (Exception e) {
+            refresh = MoreFutures.failed(e);
+        }
+        refresh.whenComplete((result, e) -> {
+            if (e != null) {
+                logger.error("Unexpected error occurred while refreshing the stacks", MoreFutures.unwrap(e));
+            }
+            synchronized (this) {
+                polling = false;
+                watchedStacks.stream()
+                        .mapToLong(watchedStack -> watchedStack.nextPollTime)
+                        .min()
+                        .ifPresent(this::schedulePoll);
+            }
+        });
+    }
+
+    /**
+     * Refreshes the given stack using a dedicated {@code DescribeStacks} call.
+     */
+    private CompletableFuture<Void> refresh(WatchedStack watchedStack) {
+        DescribeStacksRequest request = DescribeStacksRequest.builder()
+                .stackName(watchedStack.stackId)
+                .build();
+        return describeStacks.apply(request)
+                .thenCompose(response -> update(watchedStack, response.stacks().get(0)))
+                .exceptionally(e -> {
+                    fail(watchedStack, e);
+                    return null;
+                });
+    }
+
+    /**
+     * Refreshes the given stacks listing all the stacks page by page until all the watched stacks are found. If the
+     * listing fails (e.g. it's throttled or the policy allows to describe only specific stacks), the stacks that
+     * haven't been found yet are described one by one, so that a stack fails only if it can't be described itself.
+     */
+    private CompletableFuture<Void> refresh(List<WatchedStack> stacks) {
+        Map<String, List<WatchedStack>> pending = new HashMap<>();
+        stacks.forEach(watchedStack -> pending.computeIfAbsent(watchedStack.stackId, id -> new ArrayList<>()).add(watchedStack));
+        return refresh(pending, null, 0)
+                .handle((result, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    Throwable cause = MoreFutures.unwrap(e);
+                    if (cause instanceof AwsServiceException && ((AwsServiceException) cause).statusCode() == 403) {
+                        // Listing the stacks isn't allowed, there is no point in trying it again
+                        estimatedPages = Integer.MAX_VALUE;
+                    }
+                    logger.warn("Unable to list the stacks, describing {} stack(s) one by one: {}", pending.size(),
+                            cause.getMessage());
+                    List<WatchedStack> remaining = new ArrayList<>();
+                    pending.values().forEach(remaining::addAll);
+                    pending.clear();
+                    return allOf(remaining.stream().map(this::refresh));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> refresh(Map<String, List<WatchedStack>> pending, @Nullable String token, int pages) {
+        DescribeStacksRequest request = DescribeStacksRequest.builder()
+                .nextToken(token)
+                .build();
+        return describeStacks.apply(request).thenCompose(response -> {
+            List<CompletableFuture<Void>> updates = new ArrayList<>();
+            for (Stack stack : response.stacks()) {
+                List<WatchedStack> watchedStacks = pending.remove(stack.stackId());
+                if (watchedStacks != null) {
+                    watchedStacks.forEach(watchedStack -> updates.add(update(watchedStack, stack)));
+                }
+            }
+            if (response.nextToken() != null && !pending.isEmpty()) {
+                updates.add(refresh(pending, response.nextToken(), pages + 1));
+            } else {
+                estimatedPages = response.nextToken() == null ? pages + 1 : Math.max(estimatedPages, pages + 1);
+
+                // The deleted stacks are not listed anymore, they can be described only by their ids
+                pending.values().forEach(watchedStacks -> watchedStacks.forEach(watchedStack -> updates.add(refresh(watchedStack))));
+                pending.clear();
+            }
+            return allOf(updates.stream());
+        });
+    }
+
+    private CompletableFuture<Void> update(WatchedStack watchedStack, Stack stack) {
+        CompletableFuture<Integer> newEvents = watchedStack.eventListener != null
+                ? Stacks.consumeEvents(describeStackEvents, stack.stackId(), watchedStack.eventListener)
+                : CompletableFuture.completedFuture(0);
+        return newEvents
+                .thenAccept(count -> {
+                    boolean progressed = count > 0 || stack.stackStatus() != watchedStack.status;
+                    if (Stacks.isCompleted(stack)) {
+                        watchedStacks.remove(watchedStack);
+                        watchedStack.future.complete(stack);
+                    } else {
+                        watchedStack.status = stack.stackStatus();
+                        watchedStack.attempt = progressed ? 0 : watchedStack.attempt + 1;
+                        watchedStack.nextPollTime = System.nanoTime() +
+                                watchedStack.pollingStrategy.getDelay(watchedStack.attempt).toNanos();
+                    }
+                })
+                .exceptionally(e -> {
+                    fail(watchedStack, e);
+                    return null;
+                });
+    }
+
+    private void fail(WatchedStack watchedStack, Throwable e) {
+        watchedStacks.remove(watchedStack);
+        watchedStack.future.completeExceptionally(MoreFutures.unwrap(e));
+    }
+
+    private static CompletableFuture<Void> allOf(Stream<CompletableFuture<Void>> futures) {
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    private static class WatchedStack {
+
+        private final String stackId;
+        private final Stacks.StackEventListener eventListener;
+        private final PollingStrategy pollingStrategy;
+        private final CompletableFuture<Stack> future;
+        private volatile StackStatus status;
+        private volatile int attempt;
+        private volatile long nextPollTime;
+
+        private WatchedStack(Stack stack,
+                             @Nullable Stacks.StackEventListener eventListener,
+                             PollingStrategy pollingStrategy,
+                             long nextPollTime) {
+            this.stackId = stack.stackId();
+            this.eventListener = eventListener;
+            this.pollingStrategy = pollingStrategy;
+            this.future = new CompletableFuture<>();
+            this.status = stack.stackStatus();
+            this.attempt = -1;
+            this.nextPollTime = nextPollTime;
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package io.dataspray.aws.cdk;
 
 import com.google.common.collect.ImmutableSet;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
 import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
 import software.amazon.awssdk.services.cloudformation.model.Capability;
+import software.amazon.awssdk.services.cloudformation.model.ChangeSetStatus;
+import software.amazon.awssdk.services.cloudformation.model.ChangeSetType;
 import software.amazon.awssdk.services.cloudformation.model.CloudFormationException;
+import software.amazon.awssdk.services.cloudformation.model.CreateChangeSetRequest;
+import software.amazon.awssdk.services.cloudformation.model.CreateChangeSetResponse;
 import software.amazon.awssdk.services.cloudformation.model.CreateStackRequest;
 import software.amazon.awssdk.services.cloudformation.model.CreateStackResponse;
+import software.amazon.awssdk.services.cloudformation.model.DeleteChangeSetRequest;
 import software.amazon.awssdk.services.cloudformation.model.DeleteStackRequest;
+import software.amazon.awssdk.services.cloudformation.model.DescribeChangeSetRequest;
+import software.amazon.awssdk.services.cloudformation.model.DescribeChangeSetResponse;
 import software.amazon.awssdk.services.cloudformation.model.DescribeStackEventsRequest;
 import software.amazon.awssdk.services.cloudformation.model.DescribeStackEventsResponse;
 import software.amazon.awssdk.services.cloudformation.model.DescribeStacksRequest;
+import software.amazon.awssdk.services.cloudformation.model.ExecuteChangeSetRequest;
 import software.amazon.awssdk.services.cloudformation.model.Output;
 import software.amazon.awssdk.services.cloudformation.model.Parameter;
 import software.amazon.awssdk.services.cloudformation.model.Stack;
@@ -20,9 +29,9 @@ import software.amazon.awssdk.services.cloudformation.model.UpdateStackRequest;
 import software.amazon.awssdk.services.cloudformation.model.UpdateStackResponse;
 
 import javax.annotation.Nullable;
-import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
@@ -32,20 +41,16 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.function.Supplier;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class Stacks {
 
-    private static final ScheduledExecutorService SCHEDULER = new ScheduledThreadPoolExecutor(0);
-
     private static final Capability[] CAPABILITIES =
             new Capability[]{Capability.CAPABILITY_IAM, Capability.CAPABILITY_NAMED_IAM, Capability.CAPABILITY_AUTO_EXPAND};
 
@@ -60,6 +65,45 @@ public class Stacks {
         }
     }
 
+    public static CompletableFuture<Optional<Stack>> findStack(CloudFormationAsyncClient client, String stackName) {
+        Objects.requireNonNull(client, "CloudFormation client can't be null");
+        Objects.requireNonNull(stackName, "stack name can't be null");
+        return getStack(client, stackName)
+                .thenApply(Optional::of)
+                .exceptionally(e -> {
+                    // Assuming that the exception is thrown only if the stack doesn't exist
+                    if (MoreFutures.unwrap(e) instanceof CloudFormationException) {
+                        return Optional.empty();
+                    }
+                    throw new CompletionException(MoreFutures.unwrap(e));
+                });
+    }
+
+    /**
+     * Describes all the stacks with a single paginated {@code DescribeStacks} call.
+     *
+     * @param client CloudFormation client
+     * @return a future completed with the stacks
+     */
+    public static CompletableFuture<List<Stack>> listStacks(CloudFormationAsyncClient client) {
+        Objects.requireNonNull(client, "CloudFormation client can't be null");
+        List<Stack> stacks = new ArrayList<>();
+        return listStacks(client, null, stacks).thenApply(ignored -> stacks);
+    }
+
+    private static CompletableFuture<Void> listStacks(CloudFormationAsyncClient client, @Nullable String token, List<Stack> stacks) {
+        DescribeStacksRequest request = DescribeStacksRequest.builder()
+                .nextToken(token)
+                .build();
+        return client.describeStacks(request).thenCompose(response -> {
+            stacks.addAll(response.stacks());
+            if (response.nextToken() == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return listStacks(client, response.nextToken(), stacks);
+        });
+    }
+
     public static Stack createStack(CloudFormationClient client, String stackName, TemplateRef template) {
         return createStack(client, stackName, template, Collections.emptyMap(), Collections.emptyMap(), ImmutableSet.of());
     }
@@ -71,6 +115,27 @@ public class Stacks {
                                     Map<String, String> tags,
                                     Set<String> notificationArns) {
         Objects.requireNonNull(client, "CloudFormation client can't be null");
+        CreateStackResponse response = client.createStack(buildCreateStackRequest(stackName, template, parameters, tags, notificationArns));
+        return getStack(client, response.stackId());
+    }
+
+    public static CompletableFuture<Stack> createStack(CloudFormationAsyncClient client,
+                                                       String stackName,
+                                                       TemplateRef template,
+                                                       Map<String, ParameterValue> parameters,
+                                                       Map<String, String> tags,
+                                                       Set<String> notificationArns) {
+        Objects.requireNonNull(client, "CloudFormation client can't be null");
+        CreateStackRequest request = buildCreateStackRequest(stackName, template, parameters, tags, notificationArns);
+        return client.createStack(request)
+                .thenCompose(response -> getStack(client, response.stackId()));
+    }
+
+    private static CreateStackRequest buildCreateStackRequest(String stackName,
+                                                              TemplateRef template,
+                                                              Map<String, ParameterValue> parameters,
+                                                              Map<String, String> tags,
+                                                              Set<String> notificationArns) {
         Objects.requireNonNull(stackName, "stack name can't be null");
         Objects.requireNonNull(template, "template reference can't be null");
         CreateStackRequest.Builder requestBuilder = CreateStackRequest.builder()
@@ -83,10 +148,7 @@ public class Stacks {
         if(notificationArns != null && !notificationArns.isEmpty()) {
             requestBuilder.notificationARNs(notificationArns);
         }
-        CreateStackRequest request = requestBuilder.build();
-
-        CreateStackResponse response = client.createStack(request);
-        return getStack(client, response.stackId());
+        return requestBuilder.build();
     }
 
     public static Stack updateStack(CloudFormationClient client,
@@ -103,6 +165,27 @@ public class Stacks {
                                     Map<String, String> tags,
                                     Set<String> notificationArns) {
         Objects.requireNonNull(client, "CloudFormation client can't be null");
+        UpdateStackResponse response = client.updateStack(buildUpdateStackRequest(stackName, template, parameters, tags, notificationArns));
+        return getStack(client, response.stackId());
+    }
+
+    public static CompletableFuture<Stack> updateStack(CloudFormationAsyncClient client,
+                                                       String stackName,
+                                                       TemplateRef template,
+                                                       Map<String, ParameterValue> parameters,
+                                                       Map<String, String> tags,
+                                                       Set<String> notificationArns) {
+        Objects.requireNonNull(client, "CloudFormation client can't be null");
+        UpdateStackRequest request = buildUpdateStackRequest(stackName, template, parameters, tags, notificationArns);
+        return client.updateStack(request)
+                .thenCompose(response -> getStack(client, response.stackId()));
+    }
+
+    private static UpdateStackRequest buildUpdateStackRequest(String stackName,
+                                                              TemplateRef template,
+                                                              Map<String, ParameterValue> parameters,
+                                                              Map<String, String> tags,
+                                                              Set<String> notificationArns) {
         Objects.requireNonNull(stackName, "stack name can't be null");
         Objects.requireNonNull(template, "template reference can't be null");
         UpdateStackRequest.Builder requestBuilder = UpdateStackRequest.builder()
@@ -115,10 +198,7 @@ public class Stacks {
         if(notificationArns != null && !notificationArns.isEmpty()) {
             requestBuilder.notificationARNs(notificationArns);
         }
-        UpdateStackRequest request = requestBuilder.build();
-
-        UpdateStackResponse response = client.updateStack(request);
-        return getStack(client, response.stackId());
+        return requestBuilder.build();
     }
 
     private static List<Tag> buildTags(Map<String, String> tags) {
@@ -151,6 +231,134 @@ public class Stacks {
         return getStack(client, stackName);
     }
 
+    public static CompletableFuture<Stack> deleteStack(CloudFormationAsyncClient client, String stackName) {
+        Objects.requireNonNull(client, "CloudFormation client can't be null");
+        Objects.requireNonNull(stackName, "stack name can't be null");
+        return getStack(client, stackName)
+                .thenCompose(stack -> client.deleteStack(DeleteStackRequest.builder()
+                        .stackName(stack.stackId())
+                        .build()))
+                .thenCompose(response -> getStack(client, stackName));
+    }
+
+    /**
+     * Creates a change set for the stack. The change set can't be executed until its computation is completed (see
+     * {@link #awaitChangeSet(CloudFormationAsyncClient, String, PollingStrategy, ExecutorProvider)}).
+     *
+     * @return a future completed with the response containing the ids of the change set and the stack
+     */
+    public static CompletableFuture<CreateChangeSetResponse> createChangeSet(CloudFormationAsyncClient client,
+                                                                             String stackName,
+                                                                             String changeSetName,
+                                                                             ChangeSetType changeSetType,
+                                                                             TemplateRef template,
+                                                                             Map<String, ParameterValue> parameters,
+                                                                             Map<String, String> tags,
+                                                                             Set<String> notificationArns) {
+        Objects.requireNonNull(client, "CloudFormation client can't be null");
+        Objects.requireNonNull(stackName, "stack name can't be null");
+        Objects.requireNonNull(changeSetName, "change set name can't be null");
+        Objects.requireNonNull(changeSetType, "change set type can't be null");
+        Objects.requireNonNull(template, "template reference can't be null");
+        CreateChangeSetRequest.Builder requestBuilder = CreateChangeSetRequest.builder()
+                .stackName(stackName)
+                .changeSetName(changeSetName)
+                .changeSetType(changeSetType)
+                .templateBody(template.getBody())
+                .templateURL(template.getUrl())
+                .tags(buildTags(tags))
+                .parameters(parameters != null ? buildParameters(parameters) : Collections.emptyList())
+                .capabilities(CAPABILITIES);
+        if (notificationArns != null && !notificationArns.isEmpty()) {
+            requestBuilder.notificationARNs(notificationArns);
+        }
+        return client.createChangeSet(requestBuilder.build());
+    }
+
+    /**
+     * Returns a future completed once CloudFormation finishes the computation of the change set (successfully or
+     * not). No thread is blocked while waiting.
+     *
+     * @param client CloudFormation client
+     * @param changeSetId the id of the change set
+     * @param pollingStrategy the strategy determining how often the change set is checked
+     * @param executorProvider the provider of the scheduler used for the polling
+     * @return a future completed with the description of the change set
+     */
+    public static CompletableFuture<DescribeChangeSetResponse> awaitChangeSet(CloudFormationAsyncClient client,
+                                                                              String changeSetId,
+                                                                              PollingStrategy pollingStrategy,
+                                                                              ExecutorProvider executorProvider) {
+        Objects.requireNonNull(client, "CloudFormation client can't be null");
+        Objects.requireNonNull(changeSetId, "change set id can't be null");
+        Objects.requireNonNull(pollingStrategy, "polling strategy can't be null");
+        Objects.requireNonNull(executorProvider, "executor provider can't be null");
+        DescribeChangeSetRequest request = DescribeChangeSetRequest.builder()
+                .changeSetName(changeSetId)
+                .build();
+        return awaitChangeSet(client, request, pollingStrategy, executorProvider.getScheduler(), 0);
+    }
+
+    private static CompletableFuture<DescribeChangeSetResponse> awaitChangeSet(CloudFormationAsyncClient client,
+                                                                               DescribeChangeSetRequest request,
+                                                                               PollingStrategy pollingStrategy,
+                                                                               ScheduledExecutorService scheduler,
+                                                                               int attempt) {
+        return client.describeChangeSet(request).thenCompose(response -> {
+            if (response.status() != ChangeSetStatus.CREATE_PENDING &&
+                    response.status() != ChangeSetStatus.CREATE_IN_PROGRESS) {
+                return CompletableFuture.completedFuture(response);
+            }
+            CompletableFuture<Void> delay = new CompletableFuture<>();
+            scheduler.schedule(() -> delay.complete(null), pollingStrategy.getDelay(attempt).toNanos(), TimeUnit.NANOSECONDS);
+            return delay.thenCompose(ignored -> awaitChangeSet(client, request, pollingStrategy, scheduler, attempt + 1));
+        });
+    }
+
+    /**
+     * Checks whether the change set has failed only because the stack is already up to date.
+     *
+     * @param changeSet the description of the change set
+     * @return {@code true} if the change set doesn't contain any changes
+     */
+    public static boolean isEmpty(DescribeChangeSetResponse changeSet) {
+        if (changeSet.status() != ChangeSetStatus.FAILED) {
+            return false;
+        }
+        String reason = changeSet.statusReason() != null ? changeSet.statusReason() : "";
+        return reason.contains("didn't contain changes") || reason.startsWith("No updates are to be performed");
+    }
+
+    public static CompletableFuture<Stack> executeChangeSet(CloudFormationAsyncClient client, String stackId, String changeSetId) {
+        Objects.requireNonNull(client, "CloudFormation client can't be null");
+        Objects.requireNonNull(stackId, "stack id can't be null");
+        Objects.requireNonNull(changeSetId, "change set id can't be null");
+        ExecuteChangeSetRequest request = ExecuteChangeSetRequest.builder()
+                .changeSetName(changeSetId)
+                .build();
+        return client.executeChangeSet(request)
+                .thenCompose(response -> getStack(client, stackId));
+    }
+
+    public static CompletableFuture<DescribeChangeSetResponse> describeChangeSet(CloudFormationAsyncClient client,
+                                                                                 String changeSetId) {
+        Objects.requireNonNull(client, "CloudFormation client can't be null");
+        Objects.requireNonNull(changeSetId, "change set id can't be null");
+        DescribeChangeSetRequest request = DescribeChangeSetRequest.builder()
+                .changeSetName(changeSetId)
+                .build();
+        return client.describeChangeSet(request);
+    }
+
+    public static CompletableFuture<Void> deleteChangeSet(CloudFormationAsyncClient client, String changeSetId) {
+        Objects.requireNonNull(client, "CloudFormation client can't be null");
+        Objects.requireNonNull(changeSetId, "change set id can't be null");
+        DeleteChangeSetRequest request = DeleteChangeSetRequest.builder()
+                .changeSetName(changeSetId)
+                .build();
+        return client.deleteChangeSet(request).thenAccept(response -> {});
+    }
+
     public static Optional<Output> findOutput(Stack stack, String outputKey) {
         Objects.requireNonNull(stack, "stack can't be null");
         Objects.requireNonNull(outputKey, "output key can't be null");
@@ -169,6 +377,17 @@ public class Stacks {
         return stack.stackStatus().toString().endsWith("_IN_PROGRESS");
     }
 
+    /**
+     * Checks whether the stack has been created by a change set that hasn't been executed yet. Such a stack stays in
+     * the review state until the change set is executed or deleted, so waiting for its completion would never end.
+     *
+     * @param stack the stack
+     * @return {@code true} if the stack is in the {@code REVIEW_IN_PROGRESS} state
+     */
+    public static boolean isInReview(Stack stack) {
+        return stack.stackStatus() == StackStatus.REVIEW_IN_PROGRESS;
+    }
+
     public static boolean isFailed(Stack stack) {
         return stack.stackStatus().toString().endsWith("_FAILED");
     }
@@ -188,118 +407,227 @@ public class Stacks {
     }
 
     public static Stack awaitCompletion(CloudFormationClient client, Stack stack) {
-        return awaitCompletion(client, stack, ForkJoinPool.commonPool(), null).join();
+        return awaitCompletion(client, stack, PollingStrategy.defaultStrategy());
+    }
+
+    public static Stack awaitCompletion(CloudFormationClient client, Stack stack, PollingStrategy pollingStrategy) {
+        return awaitCompletion(client, stack, null, null, pollingStrategy);
     }
 
     public static Stack awaitCompletion(CloudFormationClient client, Stack stack, @Nullable Consumer<StackEvent> eventListener) {
-        StackEventListener stackEventListener = eventListener != null ? new StackEventListener(eventListener) : null;
-        return awaitCompletion(client, stack, ForkJoinPool.commonPool(), stackEventListener).join();
-    }
-
-    private static CompletableFuture<Stack> awaitCompletion(CloudFormationClient client,
-                                                            Stack initialStack,
-                                                            Executor executor,
-                                                            @Nullable StackEventListener eventListener) {
-        CompletableFuture<Stack> stackFuture;
-        if (eventListener != null) {
-            stackFuture = CompletableFuture.runAsync(() -> consumeEvents(client, initialStack.stackId(), eventListener), executor)
-                    .thenCompose(r -> CompletableFuture.completedFuture(initialStack));
-        } else {
-            stackFuture = CompletableFuture.completedFuture(initialStack);
-        }
+        return awaitCompletion(client, stack, eventListener, PollingStrategy.defaultStrategy());
+    }
 
-        return stackFuture.thenCompose(stack -> {
-            if (isCompleted(stack)) {
-                return CompletableFuture.completedFuture(stack);
-            }
+    public static Stack awaitCompletion(CloudFormationClient client,
+                                        Stack stack,
+                                        @Nullable Consumer<StackEvent> eventListener,
+                                        PollingStrategy pollingStrategy) {
+        return awaitCompletion(client, stack, eventListener, null, pollingStrategy);
+    }
 
-            Supplier<Stack> statusRequest = () -> {
-                Stack nextStack = getStack(client, stack.stackId());
-                if (eventListener != null) {
-                    consumeEvents(client, nextStack.stackId(), eventListener);
-                }
-                return nextStack;
-            };
+    /**
+     * Waits until the stack reaches a stable state passing the stack events to the listener.
+     *
+     * @param client CloudFormation client
+     * @param stack the stack
+     * @param eventListener an optional listener of the stack events
+     * @param notBefore if specified, the events that occurred before this time are neither fetched nor passed to the
+     * listener
+     * @param pollingStrategy the strategy determining how often the stack is checked
+     * @return the stack in the stable state
+     */
+    public static Stack awaitCompletion(CloudFormationClient client,
+                                        Stack stack,
+                                        @Nullable Consumer<StackEvent> eventListener,
+                                        @Nullable Instant notBefore,
+                                        PollingStrategy pollingStrategy) {
+        return awaitCompletion(client, stack, eventListener, notBefore, pollingStrategy, ExecutorProvider.defaultProvider());
+    }
 
-            return awaitCompletion(statusRequest, Duration.ZERO, Duration.ofSeconds(5), executor);
-        });
+    /**
+     * Waits until the stack reaches a stable state passing the stack events to the listener.
+     *
+     * @param client CloudFormation client
+     * @param stack the stack
+     * @param eventListener an optional listener of the stack events
+     * @param notBefore if specified, the events that occurred before this time are neither fetched nor passed to the
+     * listener
+     * @param pollingStrategy the strategy determining how often the stack is checked
+     * @param executorProvider the provider of the threads used for the polling
+     * @return the stack in the stable state
+     */
+    public static Stack awaitCompletion(CloudFormationClient client,
+                                        Stack stack,
+                                        @Nullable Consumer<StackEvent> eventListener,
+                                        @Nullable Instant notBefore,
+                                        PollingStrategy pollingStrategy,
+                                        ExecutorProvider executorProvider) {
+        Objects.requireNonNull(pollingStrategy, "polling strategy can't be null");
+        Objects.requireNonNull(executorProvider, "executor provider can't be null");
+        StackEventListener stackEventListener = eventListener != null ? new StackEventListener(eventListener, notBefore) : null;
+        return MoreFutures.join(StackWatcher.of(client, executorProvider).watch(stack, stackEventListener, pollingStrategy));
     }
 
-    private static CompletableFuture<Stack> awaitCompletion(Supplier<Stack> request,
-                                                            Duration initialDelay,
-                                                            Duration period,
-                                                            Executor executor) {
-        if (initialDelay.isNegative() || period.isNegative()) {
-            throw new IllegalArgumentException("The initial delay and period must be equal or greater than zero");
-        }
+    public static CompletableFuture<Stack> awaitCompletion(CloudFormationAsyncClient client,
+                                                           Stack stack,
+                                                           PollingStrategy pollingStrategy) {
+        return awaitCompletion(client, stack, null, null, pollingStrategy);
+    }
 
-        Executor effectiveExecutor = initialDelay.isZero() ? executor : delayedExecutor(executor, initialDelay);
-        return CompletableFuture.supplyAsync(request, effectiveExecutor)
-                .thenCompose(stack -> {
-                    if (isCompleted(stack)) {
-                        return CompletableFuture.completedFuture(stack);
-                    }
+    /**
+     * Returns a future completed once the stack reaches a stable state. No thread is blocked while waiting.
+     *
+     * @param client CloudFormation client
+     * @param stack the stack
+     * @param eventListener an optional listener of the stack events
+     * @param notBefore if specified, the events that occurred before this time are neither fetched nor passed to the
+     * listener
+     * @param pollingStrategy the strategy determining how often the stack is checked
+     * @return a future completed with the stack in the stable state
+     */
+    public static CompletableFuture<Stack> awaitCompletion(CloudFormationAsyncClient client,
+                                                           Stack stack,
+                                                           @Nullable Consumer<StackEvent> eventListener,
+                                                           @Nullable Instant notBefore,
+                                                           PollingStrategy pollingStrategy) {
+        return awaitCompletion(client, stack, eventListener, notBefore, pollingStrategy, ExecutorProvider.defaultProvider());
+    }
 
-                    return awaitCompletion(request, period, period, executor);
-                });
+    /**
+     * Returns a future completed once the stack reaches a stable state. No thread is blocked while waiting.
+     *
+     * @param client CloudFormation client
+     * @param stack the stack
+     * @param eventListener an optional listener of the stack events
+     * @param notBefore if specified, the events that occurred before this time are neither fetched nor passed to the
+     * listener
+     * @param pollingStrategy the strategy determining how often the stack is checked
+     * @param executorProvider the provider of the threads used for the polling
+     * @return a future completed with the stack in the stable state
+     */
+    public static CompletableFuture<Stack> awaitCompletion(CloudFormationAsyncClient client,
+                                                           Stack stack,
+                                                           @Nullable Consumer<StackEvent> eventListener,
+                                                           @Nullable Instant notBefore,
+                                                           PollingStrategy pollingStrategy,
+                                                           ExecutorProvider executorProvider) {
+        Objects.requireNonNull(pollingStrategy, "polling strategy can't be null");
+        Objects.requireNonNull(executorProvider, "executor provider can't be null");
+        StackEventListener stackEventListener = eventListener != null ? new StackEventListener(eventListener, notBefore) : null;
+        return StackWatcher.of(client, executorProvider).watch(stack, stackEventListener, pollingStrategy);
     }
 
-    private static Executor delayedExecutor(Executor executor, Duration delay) {
-        return command -> SCHEDULER.schedule(() -> executor.execute(command), delay.toNanos(), TimeUnit.NANOSECONDS);
+    /**
+     * Passes the new events of the stack to the listener.
+     *
+     * @return the number of the new events
+     */
+    static int consumeEvents(CloudFormationClient client, String stackId, StackEventListener eventListener) {
+        return MoreFutures.join(consumeEvents(request -> MoreFutures.call(() -> client.describeStackEvents(request)),
+                stackId, eventListener));
     }
 
-    private static void consumeEvents(CloudFormationClient client, String stackId, StackEventListener eventListener) {
+    /**
+     * Passes the new events of the stack to the listener. The events are fetched page by page using the given
+     * function.
+     *
+     * @return a future completed with the number of the new events
+     */
+    static CompletableFuture<Integer> consumeEvents(Function<DescribeStackEventsRequest, CompletableFuture<DescribeStackEventsResponse>> describeStackEvents,
+                                                    String stackId,
+                                                    StackEventListener eventListener) {
         Deque<StackEvent> events = new ArrayDeque<>();
-        String token = null;
-        do {
-            DescribeStackEventsRequest eventsRequest = DescribeStackEventsRequest.builder()
-                    .stackName(stackId)
-                    .nextToken(token)
-                    .build();
-            DescribeStackEventsResponse eventsResponse = client.describeStackEvents(eventsRequest);
-            token = eventsResponse.nextToken();
+        return fetchEvents(describeStackEvents, stackId, eventListener, null, events)
+                .thenApply(ignored -> {
+                    events.descendingIterator().forEachRemaining(eventListener::onEvent);
+                    return events.size();
+                });
+    }
 
+    private static CompletableFuture<Void> fetchEvents(Function<DescribeStackEventsRequest, CompletableFuture<DescribeStackEventsResponse>> describeStackEvents,
+                                                       String stackId,
+                                                       StackEventListener eventListener,
+                                                       @Nullable String token,
+                                                       Deque<StackEvent> events) {
+        DescribeStackEventsRequest eventsRequest = DescribeStackEventsRequest.builder()
+                .stackName(stackId)
+                .nextToken(token)
+                .build();
+        return describeStackEvents.apply(eventsRequest).thenCompose(eventsResponse -> {
             for (StackEvent event : eventsResponse.stackEvents()) {
-                if (eventListener.isConsumed(event)) {
-                    token = null;
-                    break;
+                if (!eventListener.isNew(event)) {
+                    // The events are listed from the newest to the oldest, so all the remaining events are old too
+                    return CompletableFuture.completedFuture(null);
                 }
                 events.add(event);
             }
-        } while (token != null);
-
-        events.descendingIterator().forEachRemaining(eventListener::onEvent);
+            if (eventsResponse.nextToken() == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return fetchEvents(describeStackEvents, stackId, eventListener, eventsResponse.nextToken(), events);
+        });
     }
 
-    private static Stack getStack(CloudFormationClient client, String stackName) {
+    static Stack getStack(CloudFormationClient client, String stackName) {
         DescribeStacksRequest request = DescribeStacksRequest.builder()
                 .stackName(stackName)
                 .build();
         return client.describeStacks(request).stacks().get(0);
     }
 
-    private static class StackEventListener {
+    static CompletableFuture<Stack> getStack(CloudFormationAsyncClient client, String stackName) {
+        DescribeStacksRequest request = DescribeStacksRequest.builder()
+                .stackName(stackName)
+                .build();
+        return client.describeStacks(request).thenApply(response -> response.stacks().get(0));
+    }
+
+    /**
+     * Tracks the position in the stack event history using a cursor: the timestamp of the newest consumed event and the
+     * ids of the consumed events sharing that timestamp. The events older than the cursor (or older than
+     * {@code notBefore}) are considered consumed, so the history is paged only until the first such event and the
+     * memory doesn't grow with the number of events.
+     */
+    static class StackEventListener {
 
         private final Consumer<StackEvent> consumer;
-        private final Set<String> consumed;
+        private final Instant notBefore;
+        private final Set<String> consumedAtCursor;
+        private Instant cursor;
 
         public StackEventListener(Consumer<StackEvent> consumer) {
+            this(consumer, null);
+        }
+
+        public StackEventListener(Consumer<StackEvent> consumer, @Nullable Instant notBefore) {
             this.consumer = consumer;
-            this.consumed = new HashSet<>();
+            this.notBefore = notBefore;
+            this.consumedAtCursor = new HashSet<>();
         }
 
         public boolean onEvent(StackEvent event) {
-            if (isConsumed(event)) {
+            if (!isNew(event)) {
                 return false;
             }
 
-            consumed.add(event.eventId());
+            if (cursor == null || event.timestamp().isAfter(cursor)) {
+                cursor = event.timestamp();
+                consumedAtCursor.clear();
+            }
+            consumedAtCursor.add(event.eventId());
             consumer.accept(event);
             return true;
         }
 
-        public boolean isConsumed(StackEvent event) {
-            return consumed.contains(event.eventId());
+        public boolean isNew(StackEvent event) {
+            Instant timestamp = event.timestamp();
+            if (notBefore != null && timestamp.isBefore(notBefore)) {
+                return false;
+            }
+            if (cursor == null || timestamp.isAfter(cursor)) {
+                return true;
+            }
+            return timestamp.equals(cursor) && !consumedAtCursor.contains(event.eventId());
         }
 
     }
@@ -0,0 +1,123 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.io.BaseEncoding;
+import com.google.gson.Gson;
+
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+/**
+ * Serializes templates to JSON. The template is written to a reusable buffer through a digest, so that both the size
+ * and the SHA-256 hash of the template are known after a single pass without intermediate strings.
+ */
+class TemplateSerializer {
+
+    static final Gson GSON = new Gson();
+
+    private final Buffer buffer = new Buffer();
+
+    /**
+     * Serializes the template.
+     *
+     * @param template the template
+     * @param maxBodySize the maximum size of a template that can be passed to CloudFormation as a string
+     * @return the serialized template
+     * @throws IOException if the template can't be serialized
+     */
+    synchronized SerializedTemplate serialize(Map<String, Object> template, int maxBodySize) throws IOException {
+        buffer.reset();
+        MessageDigest digest = newDigest();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new DigestOutputStream(buffer, digest), StandardCharsets.UTF_8))) {
+            GSON.toJson(template, writer);
+        }
+
+        String hash = BaseEncoding.base16().lowerCase().encode(digest.digest());
+        if (buffer.size() <= maxBodySize) {
+            return new SerializedTemplate(buffer.decode(StandardCharsets.UTF_8), null, hash);
+        }
+        return new SerializedTemplate(null, buffer.toByteArray(), hash);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A template serialized to JSON. Depending on the size, the template is kept either as a string to be passed to
+     * CloudFormation as is or as bytes to be uploaded to S3.
+     */
+    static class SerializedTemplate {
+
+        private final String body;
+        private final byte[] bytes;
+        private final String hash;
+
+        private SerializedTemplate(@Nullable String body, @Nullable byte[] bytes, String hash) {
+            this.body = body;
+            this.bytes = bytes;
+            this.hash = hash;
+        }
+
+        /**
+         * Returns the template as a string if it's small enough to be passed to CloudFormation directly.
+         *
+         * @return the template body or {@code null} if the template should be uploaded
+         */
+        @Nullable
+        String getBody() {
+            return body;
+        }
+
+        /**
+         * Returns the template bytes if it's too large to be passed to CloudFormation directly.
+         *
+         * @return the template bytes or {@code null} if the template can be passed as a string
+         */
+        @Nullable
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns the hex-encoded SHA-256 hash of the template.
+         *
+         * @return the hash
+         */
+        String getHash() {
+            return hash;
+        }
+    }
+
+    /**
+     * A byte array output stream that is reset instead of being closed, so that the array is reused.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        private Buffer() {
+            super(64 * 1024);
+        }
+
+        private String decode(Charset charset) {
+            return new String(buf, 0, count, charset);
+        }
+
+        @Override
+        public void close() {
+            // The buffer is reused
+        }
+    }
+}
@@ -16,11 +16,9 @@ public class DefaultProcessRunner implements ProcessRunner {
     private static final Logger logger = LoggerFactory.getLogger(DefaultProcessRunner.class);
 
     private final File defaultWorkingDirectory;
-    private final Executor executor;
 
     public DefaultProcessRunner(File defaultWorkingDirectory) {
         this.defaultWorkingDirectory = defaultWorkingDirectory;
-        this.executor = createExecutor();
     }
 
     private static Executor createExecutor() {
@@ -34,10 +32,14 @@ public class DefaultProcessRunner implements ProcessRunner {
     public int run(List<String> command, ProcessContext processContext) {
         CommandLine commandLine = toCommandLine(command);
 
+        // The executor holds the working directory and the streams of the process, hence it can't be shared between
+        // the processes that are run concurrently
+        Executor executor = createExecutor();
         File workingDirectory = processContext.getWorkingDirectory().orElse(defaultWorkingDirectory);
         executor.setWorkingDirectory(workingDirectory);
         OutputStream output = processContext.getOutput().orElse(System.out);
-        executor.setStreamHandler(new PumpStreamHandler(output));
+        OutputStream errorOutput = processContext.getErrorOutput().orElse(output);
+        executor.setStreamHandler(new PumpStreamHandler(output, errorOutput));
 
         Map<String, String> environment = processContext.getEnvironment().orElse(null);
         logger.debug("Running {} with env {}", commandLine, environment);
@@ -0,0 +1,60 @@
+package io.dataspray.aws.cdk.process;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * An output stream splitting the output of a process into lines. The output of the processes run concurrently can be
+ * passed to a logger line by line, so that the lines of different processes are not interleaved.
+ */
+public class LineOutputStream extends OutputStream {
+
+    private final Consumer<String> lineConsumer;
+    private final ByteArrayOutputStream line;
+
+    public LineOutputStream(Consumer<String> lineConsumer) {
+        this.lineConsumer = lineConsumer;
+        this.line = new ByteArrayOutputStream();
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (b == '\n') {
+            flushLine();
+        } else {
+            line.write(b);
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        int start = off;
+        for (int i = off; i < off + len; i++) {
+            if (b[i] == '\n') {
+                line.write(b, start, i - start);
+                flushLine();
+                start = i + 1;
+            }
+        }
+        line.write(b, start, off + len - start);
+    }
+
+    /**
+     * Passes the last line to the consumer even if it isn't terminated.
+     */
+    @Override
+    public synchronized void close() {
+        if (line.size() > 0) {
+            flushLine();
+        }
+    }
+
+    private void flushLine() {
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        line.reset();
+        lineConsumer.accept(new String(bytes, 0, length, StandardCharsets.UTF_8));
+    }
+}
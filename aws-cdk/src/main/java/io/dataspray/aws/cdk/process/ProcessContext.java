@@ -14,13 +14,16 @@ public class ProcessContext {
     private final File workingDirectory;
     private final Map<String, String> environment;
     private final OutputStream output;
+    private final OutputStream errorOutput;
 
     private ProcessContext(@Nullable File workingDirectory,
                            @Nullable Map<String, String> environment,
-                           @Nullable OutputStream output) {
+                           @Nullable OutputStream output,
+                           @Nullable OutputStream errorOutput) {
         this.workingDirectory = workingDirectory;
         this.environment = environment;
         this.output = output;
+        this.errorOutput = errorOutput;
     }
 
     public Optional<File> getWorkingDirectory() {
@@ -35,6 +38,15 @@ public class ProcessContext {
         return Optional.ofNullable(output);
     }
 
+    /**
+     * Returns the stream the error output of the process is written to.
+     *
+     * @return the error output or empty if the error output is written to the same stream as the output
+     */
+    public Optional<OutputStream> getErrorOutput() {
+        return Optional.ofNullable(errorOutput);
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -44,6 +56,7 @@ public class ProcessContext {
         private File workingDirectory;
         private Map<String, String> environment;
         private OutputStream output;
+        private OutputStream errorOutput;
 
         private Builder() {
             this.output = System.out;
@@ -64,8 +77,13 @@ public class ProcessContext {
             return this;
         }
 
+        public Builder withErrorOutput(@Nonnull OutputStream errorOutput) {
+            this.errorOutput = errorOutput;
+            return this;
+        }
+
         public ProcessContext build() {
-            return new ProcessContext(workingDirectory, environment, output);
+            return new ProcessContext(workingDirectory, environment, output, errorOutput);
         }
 
     }
@@ -0,0 +1,169 @@
+package io.dataspray.aws.cdk.registry;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.dataspray.aws.cdk.CdkException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Represents an image stored in the OCI image layout, e.g. produced by {@code docker buildx build --output
+ * type=oci,tar=false}: the {@code index.json} file referencing the image manifest and the {@code blobs} directory
+ * containing the manifest, the image configuration and the layers addressed by their digests.
+ */
+public class OciImageLayout {
+
+    private static final Gson GSON = new Gson();
+
+    private final Path directory;
+    private final Descriptor manifest;
+    private final byte[] manifestContent;
+    private final Descriptor config;
+    private final List<Descriptor> layers;
+
+    private OciImageLayout(Path directory, Descriptor manifest, byte[] manifestContent, Descriptor config,
+                           List<Descriptor> layers) {
+        this.directory = directory;
+        this.manifest = manifest;
+        this.manifestContent = manifestContent;
+        this.config = config;
+        this.layers = layers;
+    }
+
+    /**
+     * Reads the image manifest referenced by the index of the layout.
+     *
+     * @param directory the directory of the layout
+     * @return the image
+     * @throws IOException if the layout can't be read
+     * @throws CdkException if the layout doesn't contain exactly one image manifest
+     */
+    public static OciImageLayout read(Path directory) throws IOException {
+        JsonObject index = readJson(directory.resolve("index.json"));
+        JsonArray manifests = index.getAsJsonArray("manifests");
+        if (manifests == null || manifests.size() != 1) {
+            throw new CdkException("The image layout " + directory + " must reference exactly one manifest");
+        }
+        Descriptor manifest = Descriptor.of(manifests.get(0).getAsJsonObject());
+        if (manifest.getMediaType().endsWith(".index.v1+json") || manifest.getMediaType().endsWith(".list.v2+json")) {
+            throw new CdkException("The image layout " + directory + " contains a multi-platform image which is not " +
+                    "supported, please build the image for a single platform");
+        }
+
+        byte[] manifestContent = Files.readAllBytes(getBlob(directory, manifest.getDigest()));
+        JsonObject manifestJson = GSON.fromJson(new String(manifestContent, StandardCharsets.UTF_8), JsonObject.class);
+        Descriptor config = Descriptor.of(manifestJson.getAsJsonObject("config"));
+        ImmutableList.Builder<Descriptor> layers = ImmutableList.builder();
+        for (JsonElement layer : manifestJson.getAsJsonArray("layers")) {
+            layers.add(Descriptor.of(layer.getAsJsonObject()));
+        }
+        return new OciImageLayout(directory, manifest, manifestContent, config, layers.build());
+    }
+
+    public Descriptor getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Returns the content of the manifest as is, the manifest must be pushed byte for byte since it's addressed by its
+     * digest.
+     *
+     * @return the content of the manifest
+     */
+    public byte[] getManifestContent() {
+        return manifestContent.clone();
+    }
+
+    public Descriptor getConfig() {
+        return config;
+    }
+
+    public List<Descriptor> getLayers() {
+        return layers;
+    }
+
+    /**
+     * Returns the blobs referenced by the manifest: the image configuration followed by the layers.
+     *
+     * @return the blobs of the image
+     */
+    public List<Descriptor> getBlobs() {
+        return ImmutableList.<Descriptor>builder().add(config).addAll(layers).build();
+    }
+
+    /**
+     * Returns the file containing the blob.
+     *
+     * @param descriptor the descriptor of the blob
+     * @return the file of the blob
+     */
+    public Path getBlob(Descriptor descriptor) {
+        return getBlob(directory, descriptor.getDigest());
+    }
+
+    private static Path getBlob(Path directory, String digest) {
+        int separator = digest.indexOf(':');
+        if (separator < 1) {
+            throw new CdkException("Invalid digest: " + digest);
+        }
+        return directory.resolve("blobs")
+                .resolve(digest.substring(0, separator))
+                .resolve(digest.substring(separator + 1));
+    }
+
+    private static JsonObject readJson(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, JsonObject.class);
+        }
+    }
+
+    /**
+     * Describes the content addressed by a digest.
+     */
+    public static class Descriptor {
+
+        private final String mediaType;
+        private final String digest;
+        private final long size;
+
+        public Descriptor(String mediaType, String digest, long size) {
+            this.mediaType = mediaType;
+            this.digest = digest;
+            this.size = size;
+        }
+
+        private static Descriptor of(JsonObject descriptor) {
+            return new Descriptor(descriptor.get("mediaType").getAsString(), descriptor.get("digest").getAsString(),
+                    descriptor.get("size").getAsLong());
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        public String getDigest() {
+            return digest;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "Descriptor{" +
+                    "mediaType='" + mediaType + '\'' +
+                    ", digest='" + digest + '\'' +
+                    ", size=" + size +
+                    '}';
+        }
+    }
+}
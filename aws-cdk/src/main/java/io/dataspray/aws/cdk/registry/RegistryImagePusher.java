@@ -0,0 +1,299 @@
+package io.dataspray.aws.cdk.registry;
+
+import com.google.common.io.ByteStreams;
+import io.dataspray.aws.cdk.CdkException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes images to a registry by means of the OCI distribution API, without a Docker daemon.
+ *
+ * <p>The blobs of the image that already exist in the repository are skipped (checked with a HEAD request), the blobs
+ * that exist in the other given repositories of the registry are mounted instead of being uploaded. The rest of the
+ * blobs are uploaded concurrently, every blob is uploaded in chunks, so that a blob doesn't need to fit in memory. The
+ * manifest is pushed once all the blobs are in place.</p>
+ */
+public class RegistryImagePusher {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistryImagePusher.class);
+
+    /**
+     * ECR requires all the chunks but the last one to be at least 5 MB.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private final SdkHttpClient httpClient;
+    private final URI registry;
+    private final String authorization;
+    private final Executor executor;
+    private final int parallelism;
+    private final int chunkSize;
+
+    /**
+     * Creates a pusher.
+     *
+     * @param httpClient the HTTP client, owned by the caller
+     * @param registry the endpoint of the registry, e.g. {@code https://123456789012.dkr.ecr.eu-west-1.amazonaws.com}
+     * @param authorization the value of the {@code Authorization} header or {@code null} if the registry doesn't
+     *                      require authorization
+     * @param executor the executor the blobs are uploaded in
+     * @param parallelism the maximum number of blobs uploaded at the same time
+     */
+    public RegistryImagePusher(SdkHttpClient httpClient, URI registry, @Nullable String authorization,
+                               Executor executor, int parallelism) {
+        this(httpClient, registry, authorization, executor, parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    RegistryImagePusher(SdkHttpClient httpClient, URI registry, @Nullable String authorization, Executor executor,
+                        int parallelism, int chunkSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be greater than zero");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be greater than zero");
+        }
+        this.httpClient = httpClient;
+        this.registry = registry;
+        this.authorization = authorization;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Pushes the image to the repository and tags it.
+     *
+     * @param image the image
+     * @param repository the name of the repository
+     * @param tag the tag of the image
+     * @param mountRepositories the repositories of the same registry the blobs are mounted from if they exist there
+     * @return the statistics of the push
+     */
+    public Result push(OciImageLayout image, String repository, String tag, Collection<String> mountRepositories) {
+        Queue<OciImageLayout.Descriptor> blobs = new ConcurrentLinkedQueue<>(image.getBlobs());
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        Result result = new Result();
+        // Registers the running workers, the workers starting once the calling thread is done aren't run at all
+        Phaser workers = new Phaser(1);
+        Runnable worker = () -> {
+            if (workers.register() < 0) {
+                return;
+            }
+            try {
+                OciImageLayout.Descriptor blob;
+                while (failures.isEmpty() && (blob = blobs.poll()) != null) {
+                    try {
+                        pushBlob(image, blob, repository, mountRepositories, result);
+                    } catch (Exception e) {
+                        failures.add(e);
+                    }
+                }
+            } finally {
+                workers.arriveAndDeregister();
+            }
+        };
+        int workerCount = Math.min(parallelism, blobs.size());
+        for (int i = 1; i < workerCount; i++) {
+            executor.execute(worker);
+        }
+        // The calling thread pushes the blobs as well, so that the push progresses even if no worker can start
+        // because the executor is busy. Only the workers that have started are waited for.
+        if (workerCount > 0) {
+            worker.run();
+        }
+        workers.awaitAdvance(workers.arriveAndDeregister());
+        if (!failures.isEmpty()) {
+            CdkException exception = new CdkException("Unable to push the image to " + repository + ": " +
+                    failures.get(0).getMessage(), failures.get(0));
+            failures.stream().skip(1).forEach(exception::addSuppressed);
+            throw exception;
+        }
+
+        Response response = execute(SdkHttpMethod.PUT, "/v2/" + repository + "/manifests/" + tag,
+                image.getManifest().getMediaType(), image.getManifestContent());
+        expect(response, 201);
+        logger.info("Pushed the image {}:{}, {} blobs uploaded, {} mounted, {} already existed", repository, tag,
+                result.getUploadedBlobs(), result.getMountedBlobs(), result.getExistingBlobs());
+        return result;
+    }
+
+    private void pushBlob(OciImageLayout image, OciImageLayout.Descriptor blob, String repository,
+                          Collection<String> mountRepositories, Result result) throws IOException {
+        if (blobExists(repository, blob)) {
+            logger.debug("The blob {} already exists in {}", blob.getDigest(), repository);
+            result.existingBlobs.incrementAndGet();
+            return;
+        }
+
+        String location = null;
+        for (String mountRepository : mountRepositories) {
+            if (mountRepository.equals(repository) || !blobExists(mountRepository, blob)) {
+                continue;
+            }
+            Response response = execute(SdkHttpMethod.POST, "/v2/" + repository + "/blobs/uploads/?mount=" +
+                    blob.getDigest() + "&from=" + mountRepository, null, null);
+            if (response.status == 201) {
+                logger.debug("Mounted the blob {} from {} to {}", blob.getDigest(), mountRepository, repository);
+                result.mountedBlobs.incrementAndGet();
+                return;
+            }
+            // The registry has refused to mount the blob and started an upload instead
+            expect(response, 202);
+            location = response.getLocation();
+            break;
+        }
+        if (location == null) {
+            Response response = execute(SdkHttpMethod.POST, "/v2/" + repository + "/blobs/uploads/", null, null);
+            expect(response, 202);
+            location = response.getLocation();
+        }
+
+        logger.debug("Uploading the blob {} ({} bytes) to {}", blob.getDigest(), blob.getSize(), repository);
+        try (InputStream input = Files.newInputStream(image.getBlob(blob))) {
+            byte[] chunk = new byte[(int) Math.min(chunkSize, Math.max(blob.getSize(), 1))];
+            long offset = 0;
+            int length;
+            while ((length = ByteStreams.read(input, chunk, 0, chunk.length)) > 0) {
+                byte[] content = length == chunk.length ? chunk : Arrays.copyOf(chunk, length);
+                Response response = execute(SdkHttpMethod.PATCH, location, "application/octet-stream", content,
+                        "Content-Range", offset + "-" + (offset + length - 1));
+                expect(response, 202);
+                location = response.getLocation();
+                offset += length;
+            }
+        }
+        Response response = execute(SdkHttpMethod.PUT, location + (location.contains("?") ? "&" : "?") + "digest=" +
+                blob.getDigest(), null, null);
+        expect(response, 201);
+        result.uploadedBlobs.incrementAndGet();
+    }
+
+    private boolean blobExists(String repository, OciImageLayout.Descriptor blob) {
+        Response response = execute(SdkHttpMethod.HEAD, "/v2/" + repository + "/blobs/" + blob.getDigest(), null, null);
+        if (response.status == 404) {
+            return false;
+        }
+        expect(response, 200);
+        return true;
+    }
+
+    private Response execute(SdkHttpMethod method, String path, @Nullable String contentType, @Nullable byte[] content,
+                             String... headers) {
+        URI uri = registry.resolve(path);
+        SdkHttpFullRequest.Builder request = SdkHttpFullRequest.builder()
+                .uri(uri)
+                .method(method);
+        if (authorization != null) {
+            request.putHeader("Authorization", authorization);
+        }
+        if (contentType != null) {
+            request.putHeader("Content-Type", contentType);
+        }
+        for (int i = 0; i < headers.length; i += 2) {
+            request.putHeader(headers[i], headers[i + 1]);
+        }
+        byte[] body = content != null ? content : new byte[0];
+        if (method != SdkHttpMethod.HEAD) {
+            request.putHeader("Content-Length", String.valueOf(body.length));
+        }
+
+        HttpExecuteRequest.Builder executeRequest = HttpExecuteRequest.builder().request(request.build());
+        if (body.length > 0) {
+            executeRequest.contentStreamProvider(() -> new ByteArrayInputStream(body));
+        }
+        try {
+            HttpExecuteResponse response = httpClient.prepareRequest(executeRequest.build()).call();
+            String responseBody = null;
+            Optional<AbortableInputStream> responseStream = response.responseBody();
+            if (responseStream.isPresent()) {
+                try (InputStream input = responseStream.get()) {
+                    responseBody = new String(ByteStreams.toByteArray(input), StandardCharsets.UTF_8);
+                }
+            }
+            return new Response(method, uri, response.httpResponse().statusCode(),
+                    response.httpResponse().firstMatchingHeader("Location").orElse(null), responseBody);
+        } catch (IOException e) {
+            throw new UncheckedIOException("The request " + method + " " + uri + " has failed", e);
+        }
+    }
+
+    private static void expect(Response response, int status) {
+        if (response.status != status) {
+            throw new CdkException("Unexpected response to " + response.method + " " + response.uri + ": " +
+                    response.status + (response.body != null && !response.body.isEmpty() ? " " + response.body : ""));
+        }
+    }
+
+    /**
+     * Represents the statistics of a push.
+     */
+    public static class Result {
+
+        private final AtomicInteger uploadedBlobs = new AtomicInteger();
+        private final AtomicInteger mountedBlobs = new AtomicInteger();
+        private final AtomicInteger existingBlobs = new AtomicInteger();
+
+        public int getUploadedBlobs() {
+            return uploadedBlobs.get();
+        }
+
+        public int getMountedBlobs() {
+            return mountedBlobs.get();
+        }
+
+        public int getExistingBlobs() {
+            return existingBlobs.get();
+        }
+    }
+
+    private static class Response {
+
+        private final SdkHttpMethod method;
+        private final URI uri;
+        private final int status;
+        private final String location;
+        private final String body;
+
+        private Response(SdkHttpMethod method, URI uri, int status, @Nullable String location, @Nullable String body) {
+            this.method = method;
+            this.uri = uri;
+            this.status = status;
+            this.location = location;
+            this.body = body;
+        }
+
+        private String getLocation() {
+            if (location == null) {
+                throw new CdkException("The response to " + method + " " + uri + " doesn't contain the location of " +
+                        "the upload");
+            }
+            return location;
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package io.dataspray.aws.cdk.zip;
+
+import com.google.common.io.CountingOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Packs a directory into a zip archive. The entries are compressed concurrently and written in the order of their
+ * names with a fixed timestamp and normalized permissions, so the same directory is always packed into the same bytes
+ * regardless of the file system order and the modification times.
+ *
+ * <p>The small files are compressed in memory by the executor, a bounded number of files ahead of the one being
+ * written, up to a bounded number of bytes. The large files are compressed while they're being written, so that the
+ * memory usage is bounded. A file that no thread of the executor has started compressing by the time it's written is
+ * compressed by the writing thread, so the packing progresses even if all the threads of the executor are busy.</p>
+ */
+public class ZipPacker {
+
+    static final int DEFAULT_STREAMING_THRESHOLD = 8 * 1024 * 1024;
+
+    /**
+     * The maximum size of the files compressed in memory ahead of the one being written.
+     */
+    static final long DEFAULT_MAX_BUFFERED_BYTES = 4L * DEFAULT_STREAMING_THRESHOLD;
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final int VERSION = 20;
+    private static final int ZIP64_VERSION = 45;
+    private static final int UNIX_PLATFORM = 3 << 8;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+    private static final int DEFLATED = 8;
+    private static final int ZIP64_EXTRA_FIELD = 0x0001;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+
+    /**
+     * 1980-01-01 00:00:00, the earliest time that can be represented in the MS-DOS format.
+     */
+    private static final int DOS_TIME = 0;
+    private static final int DOS_DATE = (1 << 5) | 1;
+
+    private static final int REGULAR_FILE_MODE = 0100644;
+    private static final int EXECUTABLE_FILE_MODE = 0100755;
+
+    private final Executor executor;
+    private final int parallelism;
+    private final int streamingThreshold;
+    private final long maxBufferedBytes;
+
+    /**
+     * Creates a packer compressing up to the given number of files at the same time.
+     *
+     * @param executor the executor compressing the files
+     * @param parallelism the maximum number of files compressed at the same time
+     */
+    public ZipPacker(Executor executor, int parallelism) {
+        this(executor, parallelism, DEFAULT_STREAMING_THRESHOLD, DEFAULT_MAX_BUFFERED_BYTES);
+    }
+
+    ZipPacker(Executor executor, int parallelism, int streamingThreshold, long maxBufferedBytes) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be greater than zero");
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.streamingThreshold = streamingThreshold;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Packs the files of the directory (following the symbolic links) into a zip archive. The directories are not
+     * added to the archive as separate entries. The output stream isn't closed.
+     *
+     * @param directory the directory to pack
+     * @param output the stream the archive is written to
+     * @throws IOException if an I/O error occurs while reading the files or writing the archive
+     */
+    public void pack(Path directory, OutputStream output) throws IOException {
+        List<Entry> entries = listEntries(directory);
+        CountingOutputStream out = new CountingOutputStream(output);
+
+        // Compresses the small files ahead of the one being written
+        Deque<CompressionTask> pending = new ArrayDeque<>();
+        long bufferedBytes = 0;
+        Iterator<Entry> iterator = entries.iterator();
+        Entry next = iterator.hasNext() ? iterator.next() : null;
+        try {
+            while (next != null || !pending.isEmpty()) {
+                while (next != null && pending.size() < parallelism * 2) {
+                    if (next.size > streamingThreshold) {
+                        pending.add(new CompressionTask(next, true));
+                    } else if (pending.isEmpty() || bufferedBytes + next.size <= maxBufferedBytes) {
+                        CompressionTask task = new CompressionTask(next, false);
+                        pending.add(task);
+                        bufferedBytes += next.size;
+                        try {
+                            executor.execute(task);
+                        } catch (RejectedExecutionException e) {
+                            // The file is compressed by the writing thread
+                        }
+                    } else {
+                        break;
+                    }
+                    next = iterator.hasNext() ? iterator.next() : null;
+                }
+
+                CompressionTask task = pending.poll();
+                // Compresses the file right away unless a thread of the executor has already started it
+                task.run();
+                CompressedEntry compressedEntry = join(task.result);
+                if (!task.streamed) {
+                    bufferedBytes -= task.entry.size;
+                }
+                compressedEntry.entry.offset = out.getCount();
+                if (compressedEntry.data != null) {
+                    writeEntry(out, compressedEntry);
+                } else {
+                    writeStreamedEntry(out, compressedEntry.entry);
+                }
+            }
+        } finally {
+            pending.forEach(CompressionTask::cancel);
+        }
+
+        writeCentralDirectory(out, entries);
+        out.flush();
+    }
+
+    private List<Entry> listEntries(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory, FileVisitOption.FOLLOW_LINKS)) {
+            List<Entry> entries = new ArrayList<>();
+            for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                String name = toEntryName(directory.relativize(file));
+                int mode = Files.isExecutable(file) ? EXECUTABLE_FILE_MODE : REGULAR_FILE_MODE;
+                entries.add(new Entry(file, name, mode, Files.size(file)));
+            }
+            entries.sort(Comparator.comparing(entry -> entry.name));
+            return entries;
+        }
+    }
+
+    private CompressedEntry compress(Entry entry) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try (InputStream input = Files.newInputStream(entry.file)) {
+            CRC32 crc = new CRC32();
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(data, deflater)) {
+                entry.size = copy(input, deflaterOutput, crc);
+            }
+            entry.crc = crc.getValue();
+            entry.compressedSize = data.size();
+            return new CompressedEntry(entry, data.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to compress " + entry.file, e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeEntry(CountingOutputStream out, CompressedEntry compressedEntry) throws IOException {
+        Entry entry = compressedEntry.entry;
+        writeLocalFileHeader(out, entry, 0);
+        out.write(compressedEntry.data);
+    }
+
+    private void writeStreamedEntry(CountingOutputStream out, Entry entry) throws IOException {
+        writeLocalFileHeader(out, entry, DATA_DESCRIPTOR_FLAG);
+        entry.flags = DATA_DESCRIPTOR_FLAG;
+
+        long dataOffset = out.getCount();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try (InputStream input = Files.newInputStream(entry.file);
+             DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(new NonClosingOutputStream(out), deflater)) {
+            CRC32 crc = new CRC32();
+            entry.size = copy(input, deflaterOutput, crc);
+            deflaterOutput.finish();
+            entry.crc = crc.getValue();
+        } finally {
+            deflater.end();
+        }
+        entry.compressedSize = out.getCount() - dataOffset;
+        if (entry.size >= MAX_32 || entry.compressedSize >= MAX_32) {
+            throw new IOException("Files larger than 4 GB are not supported: " + entry.file);
+        }
+
+        ByteBuffer descriptor = buffer(16);
+        descriptor.putInt(DATA_DESCRIPTOR_SIGNATURE);
+        descriptor.putInt((int) entry.crc);
+        descriptor.putInt((int) entry.compressedSize);
+        descriptor.putInt((int) entry.size);
+        out.write(descriptor.array());
+    }
+
+    private void writeLocalFileHeader(OutputStream out, Entry entry, int flags) throws IOException {
+        if (entry.size >= MAX_32 || entry.compressedSize >= MAX_32) {
+            throw new IOException("Files larger than 4 GB are not supported: " + entry.file);
+        }
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        boolean streamed = (flags & DATA_DESCRIPTOR_FLAG) != 0;
+        ByteBuffer header = buffer(30 + name.length);
+        header.putInt(LOCAL_FILE_HEADER_SIGNATURE);
+        header.putShort((short) VERSION);
+        header.putShort((short) (UTF8_FLAG | flags));
+        header.putShort((short) DEFLATED);
+        header.putShort((short) DOS_TIME);
+        header.putShort((short) DOS_DATE);
+        header.putInt(streamed ? 0 : (int) entry.crc);
+        header.putInt(streamed ? 0 : (int) entry.compressedSize);
+        header.putInt(streamed ? 0 : (int) entry.size);
+        header.putShort((short) name.length);
+        header.putShort((short) 0);
+        header.put(name);
+        out.write(header.array());
+    }
+
+    private void writeCentralDirectory(CountingOutputStream out, List<Entry> entries) throws IOException {
+        long centralDirectoryOffset = out.getCount();
+        for (Entry entry : entries) {
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            boolean zip64 = entry.offset >= MAX_32;
+            ByteBuffer header = buffer(46 + name.length + (zip64 ? 12 : 0));
+            header.putInt(CENTRAL_DIRECTORY_HEADER_SIGNATURE);
+            header.putShort((short) (UNIX_PLATFORM | ZIP64_VERSION));
+            header.putShort((short) (zip64 ? ZIP64_VERSION : VERSION));
+            header.putShort((short) (UTF8_FLAG | entry.flags));
+            header.putShort((short) DEFLATED);
+            header.putShort((short) DOS_TIME);
+            header.putShort((short) DOS_DATE);
+            header.putInt((int) entry.crc);
+            header.putInt((int) entry.compressedSize);
+            header.putInt((int) entry.size);
+            header.putShort((short) name.length);
+            header.putShort((short) (zip64 ? 12 : 0));
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putInt(entry.mode << 16);
+            header.putInt(zip64 ? (int) MAX_32 : (int) entry.offset);
+            header.put(name);
+            if (zip64) {
+                header.putShort((short) ZIP64_EXTRA_FIELD);
+                header.putShort((short) 8);
+                header.putLong(entry.offset);
+            }
+            out.write(header.array());
+        }
+        long centralDirectorySize = out.getCount() - centralDirectoryOffset;
+
+        boolean zip64 = entries.size() >= MAX_16 || centralDirectoryOffset >= MAX_32 || centralDirectorySize >= MAX_32;
+        if (zip64) {
+            long zip64EndOffset = out.getCount();
+            ByteBuffer end = buffer(56 + 20);
+            end.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+            end.putLong(44);
+            end.putShort((short) (UNIX_PLATFORM | ZIP64_VERSION));
+            end.putShort((short) ZIP64_VERSION);
+            end.putInt(0);
+            end.putInt(0);
+            end.putLong(entries.size());
+            end.putLong(entries.size());
+            end.putLong(centralDirectorySize);
+            end.putLong(centralDirectoryOffset);
+
+            end.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE);
+            end.putInt(0);
+            end.putLong(zip64EndOffset);
+            end.putInt(1);
+            out.write(end.array());
+        }
+
+        ByteBuffer end = buffer(22);
+        end.putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) (zip64 ? MAX_16 : entries.size()));
+        end.putShort((short) (zip64 ? MAX_16 : entries.size()));
+        end.putInt(zip64 ? (int) MAX_32 : (int) centralDirectorySize);
+        end.putInt(zip64 ? (int) MAX_32 : (int) centralDirectoryOffset);
+        end.putShort((short) 0);
+        out.write(end.array());
+    }
+
+    private static String toEntryName(Path relativePath) {
+        List<String> names = new ArrayList<>();
+        relativePath.forEach(name -> names.add(name.toString()));
+        return String.join("/", names);
+    }
+
+    private static long copy(InputStream input, OutputStream output, CRC32 crc) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long size = 0;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            crc.update(buffer, 0, read);
+            output.write(buffer, 0, read);
+            size += read;
+        }
+        return size;
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static CompressedEntry join(CompletableFuture<CompressedEntry> future) throws IOException {
+        try {
+            return future.join();
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Entry {
+
+        private final Path file;
+        private final String name;
+        private final int mode;
+        private long size;
+        private long compressedSize;
+        private long crc;
+        private long offset;
+        private int flags;
+
+        private Entry(Path file, String name, int mode, long size) {
+            this.file = file;
+            this.name = name;
+            this.mode = mode;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Compresses a file once, either in a thread of the executor or in the writing thread, whichever claims it first.
+     */
+    private final class CompressionTask implements Runnable {
+
+        private final Entry entry;
+        private final boolean streamed;
+        private final AtomicBoolean claimed;
+        private final CompletableFuture<CompressedEntry> result;
+
+        private CompressionTask(Entry entry, boolean streamed) {
+            this.entry = entry;
+            this.streamed = streamed;
+            this.claimed = new AtomicBoolean(streamed);
+            this.result = streamed
+                    ? CompletableFuture.completedFuture(new CompressedEntry(entry))
+                    : new CompletableFuture<>();
+        }
+
+        @Override
+        public void run() {
+            if (claimed.compareAndSet(false, true)) {
+                try {
+                    result.complete(compress(entry));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }
+
+        private void cancel() {
+            if (claimed.compareAndSet(false, true)) {
+                result.cancel(false);
+            }
+        }
+    }
+
+    private static class CompressedEntry {
+
+        private final Entry entry;
+        private final byte[] data;
+
+        private CompressedEntry(Entry entry) {
+            this(entry, null);
+        }
+
+        private CompressedEntry(Entry entry, byte[] data) {
+            this.entry = entry;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Lets the deflater finish the compressed data of an entry without closing the archive stream.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.dataspray.aws.cdk;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * The default executor provider for Java 21 and newer: the blocking work is performed in virtual threads, so waiting
+ * for the blocking clients doesn't tie up any platform thread.
+ */
+final class DefaultExecutorProvider implements ExecutorProvider {
+
+    static final DefaultExecutorProvider INSTANCE = new DefaultExecutorProvider();
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+
+    private DefaultExecutorProvider() {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                .name("aws-cdk-io-", 0)
+                .factory());
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform()
+                .name("aws-cdk-scheduler-", 0)
+                .daemon(true)
+                .factory());
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+}
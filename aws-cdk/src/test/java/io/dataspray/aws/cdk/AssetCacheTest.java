@@ -0,0 +1,74 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+public class AssetCacheTest {
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("asset-cache-test");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() throws IOException {
+        MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testArtifactIsCached() throws IOException {
+        AssetCache cache = new AssetCache(directory, 1024);
+        Assert.assertFalse(cache.find("hash").isPresent());
+
+        cache.put("hash", write(cache, 10));
+
+        Path artifact = cache.find("hash").orElseThrow(AssertionError::new);
+        Assert.assertEquals(Files.size(artifact), 10);
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(files.count(), 1);
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedArtifactsAreEvicted() throws IOException {
+        AssetCache cache = new AssetCache(directory, 25);
+        cache.put("first", write(cache, 10));
+        cache.put("second", write(cache, 10));
+        Files.setLastModifiedTime(cache.find("first").get(), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(cache.find("second").get(), FileTime.fromMillis(2000));
+
+        cache.put("third", write(cache, 10));
+
+        Assert.assertFalse(cache.find("first").isPresent());
+        Assert.assertTrue(cache.find("second").isPresent());
+        Assert.assertTrue(cache.find("third").isPresent());
+    }
+
+    @Test
+    public void testRecentlyUsedArtifactsAreNotEvicted() throws IOException {
+        AssetCache cache = new AssetCache(directory, 15);
+        cache.put("first", write(cache, 10));
+        cache.put("second", write(cache, 10));
+
+        Assert.assertTrue(cache.find("first").isPresent());
+        Assert.assertTrue(cache.find("second").isPresent());
+    }
+
+    private Path write(AssetCache cache, int size) throws IOException {
+        Path tempFile = cache.createTempFile();
+        Files.write(tempFile, new byte[size]);
+        return tempFile;
+    }
+}
@@ -0,0 +1,133 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import software.amazon.awscdk.cloudassembly.schema.FileAsset;
+import software.amazon.awscdk.cloudassembly.schema.FileDestination;
+import software.amazon.awscdk.cloudassembly.schema.FileSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AssetDeployerTest {
+
+    @Test
+    public void testSingleFailure() {
+        IOException cause = new IOException("Access Denied");
+        StackDeploymentException exception = AssetDeployer.toDeploymentException(ImmutableList.of(
+                new CdkException("Unable to upload the file", cause)));
+
+        Assert.assertEquals(exception.getMessage(), "Cannot deploy. Unable to upload the file");
+        Assert.assertSame(exception.getCause(), cause);
+        Assert.assertEquals(exception.getSuppressed().length, 0);
+    }
+
+    @Test
+    public void testFailuresAreCombined() {
+        CdkException first = new CdkException("Unable to upload the first file");
+        RuntimeException second = new IllegalStateException("Unable to upload the second file");
+        StackDeploymentException exception = AssetDeployer.toDeploymentException(ImmutableList.of(first, second));
+
+        Assert.assertEquals(exception.getMessage(), "Cannot deploy. 2 asset publications have failed, the first " +
+                "failure: Unable to upload the first file");
+        Assert.assertEquals(exception.getSuppressed(), new Throwable[]{second});
+    }
+
+    @Test
+    public void testSingleStackFailureIsNotWrapped() {
+        StackDeploymentException failure = StackDeploymentException.builder("stack", null)
+                .withCause("Unable to upload the file")
+                .build();
+
+        Assert.assertSame(AssetDeployer.toDeploymentException(ImmutableList.of(failure)), failure);
+    }
+
+    @Test
+    public void testFailuresOfSameStackKeepStack() {
+        StackDeploymentException first = StackDeploymentException.builder("stack", null)
+                .withCause("Unable to upload the first file")
+                .build();
+        StackDeploymentException second = StackDeploymentException.builder("stack", null)
+                .withCause("Unable to upload the second file")
+                .build();
+        StackDeploymentException exception = AssetDeployer.toDeploymentException(ImmutableList.of(first, second));
+
+        Assert.assertEquals(exception.getStackName(), "stack");
+        Assert.assertEquals(exception.getMessage(), "The stack 'stack' cannot be deployed. 2 asset publications " +
+                "have failed");
+        Assert.assertSame(exception.getCause(), first);
+        Assert.assertEquals(exception.getSuppressed(), new Throwable[]{second});
+    }
+
+    @Test
+    public void testFailuresOfDifferentStacksAreNotAttributedToStack() {
+        StackDeploymentException first = StackDeploymentException.builder("first", null).build();
+        StackDeploymentException second = StackDeploymentException.builder("second", null).build();
+        StackDeploymentException exception = AssetDeployer.toDeploymentException(ImmutableList.of(first, second));
+
+        Assert.assertNull(exception.getStackName());
+        Assert.assertSame(exception.getCause(), first);
+    }
+
+    @Test
+    public void testConcurrentUploadsAreLimited() {
+        List<CompletableFuture<Void>> uploads = new ArrayList<>();
+        FileAssetPublisher fileAssetPublisher = mock(FileAssetPublisher.class);
+        when(fileAssetPublisher.publishAsync(any(Path.class), anyString(), anyString(), any(), any()))
+                .thenAnswer(invocation -> {
+                    CompletableFuture<Void> upload = new CompletableFuture<>();
+                    uploads.add(upload);
+                    return upload;
+                });
+        ResolvedEnvironment environment = mock(ResolvedEnvironment.class);
+        when(environment.resolveVariables(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        EnvironmentResolver environmentResolver = mock(EnvironmentResolver.class);
+        when(environmentResolver.resolveFromDestination(anyString())).thenReturn(environment);
+        AssetDeployer assetDeployer = new AssetDeployer(Paths.get("cdk.out"), fileAssetPublisher,
+                mock(DockerImageAssetPublisher.class), environmentResolver, null, DeployOptions.builder()
+                .withExecutorProvider(ExecutorProvider.of(Runnable::run, mock(ScheduledExecutorService.class)))
+                .withMaxConcurrentUploads(2)
+                .build());
+
+        ImmutableMap.Builder<String, FileDestination> destinations = ImmutableMap.builder();
+        for (int i = 0; i < 5; i++) {
+            destinations.put("destination" + i, FileDestination.builder()
+                    .bucketName("bucket" + i)
+                    .objectKey("asset.zip")
+                    .build());
+        }
+        CompletableFuture<Void> deployment = assetDeployer.deployFileAssetAsync("asset", FileAsset.builder()
+                .source(FileSource.builder().path("asset.zip").build())
+                .destinations(destinations.build())
+                .build(), 0);
+
+        // The uploads in progress don't occupy the threads of the executor, but still hold their slots
+        Assert.assertEquals(uploads.size(), 2);
+        uploads.get(0).complete(null);
+        Assert.assertEquals(uploads.size(), 3);
+        for (int i = 1; i < uploads.size(); i++) {
+            Assert.assertFalse(deployment.isDone());
+            uploads.get(i).complete(null);
+        }
+
+        Assert.assertTrue(deployment.isDone());
+        deployment.join();
+        verify(fileAssetPublisher, times(5))
+                .publishAsync(any(Path.class), eq("asset.zip"), anyString(), eq(environment), eq("asset"));
+    }
+}
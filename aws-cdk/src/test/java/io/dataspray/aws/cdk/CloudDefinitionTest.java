@@ -0,0 +1,24 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+public class CloudDefinitionTest {
+
+    @Test
+    public void testDependenciesAreResolvedToStackNames() {
+        // The stacks defined in stages are named after their display names, but depend on the artifact ids
+        Map<String, String> stackNames = ImmutableMap.of(
+                "StageNetworkA1B2C3D4", "Stage/Network",
+                "StageServiceE5F6A7B8", "Stage/Service");
+
+        Assert.assertEquals(CloudDefinition.resolveDependencies(
+                ImmutableList.of("StageNetworkA1B2C3D4", "StageServiceE5F6A7B8.assets"), stackNames),
+                ImmutableList.of("Stage/Network", "StageServiceE5F6A7B8.assets"));
+        Assert.assertEquals(CloudDefinition.resolveDependencies(null, stackNames), ImmutableList.of());
+    }
+}
@@ -0,0 +1,74 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class DockerImageAssetPublisherTest {
+
+    private Path directory;
+    private Path dockerfile;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("docker-image-asset-publisher-test");
+        dockerfile = directory.resolve("Dockerfile");
+        Files.write(dockerfile, "FROM alpine\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testBuildxCommand() {
+        ImageBuild imageBuild = ImageBuild.builder()
+                .withContextDirectory(directory)
+                .withDockerfile(dockerfile)
+                .withImageTag("cdkasset-hash")
+                .withTarget("runtime")
+                .withBuildx(true)
+                .withCache(ImageBuildCache.registry("registry.example.com/cache"))
+                .withCacheKey("runtime-key")
+                .build();
+
+        Assert.assertEquals(DockerImageAssetPublisher.toBuildCommand(imageBuild), ImmutableList.of(
+                "docker", "buildx", "build", "--load",
+                "--tag", "cdkasset-hash",
+                "--target", "runtime",
+                "--cache-from", "type=registry,ref=registry.example.com/cache:runtime-key",
+                "--cache-to", "type=registry,mode=max,image-manifest=true,oci-mediatypes=true," +
+                        "ref=registry.example.com/cache:runtime-key",
+                "--file", dockerfile.toString(),
+                directory.toString()));
+    }
+
+    @Test
+    public void testBuildxOciOutputCommand() {
+        ImageBuild imageBuild = ImageBuild.builder()
+                .withContextDirectory(directory)
+                .withDockerfile(dockerfile)
+                .withImageTag("cdkasset-hash")
+                .withBuildx(true)
+                .withOutputDirectory(directory.resolve("image"))
+                .build();
+
+        Assert.assertEquals(DockerImageAssetPublisher.toBuildCommand(imageBuild), ImmutableList.of(
+                "docker", "buildx", "build",
+                "--output", "type=oci,tar=false,dest=" + directory.resolve("image"),
+                "--provenance=false",
+                "--tag", "cdkasset-hash",
+                "--file", dockerfile.toString(),
+                directory.toString()));
+    }
+}
@@ -0,0 +1,90 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import io.dataspray.aws.cdk.process.ProcessRunner;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExecutableAssetGeneratorTest {
+
+    private static final List<String> EXECUTABLE = ImmutableList.of("./build.sh");
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("executable-asset-test");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() throws IOException {
+        MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testGeneratedFileIsCached() throws IOException {
+        AtomicInteger runs = new AtomicInteger();
+        ProcessRunner processRunner = (command, context) -> {
+            runs.incrementAndGet();
+            try {
+                Files.write(directory.resolve("asset.txt"), "content".getBytes(StandardCharsets.UTF_8));
+                context.getOutput().get().write("Building\nasset.txt\n".getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return 0;
+        };
+
+        Path file = createGenerator(processRunner).generate("hash", EXECUTABLE, 0).join();
+        Assert.assertEquals(file, directory.resolve("asset.txt"));
+        Assert.assertEquals(runs.get(), 1);
+
+        Path cachedFile = createGenerator(processRunner).generate("hash", EXECUTABLE, 0).join();
+        Assert.assertEquals(runs.get(), 1);
+        Assert.assertEquals(new String(Files.readAllBytes(cachedFile), StandardCharsets.UTF_8), "content");
+    }
+
+    @Test
+    public void testMissingFileIsReported() {
+        ProcessRunner processRunner = (command, context) -> {
+            try {
+                context.getOutput().get().write("missing.txt".getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return 0;
+        };
+
+        try {
+            MoreFutures.join(createGenerator(processRunner).generate("hash", EXECUTABLE, 0));
+            Assert.fail("The missing file hasn't been reported");
+        } catch (CdkException e) {
+            Assert.assertTrue(e.getMessage().contains("missing.txt"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParseOutput() {
+        Assert.assertEquals(ExecutableAssetGenerator.parseOutput("Building\r\nout/asset.zip\r\n\r\n"),
+                Optional.of("out/asset.zip"));
+        Assert.assertEquals(ExecutableAssetGenerator.parseOutput(" \n"), Optional.empty());
+    }
+
+    private ExecutableAssetGenerator createGenerator(ProcessRunner processRunner) {
+        return new ExecutableAssetGenerator(processRunner, directory, directory.resolve("cache"), 1024,
+                ExecutorProvider.defaultProvider(), 2);
+    }
+}
@@ -0,0 +1,48 @@
+package io.dataspray.aws.cdk;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+
+public class ExponentialBackoffPollingStrategyTest {
+
+    @Test
+    public void testDelayGrowsUpToMaxDelay() {
+        ExponentialBackoffPollingStrategy strategy = ExponentialBackoffPollingStrategy.builder()
+                .withInitialDelay(Duration.ofSeconds(1))
+                .withMaxDelay(Duration.ofSeconds(10))
+                .withMultiplier(2)
+                .withJitter(0)
+                .build();
+
+        Assert.assertEquals(strategy.getDelay(0), Duration.ofSeconds(1));
+        Assert.assertEquals(strategy.getDelay(1), Duration.ofSeconds(2));
+        Assert.assertEquals(strategy.getDelay(3), Duration.ofSeconds(8));
+        Assert.assertEquals(strategy.getDelay(4), Duration.ofSeconds(10));
+        Assert.assertEquals(strategy.getDelay(1000), Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void testJitterShortensDelay() {
+        ExponentialBackoffPollingStrategy strategy = ExponentialBackoffPollingStrategy.builder()
+                .withInitialDelay(Duration.ofSeconds(10))
+                .withMaxDelay(Duration.ofSeconds(10))
+                .withJitter(0.5)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            Duration delay = strategy.getDelay(i);
+            Assert.assertTrue(delay.compareTo(Duration.ofSeconds(5)) >= 0, "Delay is too short: " + delay);
+            Assert.assertTrue(delay.compareTo(Duration.ofSeconds(10)) <= 0, "Delay is too long: " + delay);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMaxDelayLessThanInitialDelay() {
+        ExponentialBackoffPollingStrategy.builder()
+                .withInitialDelay(Duration.ofSeconds(10))
+                .withMaxDelay(Duration.ofSeconds(1))
+                .build();
+    }
+}
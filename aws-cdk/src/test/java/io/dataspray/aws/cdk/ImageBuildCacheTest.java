@@ -0,0 +1,69 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public class ImageBuildCacheTest {
+
+    private Path directory;
+    private Path dockerfile;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("image-build-cache-test");
+        dockerfile = directory.resolve("Dockerfile");
+        Files.write(dockerfile, "FROM alpine\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testGenerateKey() throws IOException {
+        String key = ImageBuildCache.generateKey("api", dockerfile, "Runtime", ImmutableMap.of("A", "1", "B", "2"));
+        Assert.assertTrue(key.startsWith("runtime-"), key);
+        Assert.assertEquals(ImageBuildCache.generateKey("api", dockerfile, "Runtime",
+                ImmutableMap.of("B", "2", "A", "1")), key);
+        Assert.assertTrue(ImageBuildCache.generateKey("api", dockerfile, null, null).startsWith("image-"));
+
+        // The images built from the same template and published to different repositories don't share the cache
+        Assert.assertTrue(!ImageBuildCache.generateKey("worker", dockerfile, "Runtime",
+                ImmutableMap.of("A", "1", "B", "2")).equals(key));
+
+        Files.write(dockerfile, "FROM alpine\nRUN true\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(!ImageBuildCache.generateKey("api", dockerfile, "Runtime",
+                ImmutableMap.of("A", "1", "B", "2")).equals(key));
+    }
+
+    @Test
+    public void testLocalCacheIsReplacedOnCompletion() throws IOException {
+        ImageBuildCache cache = ImageBuildCache.local(directory.resolve("cache"));
+        Assert.assertEquals(cache.getCacheFrom("key"), Optional.empty());
+        Assert.assertEquals(cache.getCacheTo("key"), "type=local,mode=max,dest=" +
+                directory.resolve("cache").resolve("key.new"));
+
+        // Simulates the export of the cache by BuildKit
+        Path newEntry = directory.resolve("cache").resolve("key.new");
+        Files.createDirectories(newEntry);
+        Files.write(newEntry.resolve("index.json"), "{}".getBytes(StandardCharsets.UTF_8));
+        cache.complete("key");
+
+        Path entry = directory.resolve("cache").resolve("key");
+        Assert.assertTrue(Files.exists(entry.resolve("index.json")));
+        Assert.assertTrue(!Files.exists(newEntry));
+        Assert.assertEquals(cache.getCacheFrom("key"), Optional.of("type=local,src=" + entry));
+    }
+}
@@ -0,0 +1,43 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class PriorityTaskQueueTest {
+
+    @Test
+    public void testTasksAreStartedByPriority() {
+        List<Runnable> pending = new ArrayList<>();
+        List<String> started = new ArrayList<>();
+        PriorityTaskQueue queue = new PriorityTaskQueue(pending::add, 1);
+
+        queue.submit(0, () -> started.add("first"));
+        queue.submit(1, () -> started.add("low"));
+        queue.submit(5, () -> started.add("high"));
+        queue.submit(1, () -> started.add("low2"));
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+
+        Assert.assertEquals(started, ImmutableList.of("first", "high", "low", "low2"));
+    }
+
+    @Test
+    public void testFailureDoesNotBlockQueue() {
+        PriorityTaskQueue queue = new PriorityTaskQueue(MoreExecutors.directExecutor(), 1);
+
+        CompletableFuture<Void> failed = queue.submit(0, () -> {
+            throw new IllegalStateException("failure");
+        });
+        CompletableFuture<String> succeeded = queue.submit(0, () -> "result");
+
+        Assert.assertTrue(failed.isCompletedExceptionally());
+        Assert.assertEquals(succeeded.join(), "result");
+    }
+}
@@ -0,0 +1,64 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+public class StackFingerprintTest {
+
+    private static final Map<String, Object> TEMPLATE = ImmutableMap.of(
+            "Parameters", ImmutableMap.of("Name", ImmutableMap.of("Type", "String")),
+            "Outputs", ImmutableMap.of("Url", ImmutableMap.of("Value", "https://example.com")));
+
+    @Test
+    public void testFingerprintIsDeterministic() {
+        String fingerprint = StackFingerprint.compute(stack(TEMPLATE), ImmutableMap.of("Name", "value"),
+                ImmutableMap.of("a", "1", "b", "2"), ImmutableSet.of("arn1", "arn2"));
+
+        Assert.assertEquals(StackFingerprint.compute(stack(TEMPLATE), ImmutableMap.of("Name", "value"),
+                ImmutableMap.of("b", "2", "a", "1"), ImmutableSet.of("arn2", "arn1")), fingerprint);
+        Assert.assertEquals(StackFingerprint.compute(stack(TEMPLATE), ImmutableMap.of("Name", "value", "Undefined", "value"),
+                ImmutableMap.of("a", "1", "b", "2"), ImmutableSet.of("arn1", "arn2")), fingerprint);
+    }
+
+    @Test
+    public void testFingerprintChanges() {
+        String fingerprint = StackFingerprint.compute(stack(TEMPLATE), ImmutableMap.of("Name", "value"),
+                ImmutableMap.of(), null);
+
+        Assert.assertNotEquals(StackFingerprint.compute(stack(TEMPLATE), ImmutableMap.of("Name", "other"),
+                ImmutableMap.of(), null), fingerprint);
+        Assert.assertNotEquals(StackFingerprint.compute(stack(TEMPLATE), ImmutableMap.of("Name", "value"),
+                ImmutableMap.of("a", "1"), null), fingerprint);
+        Assert.assertNotEquals(StackFingerprint.compute(stack(ImmutableMap.of()), ImmutableMap.of("Name", "value"),
+                ImmutableMap.of(), null), fingerprint);
+    }
+
+    @Test
+    public void testOutputIsAdded() {
+        Map<String, Object> template = StackFingerprint.addOutput(TEMPLATE, "fingerprint");
+
+        Assert.assertEquals(template.get("Parameters"), TEMPLATE.get("Parameters"));
+        Map<?, ?> outputs = (Map<?, ?>) template.get("Outputs");
+        Assert.assertEquals(outputs.keySet(), ImmutableSet.of("Url", StackFingerprint.OUTPUT_KEY));
+        Assert.assertEquals(((Map<?, ?>) outputs.get(StackFingerprint.OUTPUT_KEY)).get("Value"), "fingerprint");
+    }
+
+    private StackDefinition stack(Map<String, Object> template) {
+        return StackDefinition.builder()
+                .stackName("stack")
+                .template(template)
+                .fileAssets(ImmutableList.of())
+                .imageAssets(ImmutableList.of())
+                .environment("aws://123456789012/us-east-1")
+                .parameters(ImmutableMap.of("Name", new ParameterDefinition("Name", null)))
+                .parameterValues(ImmutableMap.of())
+                .resources(ImmutableMap.of())
+                .dependencies(ImmutableList.of())
+                .build();
+    }
+}
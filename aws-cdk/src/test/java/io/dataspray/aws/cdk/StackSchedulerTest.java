@@ -0,0 +1,158 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StackSchedulerTest {
+
+    @Test
+    public void testDependenciesAreRespected() {
+        List<StackDefinition> stacks = ImmutableList.of(
+                stack("network"),
+                stack("database", "network"),
+                stack("service", "network", "database"),
+                stack("monitoring", "network")
+        );
+        Map<String, CompletableFuture<Void>> operations = new ConcurrentHashMap<>();
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<Void> result = new StackScheduler(10).schedule(stacks, stack -> {
+            started.add(stack.getStackName());
+            return operations.computeIfAbsent(stack.getStackName(), name -> new CompletableFuture<>());
+        });
+
+        Assert.assertEquals(started, ImmutableList.of("network"));
+        operations.get("network").complete(null);
+        Assert.assertEquals(started, ImmutableList.of("network", "database", "monitoring"));
+        operations.get("monitoring").complete(null);
+        Assert.assertEquals(started, ImmutableList.of("network", "database", "monitoring"));
+        operations.get("database").complete(null);
+        Assert.assertEquals(started, ImmutableList.of("network", "database", "monitoring", "service"));
+        Assert.assertFalse(result.isDone());
+        operations.get("service").complete(null);
+        Assert.assertTrue(result.isDone());
+        Assert.assertFalse(result.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testCriticalPathLengths() {
+        List<StackDefinition> stacks = ImmutableList.of(
+                stack("network", "network.assets"),
+                stack("database", "network"),
+                stack("service", "network", "database"),
+                stack("monitoring")
+        );
+
+        Assert.assertEquals(StackScheduler.getCriticalPathLengths(stacks), ImmutableMap.of(
+                "network", 3,
+                "database", 2,
+                "service", 1,
+                "monitoring", 1));
+    }
+
+    @Test
+    public void testMaxConcurrency() {
+        List<StackDefinition> stacks = ImmutableList.of(stack("a"), stack("b"), stack("c"), stack("d"));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Void>> operations = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<Void> result = new StackScheduler(2).schedule(stacks, stack -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            CompletableFuture<Void> operation = new CompletableFuture<>();
+            operations.add(operation);
+            return operation.whenComplete((r, e) -> running.decrementAndGet());
+        });
+
+        for (int i = 0; i < stacks.size(); i++) {
+            operations.get(i).complete(null);
+        }
+        Assert.assertTrue(result.isDone());
+        Assert.assertEquals(maxRunning.get(), 2);
+    }
+
+    @Test
+    public void testGroupLimit() {
+        List<StackDefinition> stacks = ImmutableList.of(
+                environmentStack("a", "aws://111111111111/us-east-1"),
+                environmentStack("b", "aws://111111111111/us-east-1"),
+                environmentStack("c", "aws://222222222222/us-east-1"),
+                environmentStack("d", "aws://222222222222/eu-west-1")
+        );
+        List<StackScheduler.Limit> limits = ImmutableList.of(
+                StackScheduler.Limit.of("environment", StackDefinition::getEnvironment, 1)
+        );
+        Map<String, CompletableFuture<Void>> operations = new ConcurrentHashMap<>();
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<Void> result = new StackScheduler(10, limits).schedule(stacks, stack -> {
+            started.add(stack.getStackName());
+            return operations.computeIfAbsent(stack.getStackName(), name -> new CompletableFuture<>());
+        });
+
+        Assert.assertEquals(started, ImmutableList.of("a", "c", "d"));
+        operations.get("c").complete(null);
+        Assert.assertEquals(started, ImmutableList.of("a", "c", "d"));
+        operations.get("a").complete(null);
+        Assert.assertEquals(started, ImmutableList.of("a", "c", "d", "b"));
+        operations.get("b").complete(null);
+        operations.get("d").complete(null);
+        Assert.assertTrue(result.isDone());
+    }
+
+    @Test
+    public void testFailureStopsDependents() {
+        List<StackDefinition> stacks = ImmutableList.of(stack("network"), stack("service", "network"));
+        List<String> started = new ArrayList<>();
+
+        CompletableFuture<Void> result = new StackScheduler(1).schedule(stacks, stack -> {
+            started.add(stack.getStackName());
+            CompletableFuture<Void> operation = new CompletableFuture<>();
+            operation.completeExceptionally(new CdkException("failed"));
+            return operation;
+        });
+
+        Assert.assertEquals(started, ImmutableList.of("network"));
+        Assert.assertTrue(result.isCompletedExceptionally());
+        try {
+            MoreFutures.join(result);
+            Assert.fail("The failure hasn't been propagated");
+        } catch (CdkException e) {
+            Assert.assertEquals(e.getMessage(), "failed");
+        }
+    }
+
+    @Test(expectedExceptions = CdkException.class)
+    public void testCircularDependency() {
+        List<StackDefinition> stacks = ImmutableList.of(stack("a", "b"), stack("b", "a"));
+        MoreFutures.join(new StackScheduler(1).schedule(stacks, stack -> CompletableFuture.completedFuture(null)));
+    }
+
+    private StackDefinition stack(String stackName, String... dependencies) {
+        return environmentStack(stackName, "aws://123456789012/us-east-1", dependencies);
+    }
+
+    private StackDefinition environmentStack(String stackName, String environment, String... dependencies) {
+        return StackDefinition.builder()
+                .stackName(stackName)
+                .template(ImmutableMap.of())
+                .fileAssets(ImmutableList.of())
+                .imageAssets(ImmutableList.of())
+                .environment(environment)
+                .parameters(ImmutableMap.of())
+                .parameterValues(ImmutableMap.of())
+                .resources(ImmutableMap.of())
+                .dependencies(ImmutableList.copyOf(dependencies))
+                .build();
+    }
+}
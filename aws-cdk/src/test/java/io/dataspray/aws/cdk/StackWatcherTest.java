@@ -0,0 +1,130 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
+import software.amazon.awssdk.services.cloudformation.model.CloudFormationException;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStacksRequest;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStacksResponse;
+import software.amazon.awssdk.services.cloudformation.model.Stack;
+import software.amazon.awssdk.services.cloudformation.model.StackStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StackWatcherTest {
+
+    private static final PollingStrategy POLLING_STRATEGY = PollingStrategy.fixed(Duration.ZERO);
+
+    private CloudFormationAsyncClient client;
+    private List<Runnable> scheduledPolls;
+    private StackWatcher watcher;
+
+    @BeforeMethod
+    public void setUp() {
+        client = mock(CloudFormationAsyncClient.class);
+        scheduledPolls = new ArrayList<>();
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            scheduledPolls.add(invocation.getArgument(0));
+            return mock(ScheduledFuture.class);
+        }).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        watcher = StackWatcher.of(client, ExecutorProvider.of(MoreExecutors.directExecutor(), scheduler));
+    }
+
+    @Test
+    public void testStacksAreRefreshedWithSingleListing() {
+        when(client.describeStacks(listing()))
+                .thenReturn(response(stack("a", StackStatus.CREATE_COMPLETE), stack("b", StackStatus.UPDATE_COMPLETE)));
+
+        CompletableFuture<Stack> a = watcher.watch(stack("a", StackStatus.CREATE_IN_PROGRESS), null, POLLING_STRATEGY);
+        CompletableFuture<Stack> b = watcher.watch(stack("b", StackStatus.UPDATE_IN_PROGRESS), null, POLLING_STRATEGY);
+        poll();
+
+        Assert.assertEquals(a.join().stackStatus(), StackStatus.CREATE_COMPLETE);
+        Assert.assertEquals(b.join().stackStatus(), StackStatus.UPDATE_COMPLETE);
+        verify(client, times(1)).describeStacks(any(DescribeStacksRequest.class));
+    }
+
+    @Test
+    public void testStackMissingFromListingIsDescribedById() {
+        when(client.describeStacks(listing()))
+                .thenReturn(response(stack("a", StackStatus.CREATE_COMPLETE)));
+        // The deleted stacks are not listed
+        when(client.describeStacks(describe("b")))
+                .thenReturn(response(stack("b", StackStatus.DELETE_COMPLETE)));
+
+        CompletableFuture<Stack> a = watcher.watch(stack("a", StackStatus.CREATE_IN_PROGRESS), null, POLLING_STRATEGY);
+        CompletableFuture<Stack> b = watcher.watch(stack("b", StackStatus.DELETE_IN_PROGRESS), null, POLLING_STRATEGY);
+        poll();
+
+        Assert.assertEquals(a.join().stackStatus(), StackStatus.CREATE_COMPLETE);
+        Assert.assertEquals(b.join().stackStatus(), StackStatus.DELETE_COMPLETE);
+    }
+
+    @Test
+    public void testListingFailureFallsBackToDescribingStacks() {
+        when(client.describeStacks(listing()))
+                .thenReturn(MoreFutures.failed(CloudFormationException.builder()
+                        .message("Access denied")
+                        .statusCode(403)
+                        .build()));
+        when(client.describeStacks(describe("a")))
+                .thenReturn(response(stack("a", StackStatus.CREATE_COMPLETE)));
+        when(client.describeStacks(describe("b")))
+                .thenReturn(MoreFutures.failed(CloudFormationException.builder()
+                        .message("Rate exceeded")
+                        .statusCode(400)
+                        .build()));
+
+        CompletableFuture<Stack> a = watcher.watch(stack("a", StackStatus.CREATE_IN_PROGRESS), null, POLLING_STRATEGY);
+        CompletableFuture<Stack> b = watcher.watch(stack("b", StackStatus.UPDATE_IN_PROGRESS), null, POLLING_STRATEGY);
+        poll();
+
+        Assert.assertEquals(a.join().stackStatus(), StackStatus.CREATE_COMPLETE);
+        Assert.assertTrue(b.isCompletedExceptionally());
+    }
+
+    private void poll() {
+        Assert.assertEquals(scheduledPolls.size(), 1);
+        scheduledPolls.remove(0).run();
+    }
+
+    private static DescribeStacksRequest listing() {
+        return argThat(request -> request != null && request.stackName() == null);
+    }
+
+    private static DescribeStacksRequest describe(String name) {
+        return argThat(request -> request != null && ("id-" + name).equals(request.stackName()));
+    }
+
+    private static CompletableFuture<DescribeStacksResponse> response(Stack... stacks) {
+        return CompletableFuture.completedFuture(DescribeStacksResponse.builder()
+                .stacks(stacks)
+                .build());
+    }
+
+    private static Stack stack(String name, StackStatus status) {
+        return Stack.builder()
+                .stackId("id-" + name)
+                .stackName(name)
+                .stackStatus(status)
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
+import software.amazon.awssdk.services.cloudformation.model.ChangeSetStatus;
+import software.amazon.awssdk.services.cloudformation.model.DescribeChangeSetResponse;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStackEventsRequest;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStackEventsResponse;
+import software.amazon.awssdk.services.cloudformation.model.Stack;
+import software.amazon.awssdk.services.cloudformation.model.StackEvent;
+import software.amazon.awssdk.services.cloudformation.model.StackStatus;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StacksTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    public void testPagingStopsAtNotBefore() {
+        CloudFormationClient client = mock(CloudFormationClient.class);
+        when(client.describeStackEvents(any(DescribeStackEventsRequest.class)))
+                .thenReturn(page("page2", event("e4", 4), event("e3", 3)))
+                .thenReturn(page("page3", event("e2", 2), event("e1", 1)))
+                .thenReturn(page(null, event("e0", 0)));
+        List<String> consumed = new ArrayList<>();
+
+        int count = Stacks.consumeEvents(client, "stack", new Stacks.StackEventListener(
+                event -> consumed.add(event.eventId()), START.plusSeconds(2)));
+
+        Assert.assertEquals(count, 3);
+        Assert.assertEquals(consumed, ImmutableList.of("e2", "e3", "e4"));
+        verify(client, times(2)).describeStackEvents(any(DescribeStackEventsRequest.class));
+    }
+
+    @Test
+    public void testOnlyNewEventsAreConsumed() {
+        CloudFormationClient client = mock(CloudFormationClient.class);
+        when(client.describeStackEvents(any(DescribeStackEventsRequest.class)))
+                .thenReturn(page(null, event("e2", 1), event("e1", 1)))
+                .thenReturn(page(null, event("e4", 2), event("e3", 1), event("e2", 1), event("e1", 1)));
+        List<String> consumed = new ArrayList<>();
+        Stacks.StackEventListener listener = new Stacks.StackEventListener(event -> consumed.add(event.eventId()));
+
+        Assert.assertEquals(Stacks.consumeEvents(client, "stack", listener), 2);
+        Assert.assertEquals(Stacks.consumeEvents(client, "stack", listener), 2);
+        Assert.assertEquals(consumed, ImmutableList.of("e1", "e2", "e3", "e4"));
+    }
+
+    @Test
+    public void testEmptyChangeSet() {
+        Assert.assertTrue(Stacks.isEmpty(changeSet(ChangeSetStatus.FAILED,
+                "The submitted information didn't contain changes. Submit different information to create a change set.")));
+        Assert.assertTrue(Stacks.isEmpty(changeSet(ChangeSetStatus.FAILED, "No updates are to be performed.")));
+        Assert.assertFalse(Stacks.isEmpty(changeSet(ChangeSetStatus.FAILED, "Template format error")));
+        Assert.assertFalse(Stacks.isEmpty(changeSet(ChangeSetStatus.CREATE_COMPLETE, null)));
+    }
+
+    @Test
+    public void testReviewIsInProgress() {
+        Stack reviewedStack = Stack.builder().stackStatus(StackStatus.REVIEW_IN_PROGRESS).build();
+        Assert.assertTrue(Stacks.isInProgress(reviewedStack));
+        Assert.assertTrue(Stacks.isInReview(reviewedStack));
+        Assert.assertFalse(Stacks.isCompleted(reviewedStack));
+
+        Stack updatedStack = Stack.builder().stackStatus(StackStatus.UPDATE_COMPLETE).build();
+        Assert.assertFalse(Stacks.isInProgress(updatedStack));
+        Assert.assertFalse(Stacks.isInReview(updatedStack));
+    }
+
+    private DescribeChangeSetResponse changeSet(ChangeSetStatus status, String statusReason) {
+        return DescribeChangeSetResponse.builder()
+                .status(status)
+                .statusReason(statusReason)
+                .build();
+    }
+
+    private DescribeStackEventsResponse page(String nextToken, StackEvent... events) {
+        return DescribeStackEventsResponse.builder()
+                .stackEvents(events)
+                .nextToken(nextToken)
+                .build();
+    }
+
+    private StackEvent event(String eventId, int second) {
+        return StackEvent.builder()
+                .eventId(eventId)
+                .timestamp(START.plusSeconds(second))
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package io.dataspray.aws.cdk;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class TemplateSerializerTest {
+
+    private static final Map<String, Object> TEMPLATE = ImmutableMap.of(
+            "Resources", ImmutableMap.of("Bucket", ImmutableMap.of("Type", "AWS::S3::Bucket")),
+            "Outputs", ImmutableMap.of("Url", ImmutableMap.of("Value", "https://example.com/?a=1&b=<2>")));
+
+    @Test
+    public void testSmallTemplate() throws IOException {
+        TemplateSerializer.SerializedTemplate template = new TemplateSerializer().serialize(TEMPLATE, 50 * 1024);
+
+        String json = TemplateSerializer.GSON.toJson(TEMPLATE);
+        Assert.assertEquals(template.getBody(), json);
+        Assert.assertNull(template.getBytes());
+        Assert.assertEquals(template.getHash(), Hashing.sha256().hashString(json, StandardCharsets.UTF_8).toString());
+    }
+
+    @Test
+    public void testLargeTemplate() throws IOException {
+        TemplateSerializer serializer = new TemplateSerializer();
+        serializer.serialize(ImmutableMap.of("Description", "A template that is serialized first"), 10);
+        TemplateSerializer.SerializedTemplate template = serializer.serialize(TEMPLATE, 10);
+
+        byte[] json = TemplateSerializer.GSON.toJson(TEMPLATE).getBytes(StandardCharsets.UTF_8);
+        Assert.assertNull(template.getBody());
+        Assert.assertEquals(template.getBytes(), json);
+        Assert.assertEquals(template.getHash(), Hashing.sha256().hashBytes(json).toString());
+    }
+}
@@ -0,0 +1,26 @@
+package io.dataspray.aws.cdk.process;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LineOutputStreamTest {
+
+    @Test
+    public void testLines() {
+        List<String> lines = new ArrayList<>();
+        LineOutputStream output = new LineOutputStream(lines::add);
+        byte[] bytes = "#1 building\r\n#2 done\n\npartial".getBytes(StandardCharsets.UTF_8);
+        output.write(bytes, 0, 5);
+        output.write(bytes, 5, bytes.length - 5);
+        Assert.assertEquals(lines, ImmutableList.of("#1 building", "#2 done", ""));
+
+        output.write('!');
+        output.close();
+        Assert.assertEquals(lines, ImmutableList.of("#1 building", "#2 done", "", "partial!"));
+    }
+}
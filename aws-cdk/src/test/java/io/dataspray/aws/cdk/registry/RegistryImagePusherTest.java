@@ -0,0 +1,246 @@
+package io.dataspray.aws.cdk.registry;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RegistryImagePusherTest {
+
+    private static final String MANIFEST_MEDIA_TYPE = "application/vnd.oci.image.manifest.v1+json";
+
+    private Path directory;
+    private byte[] config;
+    private byte[] firstLayer;
+    private byte[] secondLayer;
+    private byte[] manifest;
+    private Registry registry;
+    private SdkHttpClient httpClient;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("registry-image-pusher-test");
+        Random random = new Random(42);
+        config = "{\"architecture\":\"amd64\",\"os\":\"linux\"}".getBytes(StandardCharsets.UTF_8);
+        firstLayer = new byte[10000];
+        random.nextBytes(firstLayer);
+        secondLayer = new byte[100];
+        random.nextBytes(secondLayer);
+        manifest = ("{\"schemaVersion\":2,\"mediaType\":\"" + MANIFEST_MEDIA_TYPE + "\"," +
+                "\"config\":" + descriptor("application/vnd.oci.image.config.v1+json", config) + "," +
+                "\"layers\":[" + descriptor("application/vnd.oci.image.layer.v1.tar+gzip", firstLayer) + "," +
+                descriptor("application/vnd.oci.image.layer.v1.tar+gzip", secondLayer) + "]}")
+                .getBytes(StandardCharsets.UTF_8);
+        for (byte[] blob : ImmutableList.of(config, firstLayer, secondLayer, manifest)) {
+            Path file = directory.resolve("blobs/sha256").resolve(Hashing.sha256().hashBytes(blob).toString());
+            Files.createDirectories(file.getParent());
+            Files.write(file, blob);
+        }
+        Files.write(directory.resolve("index.json"), ("{\"schemaVersion\":2,\"manifests\":[" +
+                descriptor(MANIFEST_MEDIA_TYPE, manifest) + "]}").getBytes(StandardCharsets.UTF_8));
+
+        registry = new Registry();
+        httpClient = ApacheHttpClient.builder().build();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        executor.shutdown();
+        httpClient.close();
+        registry.server.stop(0);
+        registry.serverExecutor.shutdown();
+        MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testBlobsAreUploadedInChunks() throws IOException {
+        RegistryImagePusher.Result result = createPusher().push(OciImageLayout.read(directory), "app", "latest",
+                ImmutableList.of());
+
+        Assert.assertEquals(result.getUploadedBlobs(), 3);
+        Assert.assertEquals(registry.chunks.get(), 1 + 3 + 1);
+        Assert.assertTrue(registry.contains("app", firstLayer));
+        Assert.assertTrue(registry.contains("app", secondLayer));
+        Assert.assertTrue(registry.contains("app", config));
+        Assert.assertEquals(registry.manifests.get("app:latest"), manifest);
+    }
+
+    @Test
+    public void testExistingBlobsAreSkippedAndMounted() throws IOException {
+        registry.add("app", secondLayer);
+        registry.add("other", firstLayer);
+
+        RegistryImagePusher.Result result = createPusher().push(OciImageLayout.read(directory), "app", "latest",
+                ImmutableList.of("other"));
+
+        Assert.assertEquals(result.getUploadedBlobs(), 1);
+        Assert.assertEquals(result.getMountedBlobs(), 1);
+        Assert.assertEquals(result.getExistingBlobs(), 1);
+        Assert.assertEquals(registry.chunks.get(), 1);
+        Assert.assertTrue(registry.contains("app", firstLayer));
+        Assert.assertEquals(registry.manifests.get("app:latest"), manifest);
+    }
+
+    private RegistryImagePusher createPusher() {
+        URI endpoint = URI.create("http://localhost:" + registry.server.getAddress().getPort());
+        return new RegistryImagePusher(httpClient, endpoint, "Basic dGVzdDp0ZXN0", executor, 2, 4096);
+    }
+
+    private static String descriptor(String mediaType, byte[] content) {
+        return "{\"mediaType\":\"" + mediaType + "\",\"digest\":\"" + digest(content) + "\",\"size\":" +
+                content.length + "}";
+    }
+
+    private static String digest(byte[] content) {
+        return "sha256:" + Hashing.sha256().hashBytes(content).toString();
+    }
+
+    /**
+     * A registry stand-in implementing the parts of the distribution API used by the pusher.
+     */
+    private static class Registry {
+
+        private final HttpServer server;
+        private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+        private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+        private final Map<String, ByteArrayOutputStream> uploads = new ConcurrentHashMap<>();
+        private final Map<String, byte[]> manifests = new ConcurrentHashMap<>();
+        private final AtomicInteger chunks = new AtomicInteger();
+
+        private Registry() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/v2/", exchange -> {
+                try {
+                    handle(exchange);
+                } catch (RuntimeException e) {
+                    respond(exchange, 500, null);
+                } finally {
+                    exchange.close();
+                }
+            });
+            server.setExecutor(serverExecutor);
+            server.start();
+        }
+
+        private void add(String repository, byte[] blob) {
+            blobs.put(repository + "@" + digest(blob), blob);
+        }
+
+        private boolean contains(String repository, byte[] blob) {
+            return blobs.containsKey(repository + "@" + digest(blob));
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            if (!"Basic dGVzdDp0ZXN0".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                respond(exchange, 401, null);
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getQuery();
+            byte[] body = read(exchange.getRequestBody());
+            if (path.contains("/manifests/") && method.equals("PUT")) {
+                int separator = path.indexOf("/manifests/");
+                manifests.put(path.substring(4, separator) + ":" + path.substring(separator + 11), body);
+                respond(exchange, 201, null);
+            } else if (path.contains("/blobs/uploads/")) {
+                int separator = path.indexOf("/blobs/uploads/");
+                String repository = path.substring(4, separator);
+                String uploadId = path.substring(separator + 15);
+                if (method.equals("POST")) {
+                    String mount = parameter(query, "mount");
+                    String from = parameter(query, "from");
+                    if (mount != null && blobs.containsKey(from + "@" + mount)) {
+                        blobs.put(repository + "@" + mount, blobs.get(from + "@" + mount));
+                        respond(exchange, 201, null);
+                        return;
+                    }
+                    uploadId = UUID.randomUUID().toString();
+                    uploads.put(uploadId, new ByteArrayOutputStream());
+                    respond(exchange, 202, "/v2/" + repository + "/blobs/uploads/" + uploadId + "?_state=0");
+                } else if (method.equals("PATCH")) {
+                    ByteArrayOutputStream upload = uploads.get(uploadId);
+                    String range = exchange.getRequestHeaders().getFirst("Content-Range");
+                    if (upload == null || !range.equals(upload.size() + "-" + (upload.size() + body.length - 1))) {
+                        respond(exchange, 416, null);
+                        return;
+                    }
+                    chunks.incrementAndGet();
+                    upload.write(body);
+                    respond(exchange, 202, "/v2/" + repository + "/blobs/uploads/" + uploadId + "?_state=" +
+                            upload.size());
+                } else if (method.equals("PUT")) {
+                    ByteArrayOutputStream upload = uploads.remove(uploadId);
+                    String digest = parameter(query, "digest");
+                    if (upload == null || parameter(query, "_state") == null ||
+                            !digest(upload.toByteArray()).equals(digest)) {
+                        respond(exchange, 400, null);
+                        return;
+                    }
+                    blobs.put(repository + "@" + digest, upload.toByteArray());
+                    respond(exchange, 201, null);
+                } else {
+                    respond(exchange, 405, null);
+                }
+            } else if (path.contains("/blobs/") && method.equals("HEAD")) {
+                int separator = path.indexOf("/blobs/");
+                respond(exchange, blobs.containsKey(path.substring(4, separator) + "@" + path.substring(separator + 7))
+                        ? 200 : 404, null);
+            } else {
+                respond(exchange, 404, null);
+            }
+        }
+
+        private static String parameter(String query, String name) {
+            if (query != null) {
+                for (String parameter : query.split("&")) {
+                    if (parameter.startsWith(name + "=")) {
+                        return parameter.substring(name.length() + 1);
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static byte[] read(InputStream input) throws IOException {
+            return ByteStreams.toByteArray(input);
+        }
+
+        private static void respond(HttpExchange exchange, int status, String location) throws IOException {
+            if (location != null) {
+                exchange.getResponseHeaders().add("Location", location);
+            }
+            exchange.sendResponseHeaders(status, -1);
+            OutputStream output = exchange.getResponseBody();
+            output.close();
+        }
+    }
+}
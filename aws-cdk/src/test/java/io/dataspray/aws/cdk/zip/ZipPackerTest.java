@@ -0,0 +1,112 @@
+package io.dataspray.aws.cdk.zip;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class ZipPackerTest {
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("zip-packer-test");
+        write("index.js", "exports.handler = async () => 'ok';");
+        write("node_modules/a/package.json", "{\"name\": \"a\"}");
+        write("node_modules/b/large.bin", repeat("large content ", 10000));
+        write("node_modules/b/empty.txt", "");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() throws IOException {
+        MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testArchiveIsDeterministic() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            byte[] archive = pack(new ZipPacker(executor, 4, 1024, 4096));
+
+            Files.setLastModifiedTime(directory.resolve("index.js"), FileTime.fromMillis(0));
+            Assert.assertEquals(pack(new ZipPacker(MoreExecutors.directExecutor(), 1, 1024, 4096)), archive);
+            Assert.assertEquals(pack(new ZipPacker(executor, 4, 1024, 4096)), archive);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testArchiveContents() throws IOException {
+        byte[] archive = pack(new ZipPacker(MoreExecutors.directExecutor(), 2, 1024, 4096));
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(ByteStreams.toByteArray(input), StandardCharsets.UTF_8));
+            }
+        }
+
+        List<String> names = new ArrayList<>(entries.keySet());
+        Assert.assertEquals(names, Arrays.asList("index.js", "node_modules/a/package.json", "node_modules/b/empty.txt",
+                "node_modules/b/large.bin"));
+        Assert.assertEquals(entries.get("index.js"), "exports.handler = async () => 'ok';");
+        Assert.assertEquals(entries.get("node_modules/b/empty.txt"), "");
+        Assert.assertEquals(entries.get("node_modules/b/large.bin"), repeat("large content ", 10000));
+    }
+
+    @Test
+    public void testFilesAreCompressedByWritingThreadIfExecutorIsBusy() throws IOException {
+        byte[] archive = pack(new ZipPacker(MoreExecutors.directExecutor(), 2, 1024, 4096));
+
+        // An executor whose threads are all busy never starts the compression
+        Assert.assertEquals(pack(new ZipPacker(task -> {}, 2, 1024, 4096)), archive);
+        Assert.assertEquals(pack(new ZipPacker(task -> {
+            throw new RejectedExecutionException();
+        }, 2, 1024, 4096)), archive);
+    }
+
+    private byte[] pack(ZipPacker packer) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        packer.pack(directory, output);
+        return output.toByteArray();
+    }
+
+    private void write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}